@@ -0,0 +1,86 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.benchmarks;
+
+import com.jdt.fedlearn.core.encryption.distributedPaillier.DistributedPaillier.DistPaillierPrivkey;
+import com.jdt.fedlearn.core.encryption.distributedPaillier.HomoEncryptionUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.jdt.fedlearn.core.encryption.distributedPaillier.DistributedPaillierNative.signedByteArray;
+
+/**
+ * 分布式 Paillier 批量加密、加法和解密（各方部分解密后合并）的耗时，
+ * 非 fake 模式需要能加载 native 库
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistributedPaillierBenchmark {
+    private static final int PARTIES = 3;
+
+    @Param({"false", "true"})
+    public boolean usingFake;
+
+    @Param({"1024"})
+    public int bitLength;
+
+    @Param({"1000"})
+    public int size;
+
+    private HomoEncryptionUtil util;
+    private DistPaillierPrivkey[] skAll;
+    private double[] plaintext;
+    private signedByteArray[] ciphertext;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        util = new HomoEncryptionUtil(PARTIES, bitLength, usingFake);
+        util.generateKeyStandalone();
+        skAll = util.getSkAll();
+        for (int i = 0; i < skAll.length; i++) {
+            skAll[i].setRank(i + 1);
+        }
+        Random random = new Random(42);
+        plaintext = new double[size];
+        for (int i = 0; i < size; i++) {
+            plaintext[i] = random.nextInt((int) 1E7) / 1000d;
+        }
+        ciphertext = util.encryption(plaintext, util.getPk());
+    }
+
+    @Benchmark
+    public signedByteArray[] encrypt() {
+        return util.encryption(plaintext, util.getPk());
+    }
+
+    @Benchmark
+    public signedByteArray[] add() {
+        return util.add(ciphertext, ciphertext, util.getPk());
+    }
+
+    @Benchmark
+    public double[] decrypt() {
+        signedByteArray[][] partial = new signedByteArray[PARTIES][];
+        for (int i = 0; i < PARTIES; i++) {
+            partial[i] = util.decryptPartial(ciphertext, skAll[i]);
+        }
+        return util.decryptFinal(partial, ciphertext, skAll[0]);
+    }
+}
@@ -0,0 +1,89 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.benchmarks;
+
+import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
+import com.jdt.fedlearn.core.encryption.common.PrivateKey;
+import com.jdt.fedlearn.core.encryption.common.PublicKey;
+import com.jdt.fedlearn.core.encryption.fake.FakeTool;
+import com.jdt.fedlearn.core.encryption.javallier.JavallierTool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EncryptionTool} 单条密文的加密、加法和解密耗时，
+ * 分布式 Paillier 不实现 EncryptionTool，见 {@link DistributedPaillierBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncryptionBenchmark {
+    private static final int SIZE = 1024;
+
+    @Param({"javallier", "fake"})
+    public String tool;
+
+    @Param({"1024", "2048"})
+    public int bitLength;
+
+    private EncryptionTool encryptionTool;
+    private PrivateKey privateKey;
+    private PublicKey publicKey;
+    private double[] plaintext;
+    private Ciphertext[] ciphertext;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        encryptionTool = "fake".equals(tool) ? new FakeTool() : new JavallierTool();
+        privateKey = encryptionTool.keyGenerate(bitLength, 64);
+        publicKey = privateKey.generatePublicKey();
+        Random random = new Random(42);
+        plaintext = new double[SIZE];
+        ciphertext = new Ciphertext[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            plaintext[i] = (random.nextDouble() - 0.5) * 20;
+            ciphertext[i] = encryptionTool.encrypt(plaintext[i], publicKey);
+        }
+    }
+
+    //轮流取不同的输入，避免对同一个值反复计算
+    private int next() {
+        cursor = (cursor + 1) & (SIZE - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public Ciphertext encrypt() {
+        return encryptionTool.encrypt(plaintext[next()], publicKey);
+    }
+
+    @Benchmark
+    public Ciphertext add() {
+        int i = next();
+        return encryptionTool.add(ciphertext[i], ciphertext[(i + 1) & (SIZE - 1)], publicKey);
+    }
+
+    @Benchmark
+    public void decrypt(Blackhole blackhole) {
+        blackhole.consume(encryptionTool.decrypt(ciphertext[next()], privateKey));
+    }
+}
@@ -0,0 +1,149 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.benchmarks;
+
+import com.jdt.fedlearn.common.entity.core.ClientInfo;
+import com.jdt.fedlearn.common.entity.core.Message;
+import com.jdt.fedlearn.common.entity.core.feature.Features;
+import com.jdt.fedlearn.common.entity.core.feature.SingleFeature;
+import com.jdt.fedlearn.core.entity.boost.BoostP1Req;
+import com.jdt.fedlearn.core.entity.boost.BoostP2Res;
+import com.jdt.fedlearn.core.entity.boost.BoostP3Req;
+import com.jdt.fedlearn.core.loader.boost.BoostTrainData;
+import com.jdt.fedlearn.core.model.FederatedGBModel;
+import com.jdt.fedlearn.core.parameter.FgbParameter;
+import com.jdt.fedlearn.core.type.BitLengthType;
+import com.jdt.fedlearn.core.type.MetricType;
+import com.jdt.fedlearn.core.type.ObjectiveType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FederatedGBModel 一个根节点上 phase1（主动方计算并加密g、h）、phase2（被动方计算加密直方图）
+ * 和 phase3（主动方解密并选取最优分裂）的耗时，数据为随机生成的两方纵向数据。
+ * 每轮迭代前重新初始化模型，避免 phase1 每次新建的树不断累积
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FederatedGBBenchmark {
+    private static final ClientInfo CLIENT = new ClientInfo("127.0.0.1", 8094, "http");
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"10"})
+    public int featureNum;
+
+    @Param({"32"})
+    public int numBin;
+
+    private FgbParameter parameter;
+    private String[][] activeRaw;
+    private String[][] passiveRaw;
+    private String[] uids;
+    private Features activeFeatures;
+    private Features passiveFeatures;
+
+    private FederatedGBModel activeModel;
+    private FederatedGBModel passiveModel;
+    private BoostTrainData activeData;
+    private BoostTrainData passiveData;
+    private Message phase2Req;
+    private Message phase3Req;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        parameter = new FgbParameter.Builder(1, new MetricType[]{MetricType.AUC}, ObjectiveType.binaryLogistic)
+                .numBin(numBin)
+                .bitLength(BitLengthType.bit1024)
+                .build();
+        Random random = new Random(42);
+        uids = new String[rows];
+        activeRaw = new String[rows + 1][];
+        passiveRaw = new String[rows + 1][];
+        activeRaw[0] = header("a", featureNum, true);
+        passiveRaw[0] = header("b", featureNum, false);
+        for (int i = 0; i < rows; i++) {
+            uids[i] = "u" + i;
+            activeRaw[i + 1] = row(uids[i], featureNum, random, String.valueOf(random.nextInt(2)));
+            passiveRaw[i + 1] = row(uids[i], featureNum, random, null);
+        }
+        activeFeatures = features(activeRaw[0], true);
+        passiveFeatures = features(passiveRaw[0], false);
+    }
+
+    private static String[] header(String prefix, int featureNum, boolean hasLabel) {
+        List<String> header = new ArrayList<>();
+        header.add("uid");
+        for (int j = 0; j < featureNum; j++) {
+            header.add(prefix + j);
+        }
+        if (hasLabel) {
+            header.add("y");
+        }
+        return header.toArray(new String[0]);
+    }
+
+    private static String[] row(String uid, int featureNum, Random random, String label) {
+        String[] row = new String[featureNum + (label == null ? 1 : 2)];
+        row[0] = uid;
+        for (int j = 1; j <= featureNum; j++) {
+            row[j] = String.valueOf(random.nextGaussian());
+        }
+        if (label != null) {
+            row[row.length - 1] = label;
+        }
+        return row;
+    }
+
+    private static Features features(String[] header, boolean hasLabel) {
+        List<SingleFeature> featureList = new ArrayList<>();
+        for (String name : header) {
+            featureList.add(new SingleFeature(name, "float"));
+        }
+        return hasLabel ? new Features(featureList, header[header.length - 1]) : new Features(featureList);
+    }
+
+    @Setup(Level.Iteration)
+    public void init() {
+        activeModel = new FederatedGBModel();
+        passiveModel = new FederatedGBModel();
+        activeData = activeModel.trainInit(activeRaw, uids, new int[0], parameter, activeFeatures, new HashMap<>());
+        passiveData = passiveModel.trainInit(passiveRaw, uids, new int[0], parameter, passiveFeatures, new HashMap<>());
+        phase2Req = activeModel.train(1, new BoostP1Req(CLIENT, true), activeData);
+        BoostP2Res phase2Res = (BoostP2Res) passiveModel.train(2, phase2Req, passiveData);
+        phase3Req = new BoostP3Req(CLIENT, Collections.singletonList(phase2Res));
+    }
+
+    @Benchmark
+    public Message phase1() {
+        return activeModel.train(1, new BoostP1Req(CLIENT, true), activeData);
+    }
+
+    @Benchmark
+    public Message phase2() {
+        return passiveModel.train(2, phase2Req, passiveData);
+    }
+
+    @Benchmark
+    public Message phase3() {
+        return activeModel.train(3, phase3Req, activeData);
+    }
+}
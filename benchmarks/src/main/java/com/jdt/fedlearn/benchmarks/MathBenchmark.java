@@ -0,0 +1,89 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.benchmarks;
+
+import com.jdt.fedlearn.core.math.MathExt;
+import com.jdt.fedlearn.core.metrics.Metric;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 明文矩阵乘法 {@link MathExt#matrixMul(double[][], double[][])} 和 {@link Metric#auc} 的耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MathBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Matrices {
+        @Param({"128", "512"})
+        public int dim;
+
+        private double[][] left;
+        private double[][] right;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42);
+            left = matrix(random, dim);
+            right = matrix(random, dim);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Predictions {
+        @Param({"100000", "1000000"})
+        public int samples;
+
+        private double[] pred;
+        private double[] label;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42);
+            pred = new double[samples];
+            label = new double[samples];
+            for (int i = 0; i < samples; i++) {
+                label[i] = random.nextInt(2);
+                //正样本的预测值整体偏高，保证 auc 不是退化情形
+                pred[i] = random.nextDouble() * 0.8 + label[i] * 0.2;
+            }
+        }
+    }
+
+    private static double[][] matrix(Random random, int dim) {
+        double[][] res = new double[dim][dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                res[i][j] = random.nextGaussian();
+            }
+        }
+        return res;
+    }
+
+    @Benchmark
+    public double[][] matrixMul(Matrices matrices) {
+        return MathExt.matrixMul(matrices.left, matrices.right);
+    }
+
+    @Benchmark
+    public double auc(Predictions predictions) {
+        return Metric.auc(predictions.pred, predictions.label);
+    }
+}
@@ -0,0 +1,75 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.benchmarks;
+
+import com.jdt.fedlearn.common.entity.core.ClientInfo;
+import com.jdt.fedlearn.common.entity.core.Message;
+import com.jdt.fedlearn.core.entity.boost.EncryptedGradHess;
+import com.jdt.fedlearn.core.type.data.StringTuple2;
+import com.jdt.fedlearn.tools.serializer.JavaSerializer;
+import com.jdt.fedlearn.tools.serializer.KryoUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 训练消息经 {@link KryoUtil} 和 {@link JavaSerializer} 序列化再反序列化的耗时，
+ * 消息为字符串形式的加密 g、h，长度与 1024 位 Paillier 密文相当
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializerBenchmark {
+    private static final int CIPHER_DIGITS = 600;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private final JavaSerializer javaSerializer = new JavaSerializer();
+    private Message message;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        int[] instanceSpace = new int[size];
+        StringTuple2[] gh = new StringTuple2[size];
+        for (int i = 0; i < size; i++) {
+            instanceSpace[i] = i;
+            gh[i] = new StringTuple2(digits(random), digits(random));
+        }
+        message = new EncryptedGradHess(new ClientInfo("127.0.0.1", 8094, "http"), instanceSpace, gh, digits(random), true);
+    }
+
+    private static String digits(Random random) {
+        StringBuilder sb = new StringBuilder(CIPHER_DIGITS);
+        for (int i = 0; i < CIPHER_DIGITS; i++) {
+            sb.append((char) ('0' + random.nextInt(10)));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public Message kryo() {
+        return KryoUtil.readFromString(KryoUtil.writeToString(message));
+    }
+
+    @Benchmark
+    public Message java() {
+        return javaSerializer.deserialize(javaSerializer.serialize(message));
+    }
+}
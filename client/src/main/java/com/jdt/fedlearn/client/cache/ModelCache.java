@@ -16,49 +16,97 @@ package com.jdt.fedlearn.client.cache;
 import com.jdt.fedlearn.client.dao.ModelDao;
 import com.jdt.fedlearn.client.util.ConfigUtil;
 import com.jdt.fedlearn.core.model.Model;
-import com.jdt.fedlearn.core.type.data.Tuple2;
 import com.jdt.fedlearn.tools.FileUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 /**
  * 训练过程中的和训练完成的 模型缓存
- * 采用LRU
+ * 采用按模型大小加权的LRU，以模型 token 为键 O(1) 查找
  * 系统启动时，根据配置文件中指定的模型文件夹路径搜索所有文件，并将文件名存储在<code>tokenSet</code>中，
- * 然后选择n个model将capacity填充满
- * 后续的训练过程中，每次有新的模型put时，按照顺序将最老的模型序列化并存储在文件中
+ * 然后在后台预加载少量模型
  * get模型时，先在已加载的模型中查找，然后去<code>tokenSet</code> 中检查，
- * 如果在<code>tokenSet</code>中有模型，则加载和替换
- * TODO 后续的替换策略会进一步优化，目前先采用先进先出队列
- * TODO 多线程优化
- * <code>tokenSet</code> 和 <code>modelQueue</code> 中的token 均不包含后缀.model，文件中的实际文件包含。
+ * 如果在<code>tokenSet</code>中有模型，则异步加载，同一模型同时只加载一次，并发请求共享加载结果
+ * 模型权重为模型文件大小，已加载模型的总权重超过上限时，淘汰最久未访问的模型；
+ * 训练中尚未保存到文件的模型不参与淘汰，<code>forceToFile</code> 成功后才可以淘汰；
+ * 训练完成、暂停或停止时保存到文件，训练失败时通过 <code>release</code> 丢弃，避免一直常驻内存
+ * <code>tokenSet</code> 和 <code>models</code> 中的token 均不包含后缀.model，文件中的实际文件包含。
  * <p>
  * 因训练中的模型和用于推理的模型在内存占用量上差距巨大，训练完成后记得执行
  */
 
 public class ModelCache {
     private static final Logger logger = LoggerFactory.getLogger(ModelCache.class);
-    private static final ModelCache modelCache = new ModelCache(5);
+    private static final int PRELOAD = 5;
+    private static final long MB = 1024L * 1024L;
 
-    private final Set<String> tokenSet = new HashSet<>();
-    private final int capacity;
-    private final Queue<Tuple2<String, Model>> modelQueue = new ConcurrentLinkedDeque<>();
+    private final Set<String> tokenSet = ConcurrentHashMap.newKeySet();
+    //按访问顺序排列，所有读写都在 models 锁内进行
+    private final LinkedHashMap<String, Entry> models = new LinkedHashMap<>(16, 0.75f, true);
+    //正在加载的模型
+    private final Map<String, CompletableFuture<Model>> loading = new ConcurrentHashMap<>();
+    private final Function<String, Model> loader;
+    private final ToLongFunction<String> weigher;
+    private final Executor loadExecutor;
+    private final long maxWeight;
+    //可淘汰模型的总权重
+    private long totalWeight;
 
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
 
-    private ModelCache(int capacity) {
-        this.capacity = capacity;
-        init();
+    private static class Entry {
+        private final Model model;
+        private final long weight;
+        //尚未保存到文件，不参与淘汰
+        private final boolean pinned;
+
+        private Entry(Model model, long weight, boolean pinned) {
+            this.model = model;
+            this.weight = weight;
+            this.pinned = pinned;
+        }
     }
 
     private ModelCache() {
-        this.capacity = 5;
+        this(maxWeightFromConfig(), ModelDao::loadModel, ModelCache::modelFileSize, newLoadExecutor(), Collections.emptyList());
         init();
     }
 
+    ModelCache(long maxWeight, Function<String, Model> loader, ToLongFunction<String> weigher, Executor loadExecutor, Collection<String> tokens) {
+        this.maxWeight = maxWeight;
+        this.loader = loader;
+        this.weigher = weigher;
+        this.loadExecutor = loadExecutor;
+        this.tokenSet.addAll(tokens);
+    }
+
+    private static long maxWeightFromConfig() {
+        long size = ConfigUtil.getClientConfig().getModelCacheSize();
+        return size > 0 ? size * MB : Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    private static long modelFileSize(String modelToken) {
+        return new File(ConfigUtil.getClientConfig().getModelDir(), modelToken + ".model").length();
+    }
+
+    private static Executor newLoadExecutor() {
+        return Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "model-cache-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      *
      */
@@ -73,46 +121,25 @@ public class ModelCache {
 
         logger.info("tokenSetSize():" + tokenSet.size());
         //TODO 此处后续可根据时间优化
-        List<String> needToLoad = tokenSet.stream().limit(capacity).collect(Collectors.toList());
-        logger.info("need to load:" + needToLoad.size());
-        for (String modelToken : needToLoad) {
-            Model model = ModelDao.loadModel(modelToken);
-            // 如果放回空，说明模型有错误，不用加载
-            if (Objects.nonNull(model)) {
-                modelQueue.offer(new Tuple2<>(modelToken, model));
-            }
-        }
+        tokenSet.stream().limit(PRELOAD).forEach(this::getAsync);
         logger.info("tokenSet:" + String.join(",", tokenSet));
     }
 
     /**
+     * 放入训练中的模型，保存到文件之前不会被淘汰
+     *
      * @param modelToken 模型唯一识别码
      * @param model      模型对象
      * @return 是否更新成功
      */
     public boolean put(String modelToken, Model model) {
         tokenSet.add(modelToken);
-        if (modelQueue.size() > capacity) {
-            logger.info("model size over capacity with size=" + modelQueue.size());
-            logger.info("capacity=" + capacity);
-            Tuple2<String, Model> eldestModel = modelQueue.poll();
-            if (eldestModel == null) {
-                return false;
-            }
-//            ModelDao.saveModel(eldestModel._1(), eldestModel._2());
-        }
-        if (modelQueue.stream().anyMatch(x -> x._1().equals(modelToken))) {
-            Tuple2<String, Model> tuple2 = modelQueue.stream().filter(x -> x._1().equals(modelToken)).findFirst().get();
-            modelQueue.remove(tuple2);
-            modelQueue.offer(new Tuple2<>(modelToken, model));
-        } else {
-            modelQueue.offer(new Tuple2<>(modelToken, model));
-        }
+        install(modelToken, new Entry(model, 0, true), true);
         return true;
     }
 
     /**
-     * 更新已存在的模型，如果模型id不存在，返回错误
+     * 更新已存在的模型，是否已保存到文件的状态保持不变
      *
      * @param modelToken 模型唯一识别码
      * @param model      模型对象
@@ -120,56 +147,167 @@ public class ModelCache {
      */
     public boolean update(String modelToken, Model model) {
         tokenSet.add(modelToken);
-        if (modelQueue.stream().anyMatch(x -> x._1().equals(modelToken))) {
-            Tuple2<String, Model> tuple2 = modelQueue.stream().filter(x -> x._1().equals(modelToken)).findFirst().get();
-            modelQueue.remove(tuple2);
-            modelQueue.offer(new Tuple2<>(modelToken, model));
-        } else {
-            modelQueue.offer(new Tuple2<>(modelToken, model));
+        Entry entry;
+        synchronized (models) {
+            Entry old = models.get(modelToken);
+            entry = old == null || old.pinned ? new Entry(model, 0, true) : new Entry(model, old.weight, false);
         }
+        install(modelToken, entry, true);
         return true;
     }
 
     //根据modelToken读取model
     public Model get(String modelToken) {
         logger.info("come in model cache get with model:" + modelToken);
-        if (modelQueue.stream().anyMatch(x -> x._1().equals(modelToken))) {
-            return modelQueue.stream().filter(x -> x._1().equals(modelToken)).map(Tuple2::_2).findFirst().get();
-        } else if (tokenSet.contains(modelToken)) {
-            //load and replace
+        try {
+            return getAsync(modelToken).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.error("load model error, modelToken:" + modelToken, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * 异步读取模型，缓存中不存在时从文件加载，同一模型同时只有一个加载任务
+     *
+     * @param modelToken 模型唯一识别码
+     * @return 模型，不存在或加载失败时为 null
+     */
+    public CompletableFuture<Model> getAsync(String modelToken) {
+        Model cached = lookup(modelToken);
+        if (cached != null) {
+            hitCount.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        missCount.increment();
+        if (!tokenSet.contains(modelToken)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Model> future = new CompletableFuture<>();
+        CompletableFuture<Model> existing = loading.putIfAbsent(modelToken, future);
+        if (existing != null) {
+            return existing;
+        }
+        //上一次加载可能恰好在 putIfAbsent 之前完成
+        cached = lookup(modelToken);
+        if (cached != null) {
+            loading.remove(modelToken, future);
+            future.complete(cached);
+            return future;
+        }
+        loadExecutor.execute(() -> load(modelToken, future));
+        return future;
+    }
+
+    private void load(String modelToken, CompletableFuture<Model> future) {
+        try {
+            long start = System.currentTimeMillis();
+            Model model = loader.apply(modelToken);
+            loadCount.increment();
+            // 如果返回空，说明模型有错误，不放入缓存
+            if (Objects.nonNull(model)) {
+                long weight = Math.max(1, weigher.applyAsLong(modelToken));
+                install(modelToken, new Entry(model, weight, false), false);
+                logger.info("load model " + modelToken + " weight:" + weight + " cost:" + (System.currentTimeMillis() - start) + "ms, " + stats());
+            }
+            future.complete(model);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            loading.remove(modelToken, future);
+        }
+    }
 
-            Model model = ModelDao.loadModel(modelToken);
-            //TODO
-            put(modelToken, model);
-            return model;
+    private Model lookup(String modelToken) {
+        synchronized (models) {
+            Entry entry = models.get(modelToken);
+            return entry == null ? null : entry.model;
+        }
+    }
+
+    //replace 为 false 时不覆盖已有模型，避免从文件加载的旧模型覆盖训练中放入的新模型
+    private void install(String modelToken, Entry entry, boolean replace) {
+        synchronized (models) {
+            Entry old = models.get(modelToken);
+            if (old != null && !replace) {
+                return;
+            }
+            if (old != null && !old.pinned) {
+                totalWeight -= old.weight;
+            }
+            models.put(modelToken, entry);
+            if (!entry.pinned) {
+                totalWeight += entry.weight;
+            }
+            evict(modelToken);
+        }
+    }
+
+    //从最久未访问的模型开始淘汰，保留刚放入的模型和未保存的模型
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Entry>> iterator = models.entrySet().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getValue().pinned || eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            totalWeight -= eldest.getValue().weight;
+            evictionCount.increment();
+            logger.info("evict model " + eldest.getKey() + " weight:" + eldest.getValue().weight);
         }
-        return null;
     }
 
     /**
      * 将训练完成的模型转换为推理模型，主要是去掉不需要的属性
-     * 同时持久化存储
+     * 同时持久化存储，成功后模型可以被淘汰
      *
      * @param modelToken 模型唯一识别码
      * @return 是否成功
      */
     public boolean forceToFile(String modelToken) {
-        for(Tuple2<String, Model> q:modelQueue){
-            logger.info("before forece : " + q);
-                   }
-        if (modelQueue.stream().anyMatch(x -> x._1().equals(modelToken))) {
-            Model model = modelQueue.stream().filter(x -> x._1().equals(modelToken)).map(Tuple2::_2).findFirst().get();
-//            ObjectMapper objectMapper = new ObjectMapper();
-//            update(modelToken, ModelDao.slim(modelToken, model));
-            return ModelDao.saveModel(modelToken, model);
+        Model model = lookup(modelToken);
+        if (model == null) {
+            return false;
         }
-        return false;
+        boolean saved = ModelDao.saveModel(modelToken, model);
+        if (saved) {
+            long weight = Math.max(1, weigher.applyAsLong(modelToken));
+            synchronized (models) {
+                Entry entry = models.get(modelToken);
+                if (entry != null && entry.model == model) {
+                    install(modelToken, new Entry(model, weight, false), true);
+                }
+            }
+        }
+        return saved;
     }
 
 
+    /**
+     * 丢弃训练中尚未保存到文件的模型，用于训练失败等无法继续的情况；已保存的模型不受影响
+     *
+     * @param modelToken 模型唯一识别码
+     * @return 是否丢弃了模型
+     */
+    public boolean release(String modelToken) {
+        synchronized (models) {
+            Entry entry = models.get(modelToken);
+            if (entry == null || !entry.pinned) {
+                return false;
+            }
+            models.remove(modelToken);
+        }
+        logger.info("release unsaved model " + modelToken);
+        return true;
+    }
+
     public boolean slim(String modelToken) {
-        if (modelQueue.stream().anyMatch(x -> x._1().equals(modelToken))) {
-            Model model = modelQueue.stream().filter(x -> x._1().equals(modelToken)).map(Tuple2::_2).findFirst().get();
+        Model model = lookup(modelToken);
+        if (model != null) {
             return update(modelToken, ModelDao.slim(modelToken, model));
         }
         return false;
@@ -191,8 +329,41 @@ public class ModelCache {
         return true;
     }
 
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public String stats() {
+        int size;
+        long weight;
+        synchronized (models) {
+            size = models.size();
+            weight = totalWeight;
+        }
+        return "model cache size:" + size + " weight:" + weight + "/" + maxWeight
+                + " hit:" + getHitCount() + " miss:" + getMissCount()
+                + " load:" + getLoadCount() + " eviction:" + getEvictionCount();
+    }
+
+    //首次使用时才扫描模型目录
+    private static class Holder {
+        private static final ModelCache INSTANCE = new ModelCache();
+    }
+
     public static ModelCache getInstance() {
-        return modelCache;
+        return Holder.INSTANCE;
     }
 
     public static void start() {
@@ -13,6 +13,7 @@ limitations under the License.
 
 package com.jdt.fedlearn.client.cache;
 
+import com.jdt.fedlearn.client.dao.ColumnarStore;
 import com.jdt.fedlearn.client.dao.CsvReader;
 import com.jdt.fedlearn.client.dao.DataReader;
 import com.jdt.fedlearn.client.dao.HdfsReader;
@@ -40,10 +41,12 @@ public class TrainDataCache {
     private static final Object dataNameLock = new Object();
     private static final Object datasetLock = new Object();
     public static Map<String, String[][]> cacheFileMap = new ConcurrentHashMap<>();
+    //csv 数据源的列式缓存，优先于 cacheFileMap 使用
+    public static Map<String, ColumnarStore> columnarMap = new ConcurrentHashMap<>();
     public static final String TRAIN_DATA_SOURCE = "trainDataSource";
     public static Map<String, List<DataSourceConfig>> dataSourceMap = new ConcurrentHashMap<>();
 
-    private static String[][] loadFullData(String dataName) throws IOException {
+    private static DataSourceConfig findConfig(String dataName) {
         //TODO 后续根据传入的 dataName 确定使用哪个 config
 //        List<DataSourceConfig> trainConfigs = ConfigUtil.trainConfigList();
         List<DataSourceConfig> trainConfigs = dataSourceMap.get(TRAIN_DATA_SOURCE);
@@ -57,6 +60,11 @@ public class TrainDataCache {
             logger.error("not matched dataset:" + dataName + " use first config instead");
             trainConfig = trainConfigs.get(0);
         }
+        return trainConfig;
+    }
+
+    private static String[][] loadFullData(String dataName) throws IOException {
+        DataSourceConfig trainConfig = findConfig(dataName);
         SourceType sourceType = trainConfig.getSourceType();
         DataReader reader;
         if (SourceType.CSV.equals(sourceType)) {
@@ -72,6 +80,31 @@ public class TrainDataCache {
     }
 
 
+    /**
+     * 获取列式训练数据，只有 csv 数据源支持，转换一次后按源文件大小和修改时间复用
+     *
+     * @param dataName 数据集名称
+     * @return 列式数据，数据源不支持或无法转换时返回 null，调用方回退到 {@link #getTrainData}
+     */
+    public static ColumnarStore getColumnarData(String dataName) {
+        if (!columnarMap.containsKey(dataName)) {
+            synchronized (datasetLock) {
+                if (!columnarMap.containsKey(dataName)) {
+                    DataSourceConfig trainConfig = findConfig(dataName);
+                    if (!SourceType.CSV.equals(trainConfig.getSourceType())) {
+                        return null;
+                    }
+                    ColumnarStore store = new CsvReader().loadColumnar(trainConfig);
+                    if (store == null) {
+                        return null;
+                    }
+                    columnarMap.put(dataName, store);
+                }
+            }
+        }
+        return columnarMap.get(dataName);
+    }
+
     public static String[][] getTrainData(String matchToken, String dataName) throws IOException {
         if (!cacheFileMap.containsKey(matchToken)) {
             synchronized (dataNameLock) {
@@ -88,15 +121,16 @@ public class TrainDataCache {
 
     // 返回
     public static List<Integer> checkUidNotTrain(String[] uidList) {
-        String[][] cacheFile = cacheFileMap.values().iterator().next();
         List<Integer> indexList = new ArrayList<>();
-        if (cacheFile == null) {
-            return indexList;
-        }
-
         Set<String> trainSet = new HashSet<>();
-        for (String[] row : cacheFile) {
-            trainSet.add(row[0]);
+        if (!cacheFileMap.isEmpty()) {
+            for (String[] row : cacheFileMap.values().iterator().next()) {
+                trainSet.add(row[0]);
+            }
+        } else if (!columnarMap.isEmpty()) {
+            trainSet.addAll(Arrays.asList(columnarMap.values().iterator().next().getUids()));
+        } else {
+            return indexList;
         }
         for (int i = 0; i < uidList.length; i++) {
             String id = uidList[i];
@@ -109,8 +143,19 @@ public class TrainDataCache {
 
 
     public static Map loadLabelMap(String label) {
-        String[][] cacheFile = cacheFileMap.values().iterator().next();
         Map<String, String> labelMap = new HashMap<>();
+        if (cacheFileMap.isEmpty() && !columnarMap.isEmpty()) {
+            ColumnarStore store = columnarMap.values().iterator().next();
+            int index = store.columnIndex(label);
+            if (index <= 0) {
+                return null;
+            }
+            for (int row = 0; row < store.numRows(); row++) {
+                labelMap.put(store.getUid(row), String.valueOf(store.get(index, row)));
+            }
+            return labelMap;
+        }
+        String[][] cacheFile = cacheFileMap.values().iterator().next();
         List<String> labels = Arrays.asList(cacheFile[0]);
         int index = labels.indexOf(label);
         if (index >= 0) {
@@ -127,6 +172,11 @@ public class TrainDataCache {
 
     // TODO 和训练数据读取分离，只读取指定列
     public static String[] loadTrainDataUid(String dataset, String uidName) throws IOException {
+        //列式数据的uid列固定为第一列，直接返回uid字典
+        ColumnarStore store = getColumnarData(dataset);
+        if (store != null && (uidName == null || store.columnIndex(uidName) <= 0)) {
+            return store.getUids().clone();
+        }
         String[][] trainData = readFullTrainData("", dataset);
         int index = 0;
         String[] header = trainData[0];
@@ -0,0 +1,222 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.client.dao;
+
+import com.jdt.fedlearn.core.loader.common.ColumnarTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * csv训练文件的列式磁盘格式，每个数值列一个文件，按行顺序保存 double，读取时内存映射；
+ * uid 列单独保存为字典文件。
+ * 目录下的 meta 文件记录表头、行数以及源文件的大小和修改时间，源文件变化后自动重建。
+ * 除uid列外存在非数值内容，或某行字段数与表头不一致时不转换，由调用方回退到字符串表
+ */
+public class ColumnarStore implements ColumnarTable {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarStore.class);
+    private static final String DELIMITER = ",";
+    private static final int VERSION = 1;
+    private static final String META = "meta";
+    private static final String UID = "uid";
+    private static final String COLUMN_PREFIX = "col_";
+    private static final int WRITE_BUFFER = 16 * 1024;
+
+    private final String[] header;
+    private final String[] uid;
+    //下标与表头一致，0 为uid列，为空
+    private final DoubleBuffer[] columns;
+
+    private ColumnarStore(String[] header, String[] uid, DoubleBuffer[] columns) {
+        this.header = header;
+        this.uid = uid;
+        this.columns = columns;
+    }
+
+    /**
+     * 打开 csv 文件对应的列式数据，缓存目录不存在或已过期时重新转换
+     *
+     * @param csvPath csv 文件路径
+     * @param dir     列式数据目录
+     * @return 列式数据，文件无法转换时返回 null
+     */
+    public static ColumnarStore openOrBuild(String csvPath, Path dir) {
+        File source = new File(csvPath);
+        try {
+            ColumnarStore store = open(dir, source);
+            if (store != null) {
+                return store;
+            }
+            if (!build(source, dir)) {
+                return null;
+            }
+            return open(dir, source);
+        } catch (IOException e) {
+            logger.error("columnar store error, path:" + csvPath, e);
+            return null;
+        }
+    }
+
+    private static ColumnarStore open(Path dir, File source) throws IOException {
+        Path metaPath = dir.resolve(META);
+        if (!Files.exists(metaPath)) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(metaPath, StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        }
+        if (!String.valueOf(VERSION).equals(meta.getProperty("version"))
+                || !String.valueOf(source.length()).equals(meta.getProperty("sourceLength"))
+                || !String.valueOf(source.lastModified()).equals(meta.getProperty("sourceModified"))) {
+            logger.info("columnar store expired: " + dir);
+            return null;
+        }
+        String[] header = meta.getProperty("header").split(DELIMITER, -1);
+        int rows = Integer.parseInt(meta.getProperty("rows"));
+        String[] uid = new String[rows];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dir.resolve(UID))))) {
+            for (int i = 0; i < rows; i++) {
+                uid[i] = in.readUTF();
+            }
+        }
+        DoubleBuffer[] columns = new DoubleBuffer[header.length];
+        for (int col = 1; col < header.length; col++) {
+            try (FileChannel channel = FileChannel.open(dir.resolve(COLUMN_PREFIX + col), StandardOpenOption.READ)) {
+                columns[col] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asDoubleBuffer();
+            }
+        }
+        return new ColumnarStore(header, uid, columns);
+    }
+
+    //逐行读取 csv，一次写出所有列文件，meta 最后写入，保证中途失败时不会被当作有效数据
+    private static boolean build(File source, Path dir) throws IOException {
+        long start = System.currentTimeMillis();
+        deleteDir(dir);
+        Files.createDirectories(dir);
+        String[] header;
+        int rows = 0;
+        boolean converted = true;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String headerLine = br.readLine();
+            if (headerLine == null) {
+                return false;
+            }
+            header = headerLine.split(DELIMITER, -1);
+            List<DataOutputStream> outputs = new ArrayList<>();
+            try (DataOutputStream uidOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve(UID))))) {
+                for (int col = 1; col < header.length; col++) {
+                    outputs.add(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve(COLUMN_PREFIX + col)), WRITE_BUFFER)));
+                }
+                String line;
+                while (converted && (line = br.readLine()) != null) {
+                    String[] strs = line.split(DELIMITER, -1);
+                    if (strs.length != header.length) {
+                        logger.info("column size not match header at line " + (rows + 2) + ", skip columnar store");
+                        converted = false;
+                        break;
+                    }
+                    uidOut.writeUTF(strs[0]);
+                    for (int col = 1; col < strs.length; col++) {
+                        double value;
+                        try {
+                            value = Double.parseDouble(strs[col]);
+                        } catch (NumberFormatException e) {
+                            logger.info("non numeric value at line " + (rows + 2) + ", skip columnar store");
+                            converted = false;
+                            break;
+                        }
+                        outputs.get(col - 1).writeDouble(value);
+                    }
+                    rows++;
+                }
+            } finally {
+                for (DataOutputStream output : outputs) {
+                    output.close();
+                }
+            }
+        }
+        if (!converted) {
+            deleteDir(dir);
+            return false;
+        }
+        Properties meta = new Properties();
+        meta.setProperty("version", String.valueOf(VERSION));
+        meta.setProperty("header", String.join(DELIMITER, header));
+        meta.setProperty("rows", String.valueOf(rows));
+        meta.setProperty("sourceLength", String.valueOf(source.length()));
+        meta.setProperty("sourceModified", String.valueOf(source.lastModified()));
+        try (Writer writer = Files.newBufferedWriter(dir.resolve(META), StandardCharsets.UTF_8)) {
+            meta.store(writer, null);
+        }
+        logger.info("build columnar store " + dir + " rows:" + rows + " cost:" + (System.currentTimeMillis() - start) + "ms");
+        return true;
+    }
+
+    private static void deleteDir(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Override
+    public String[] getHeader() {
+        return header;
+    }
+
+    @Override
+    public int numRows() {
+        return uid.length;
+    }
+
+    @Override
+    public String getUid(int row) {
+        return uid[row];
+    }
+
+    @Override
+    public double get(int col, int row) {
+        return columns[col].get(row);
+    }
+
+    public String[] getUids() {
+        return uid;
+    }
+
+    /**
+     * @param name 列名
+     * @return 表头中的列号，不存在时返回 -1
+     */
+    public int columnIndex(String name) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,267 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.client.dao;
+
+import com.jdt.fedlearn.core.psi.HashIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * csv 文件的行索引：每行的起始字节偏移，以及数据行第一列 uid 到行号的映射。
+ * 每个文件只扫描一次，索引保存在文件所在目录的 .index 子目录下，
+ * 通过源文件大小和修改时间判断是否失效；按行读取时直接定位，文件不超过2G时使用内存映射。
+ * 内存中最多保留 {@link #MAX_INDEXES} 个文件的索引，按最近使用淘汰，源文件变化或被删除时同时丢弃。
+ * 行号从0开始，第0行为表头；uid 重复时只索引第一次出现的行。
+ * uid 按行顺序存放在数组中，由开放寻址的 {@link HashIndex} 查找，不产生装箱的 Map 节点
+ */
+public class CsvIndex {
+    private static final Logger logger = LoggerFactory.getLogger(CsvIndex.class);
+    private static final int MAX_INDEXES = 16;
+    //按访问顺序排列，超出上限时淘汰最久未使用的索引，映射的内存随之由 GC 回收
+    private static final Map<String, CsvIndex> INDEXES = new LinkedHashMap<String, CsvIndex>(MAX_INDEXES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CsvIndex> eldest) {
+            return size() > MAX_INDEXES;
+        }
+    };
+    private static final int VERSION = 2;
+    private static final String INDEX_DIR = ".index";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int READ_BUFFER = 64 * 1024;
+
+    private final File file;
+    private final long length;
+    private final long modified;
+    private final long[] lineOffsets;
+    //第 i 个元素为第 i + 1 行的 uid
+    private final String[] uids;
+    private final HashIndex uidIndex;
+    private final MappedByteBuffer mapped;
+
+    private CsvIndex(File file, long length, long modified, long[] lineOffsets, String[] uids) throws IOException {
+        this.file = file;
+        this.length = length;
+        this.modified = modified;
+        this.lineOffsets = lineOffsets;
+        this.uids = uids;
+        this.uidIndex = new HashIndex(uids);
+        if (length <= Integer.MAX_VALUE) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+        } else {
+            this.mapped = null;
+        }
+    }
+
+    /**
+     * 获取文件的索引，内存中或磁盘上的索引已失效时重新构建
+     *
+     * @param path csv 文件路径
+     * @return 索引
+     */
+    public static CsvIndex of(String path) throws IOException {
+        File file = new File(path);
+        synchronized (INDEXES) {
+            CsvIndex index = INDEXES.get(path);
+            if (index != null && index.matches(file)) {
+                return index;
+            }
+            INDEXES.remove(path);
+            Path indexPath = indexPath(file);
+            index = load(file, indexPath);
+            if (index == null) {
+                index = build(file);
+                save(index, indexPath);
+            }
+            INDEXES.put(path, index);
+            return index;
+        }
+    }
+
+    /**
+     * @return 内存中缓存的索引个数
+     */
+    static int cachedIndexes() {
+        synchronized (INDEXES) {
+            return INDEXES.size();
+        }
+    }
+
+    private boolean matches(File source) {
+        return source.length() == length && source.lastModified() == modified;
+    }
+
+    private static Path indexPath(File source) {
+        File parent = source.getAbsoluteFile().getParentFile();
+        return new File(new File(parent, INDEX_DIR), source.getName() + INDEX_SUFFIX).toPath();
+    }
+
+    private static CsvIndex load(File source, Path indexPath) throws IOException {
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != VERSION || in.readLong() != source.length() || in.readLong() != source.lastModified()) {
+                logger.info("csv index expired: " + indexPath);
+                return null;
+            }
+            int lines = in.readInt();
+            long[] lineOffsets = new long[lines];
+            for (int i = 0; i < lines; i++) {
+                lineOffsets[i] = in.readLong();
+            }
+            String[] uids = new String[in.readInt()];
+            for (int i = 0; i < uids.length; i++) {
+                uids[i] = in.readUTF();
+            }
+            return new CsvIndex(source, source.length(), source.lastModified(), lineOffsets, uids);
+        } catch (EOFException e) {
+            logger.error("broken csv index: " + indexPath);
+            return null;
+        }
+    }
+
+    private static void save(CsvIndex index, Path indexPath) {
+        try {
+            Files.createDirectories(indexPath.getParent());
+            Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(VERSION);
+                out.writeLong(index.length);
+                out.writeLong(index.modified);
+                out.writeInt(index.lineOffsets.length);
+                for (long offset : index.lineOffsets) {
+                    out.writeLong(offset);
+                }
+                out.writeInt(index.uids.length);
+                for (String uid : index.uids) {
+                    out.writeUTF(uid);
+                }
+            }
+            Files.move(tmp, indexPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            //索引写不进去时只影响下次启动，内存中的索引仍可用
+            logger.error("save csv index error: " + indexPath, e);
+        }
+    }
+
+    //按字节扫描一遍文件，记录每行起始偏移和第一列内容
+    private static CsvIndex build(File source) throws IOException {
+        long start = System.currentTimeMillis();
+        long length = source.length();
+        long modified = source.lastModified();
+        long[] offsets = new long[1024];
+        String[] uids = new String[1024];
+        int lines = 0;
+        ByteArrayOutputStream firstField = new ByteArrayOutputStream();
+        boolean inFirstField = true;
+        boolean lineStart = true;
+        long position = 0;
+        byte[] buffer = new byte[READ_BUFFER];
+        try (InputStream in = new FileInputStream(source)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++, position++) {
+                    byte b = buffer[i];
+                    if (lineStart) {
+                        if (lines == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, lines * 2);
+                            uids = Arrays.copyOf(uids, lines * 2);
+                        }
+                        offsets[lines++] = position;
+                        lineStart = false;
+                        inFirstField = true;
+                        firstField.reset();
+                    }
+                    if (b == '\n') {
+                        addUid(uids, firstField, lines - 1);
+                        lineStart = true;
+                    } else if (inFirstField) {
+                        if (b == ',') {
+                            inFirstField = false;
+                        } else if (b != '\r') {
+                            firstField.write(b);
+                        }
+                    }
+                }
+            }
+        }
+        if (!lineStart) {
+            addUid(uids, firstField, lines - 1);
+        }
+        logger.info("build csv index " + source + " lines:" + lines + " cost:" + (System.currentTimeMillis() - start) + "ms");
+        return new CsvIndex(source, length, modified, Arrays.copyOf(offsets, lines),
+                Arrays.copyOfRange(uids, Math.min(1, lines), lines));
+    }
+
+    private static void addUid(String[] uids, ByteArrayOutputStream firstField, int line) {
+        uids[line] = new String(firstField.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 文件总行数，包含表头
+     */
+    public int numLines() {
+        return lineOffsets.length;
+    }
+
+    /**
+     * @param uid 第一列的值
+     * @return 所在行号，不存在时返回 -1
+     */
+    public int lineOf(String uid) {
+        int index = uidIndex.indexOf(uid);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    /**
+     * @param line 行号，第0行为表头
+     * @return 该行内容，不含换行符
+     */
+    public String readLine(int line) throws IOException {
+        long start = lineOffsets[line];
+        long end = line + 1 < lineOffsets.length ? lineOffsets[line + 1] : length;
+        byte[] bytes = new byte[(int) (end - start)];
+        if (mapped != null) {
+            ByteBuffer view = mapped.duplicate();
+            view.position((int) start);
+            view.get(bytes);
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer target = ByteBuffer.wrap(bytes);
+                while (target.hasRemaining() && channel.read(target, start + target.position()) >= 0) {
+                    //直到读满
+                }
+            }
+        }
+        int size = bytes.length;
+        while (size > 0 && (bytes[size - 1] == '\n' || bytes[size - 1] == '\r')) {
+            size--;
+        }
+        return new String(bytes, 0, size, StandardCharsets.UTF_8);
+    }
+}
@@ -21,10 +21,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -37,6 +35,7 @@ public class CsvReader implements DataReader {
     private static final Logger logger = LoggerFactory.getLogger(CsvReader.class);
     private static final String DELIMITER = ",";
     private static final String zeroS = "0";
+    private static final String COLUMNAR_DIR = ".columnar";
 
     private DataSourceConfig dataSourceConfig;
 
@@ -56,6 +55,20 @@ public class CsvReader implements DataReader {
         return loadData(path);
     }
 
+    /**
+     * 将训练文件转换为列式格式（已转换且源文件未变化时直接打开），
+     * 列式数据保存在训练文件所在目录的 .columnar 子目录下
+     *
+     * @param config 数据源配置
+     * @return 列式数据，文件含非数值列等无法转换时返回 null
+     */
+    public ColumnarStore loadColumnar(DataSourceConfig config) {
+        CsvSourceConfig csvConfig = (CsvSourceConfig) config;
+        String basePath = csvConfig.getTrainBase();
+        String dataFileName = csvConfig.getDataName();
+        return ColumnarStore.openOrBuild(basePath + dataFileName, Paths.get(basePath, COLUMNAR_DIR, dataFileName));
+    }
+
     public String[][] loadData(String path) {
         int cnt = 0;
         //从文件中加载数据，第一行是feature 名称，第一列是用户uid，(如果有label的话)最后一列是label
@@ -115,22 +128,21 @@ public class CsvReader implements DataReader {
         return loadData(path, uid);
     }
 
+    /**
+     * 根据uid列表从文件中加载数据，通过 {@link CsvIndex} 直接定位到所需行，结果按文件中的行顺序返回
+     */
     public String[][] loadData(String path, String[] uid) {
-        //根据uid列表，从文件中加载数据，
-        Set<String> uidSet = Stream.of(uid).collect(Collectors.toSet());
         List<String[]> r = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8))) {
-            String line = br.readLine();
-            if (null != line) {
-                String[] headers = line.split(DELIMITER);
-                r.add(headers);
+        try {
+            CsvIndex index = CsvIndex.of(path);
+            if (index.numLines() == 0) {
+                return new String[0][];
             }
-            while ((line = br.readLine()) != null) {
-                String[] strs = line.split(DELIMITER);
-                //caution 此处默认第一列是uid列
-                if (uidSet.contains(strs[0])) {
-                    r.add(strs);
-                }
+            r.add(index.readLine(0).split(DELIMITER));
+            //caution 此处默认第一列是uid列
+            int[] lines = Stream.of(uid).distinct().mapToInt(index::lineOf).filter(line -> line > 0).sorted().toArray();
+            for (int line : lines) {
+                r.add(index.readLine(line).split(DELIMITER));
             }
         } catch (Exception e) {
             logger.error("load inference error:", e);
@@ -205,32 +217,21 @@ public class CsvReader implements DataReader {
         CsvSourceConfig csvSourceConfig = (CsvSourceConfig) this.dataSourceConfig;
         String basePath = csvSourceConfig.getTrainBase();
         String path = basePath + dataset;
-        List<String[]> r = new ArrayList<>();
-        InputStream inputStream = new FileInputStream(path);
-        try (Reader in = new InputStreamReader(inputStream, StandardCharsets.UTF_8); LineNumberReader reader = new LineNumberReader(in)) {
-            // 获取文件总行数
-            Long lineConut = getLineConut(path);
-            int i = 0;
-            for (int lineNumber : seeksList) {
-                if (lineNumber < 0 || lineNumber > lineConut) {
-                    logger.error("不在文件的行数范围之内。");
-                } else {
-                    String lineStr;
-                    while ((lineStr = reader.readLine()) != null) {
-                        int nowLine = i;
-                        i++;
-                        if (lineNumber == nowLine) {
-                            String[] selectArray = lineStr.split(DELIMITER);
-                            r.add(selectArray);
-                            break;
-                        }
-
-                    }
+        return readLines(path, seeksList).toArray(new String[0][]);
+    }
 
-                }
+    //按行号（第0行为表头）通过索引直接读取，超出文件范围的行号跳过
+    private static List<String[]> readLines(String path, List<Integer> lineNumbers) throws IOException {
+        CsvIndex index = CsvIndex.of(path);
+        List<String[]> r = new ArrayList<>(lineNumbers.size());
+        for (int lineNumber : lineNumbers) {
+            if (lineNumber < 0 || lineNumber >= index.numLines()) {
+                logger.error("不在文件的行数范围之内。");
+            } else {
+                r.add(index.readLine(lineNumber).split(DELIMITER));
             }
         }
-        return r.toArray(new String[r.size()][]);
+        return r;
     }
 
     @Override
@@ -238,31 +239,8 @@ public class CsvReader implements DataReader {
         CsvSourceConfig csvSourceConfig = (CsvSourceConfig) this.dataSourceConfig;
         String basePath = csvSourceConfig.getTrainBase();
         String path = basePath + dataset;
-        List<String[]> r = new ArrayList<>();
-        InputStream inputStream = new FileInputStream(path);
         long allS = System.currentTimeMillis();
-        try (Reader in = new InputStreamReader(inputStream, StandardCharsets.UTF_8); LineNumberReader reader = new LineNumberReader(in)) {
-            // 获取文件总行数
-            Long lineConut = getLineConut(path);
-            int i = 0;
-            for (int lineNumber : rows) {
-                if (lineNumber < 0 || lineNumber > lineConut) {
-                    logger.error("不在文件的行数范围之内。");
-                } else {
-                    String lineStr;
-                    while ((lineStr = reader.readLine()) != null) {
-                        int nowLine = i;
-                        i++;
-                        if (lineNumber == nowLine) {
-                            String[] selectArray = lineStr.split(DELIMITER);
-                            r.add(selectArray);
-                            break;
-                        }
-                    }
-
-                }
-            }
-        }
+        List<String[]> r = readLines(path, rows);
         String[][] res = r.toArray(new String[r.size()][]);
         long t = System.currentTimeMillis();
         logger.info("load cost : " + (t-allS));
@@ -295,21 +273,4 @@ public class CsvReader implements DataReader {
         }
         return res;
     }
-    /**
-     * 计算文件总行数
-     *
-     * @param filePath
-     * @return
-     */
-    private static Long getLineConut(String filePath) {
-        Long lines = null;
-        try {
-            lines = Files.lines(Paths.get(new File(filePath).getPath())).count();
-            logger.info("linesCount：" + lines);
-        } catch (IOException e) {
-            logger.error("读取文件行数失败", e);
-        }
-        System.out.println(lines);
-        return lines;
-    }
 }
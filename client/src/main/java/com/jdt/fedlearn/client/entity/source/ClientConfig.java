@@ -22,6 +22,8 @@ public class ClientConfig {
     private String nettyIp;
     private int nettyPort;
     private String networkType;
+    //模型缓存大小，单位MB，0 表示使用默认值
+    private long modelCacheSize;
 
 
     public ClientConfig() {
@@ -175,4 +177,12 @@ public class ClientConfig {
     public void setNetworkType(String networkType) {
         this.networkType = networkType;
     }
+
+    public long getModelCacheSize() {
+        return modelCacheSize;
+    }
+
+    public void setModelCacheSize(long modelCacheSize) {
+        this.modelCacheSize = modelCacheSize;
+    }
 }
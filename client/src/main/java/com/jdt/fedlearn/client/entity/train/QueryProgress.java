@@ -23,6 +23,8 @@ import java.io.IOException;
 public class QueryProgress {
     private static final Logger logger = LoggerFactory.getLogger(QueryProgress.class);
     private String stamp;
+    //长轮询等待时间（毫秒），结果未完成时最多等待这么久再返回
+    private long wait;
 
     public QueryProgress(String jsonStr) {
         parseJson(jsonStr);
@@ -39,6 +41,14 @@ public class QueryProgress {
         this.stamp = stamp;
     }
 
+    public long getWait() {
+        return wait;
+    }
+
+    public void setWait(long wait) {
+        this.wait = wait;
+    }
+
 
     public void parseJson(String jsonStr) {
         ObjectMapper mapper = new ObjectMapper();
@@ -46,6 +56,7 @@ public class QueryProgress {
         try {
             p1r = mapper.readValue(jsonStr, QueryProgress.class);
             this.stamp = p1r.stamp;
+            this.wait = p1r.wait;
         } catch (IOException e) {
             logger.error("parse json error: ", e);
             throw new DeserializeException(this.getClass().getName());
@@ -52,10 +52,12 @@ public class TrainProcess implements Runnable {
             String strMessage =  Constant.serializer.serialize(trainResult);
             ModelCache modelCache = ModelCache.getInstance();
             modelCache.put(modelToken, model);
-            TrainService.responseQueue.put(stamp, strMessage);
+            TrainService.putResponse(stamp, strMessage);
         } catch (Exception e) {
             logger.error(" phase: " + this.phase + " + modeltoken: " + this.modelToken + " stemp : " + this.stamp);
             logger.error("train process error:", e);
+            //训练失败的模型无法继续使用，不再常驻内存
+            ModelCache.getInstance().release(modelToken);
         }
     }
 
@@ -17,6 +17,7 @@ import com.jd.blockchain.ledger.TypedKVEntry;
 import com.jdt.fedlearn.client.cache.TrainDataCache;
 import com.jdt.fedlearn.client.cache.ModelCache;
 import com.jdt.fedlearn.client.constant.Constant;
+import com.jdt.fedlearn.client.dao.ColumnarStore;
 import com.jdt.fedlearn.client.dao.CsvReader;
 import com.jdt.fedlearn.client.dao.IdMatchProcessor;
 import com.jdt.fedlearn.client.entity.train.QueryProgress;
@@ -61,6 +62,10 @@ public class TrainService {
     private static final Map<String, TrainData> dataMap = new ConcurrentHashMap<>();
     //    public static Map<String, SubRequest> requestQueue = new ConcurrentSkipListMap<>();
     public static Map<String, String> responseQueue = new ConcurrentSkipListMap<>();
+    //等待训练结果的长轮询请求，结果写入 responseQueue 时立即唤醒
+    private static final Map<String, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>();
+    //长轮询最长挂起时间（毫秒），需小于 jetty 连接默认空闲超时（30s），否则连接会在返回前被关闭
+    private static final long MAX_QUERY_WAIT = 20000L;
     //TODO 此处需要入参队列和出餐队列
     //TODO 文件初始化即加载，且不区分算法
     private static INetWorkService netWorkService = INetWorkService.getNetWorkService();
@@ -99,11 +104,16 @@ public class TrainService {
                 String dataset = trainRequest.getDataset();
                 logger.info("dataset:" + dataset);
                 String[][] trainPara = null;
+                ColumnarStore columnarData = null;
                 if (FileUtil.isFile(dataset)) {
                     CsvReader csvReader = new CsvReader();
                     trainPara = csvReader.loadData(dataset);
                 } else {
-                    trainPara = TrainDataCache.getTrainData(modelToken, dataset);
+                    //csv 数据源优先使用列式数据，无法转换时回退到字符串表
+                    columnarData = TrainDataCache.getColumnarData(dataset);
+                    if (columnarData == null) {
+                        trainPara = TrainDataCache.getTrainData(modelToken, dataset);
+                    }
                 }
 
                 Map<String, Object> others = trainInit.getOthers();
@@ -117,7 +127,12 @@ public class TrainService {
                 }
                 // TODO 此时mappingResult应该是在client端，解密的状态
                 int[] testIndex = trainInit.getTestIndex();
-                TrainData trainData = localModel.trainInit(trainPara, mappingResult, testIndex, hyperParameter, features, others);
+                TrainData trainData;
+                if (columnarData != null) {
+                    trainData = localModel.trainInit(columnarData, mappingResult, testIndex, hyperParameter, features, others);
+                } else {
+                    trainData = localModel.trainInit(trainPara, mappingResult, testIndex, hyperParameter, features, others);
+                }
                 dataMap.put(modelToken, trainData);
                 String data = AppConstant.INIT_SUCCESS;
                 if (flag) {
@@ -137,9 +152,13 @@ public class TrainService {
         logger.info("status:" + status);
         //收到暂停或终止的信号模型保存本地
         if (status.equals(RunningType.SUSPEND)) {
+            //保存后模型可以被淘汰，恢复训练时从文件加载
+            modelCache.forceToFile(modelToken);
             result = RunningType.SUSPEND.getRunningType();
         } else if (status.equals(RunningType.STOP)) {
             //停止
+            modelCache.forceToFile(modelToken);
+            dataMap.remove(modelToken);
             result = RunningType.STOP.getRunningType();
             logger.info("stop is success");
         } else if (status.equals(RunningType.COMPLETE)) {
@@ -224,15 +243,36 @@ public class TrainService {
     }
 
 
+    /**
+     * 写入异步训练结果，并通知正在等待该结果的查询请求
+     *
+     * @param stamp  异步任务标识
+     * @param result 序列化后的训练结果
+     */
+    public static void putResponse(String stamp, String result) {
+        responseQueue.put(stamp, result);
+        CompletableFuture<Void> waiter = waiters.remove(stamp);
+        if (waiter != null) {
+            waiter.complete(null);
+        }
+    }
+
+    /**
+     * 查询异步训练结果，请求中带有等待时间时，结果未完成则挂起直到结果写入或超时，
+     * 避免协调端按固定间隔轮询带来的空等
+     */
     public Map<String, Object> queryProgress(QueryProgress query) {
         Map<String, Object> modelMap = new HashMap<>();
         String stamp = query.getStamp();
-        if (TrainService.responseQueue.containsKey(stamp)) {
+        if (query.getWait() > 0 && !responseQueue.containsKey(stamp)) {
+            awaitResponse(stamp, Math.min(query.getWait(), MAX_QUERY_WAIT));
+        }
+        // 释放内存, 清除存放的异步结果
+        String data = responseQueue.remove(stamp);
+        if (data != null) {
             modelMap.put(ResponseConstant.CODE, ResponseConstant.SUCCESS_CODE);
             modelMap.put(ResponseConstant.STATUS, ResponseConstant.COMPLETE);
-            modelMap.put(ResponseConstant.DATA, TrainService.responseQueue.get(stamp));
-            // 释放内存, 清除存放的异步结果
-            TrainService.responseQueue.remove(stamp);
+            modelMap.put(ResponseConstant.DATA, data);
         } else {
             modelMap.put(ResponseConstant.CODE, ResponseConstant.DOING_CODE);
             modelMap.put(ResponseConstant.STATUS, ResponseConstant.DOING);
@@ -240,5 +280,23 @@ public class TrainService {
         return modelMap;
     }
 
+    private static void awaitResponse(String stamp, long wait) {
+        CompletableFuture<Void> waiter = waiters.computeIfAbsent(stamp, k -> new CompletableFuture<>());
+        try {
+            //注册后再检查一次，避免结果在注册前写入而错过通知
+            if (!responseQueue.containsKey(stamp)) {
+                waiter.get(wait, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            logger.info("train result not ready in " + wait + "ms, stamp:" + stamp);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("await train result error: ", e);
+        } finally {
+            waiters.remove(stamp, waiter);
+        }
+    }
+
 
 }
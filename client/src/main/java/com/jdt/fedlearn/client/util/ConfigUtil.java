@@ -52,6 +52,8 @@ public class ConfigUtil {
     private static final String NETTY_IP = "netty.server.ip";
     private static final String NETTY_PORT = "netty.server.port";
     private static final String NETWORK_TYPE = "network.type";
+    //可选参数，模型缓存大小，单位MB
+    private static final String MODEL_CACHE_SIZE = "model.cache.size";
 
 
     /**
@@ -110,6 +112,10 @@ public class ConfigUtil {
         clientConfig.setMatchDir(properties.getProperty(MATCH_DIR));
         clientConfig.setAllowTrainUid(Boolean.parseBoolean(properties.getProperty(INFERENCE_ALLOW_TRAIN_UID)));
         clientConfig.setMasterBelong(properties.getProperty(MASTER_BELONG));
+        String modelCacheSize = properties.getProperty(MODEL_CACHE_SIZE);
+        if (modelCacheSize != null && !modelCacheSize.trim().isEmpty()) {
+            clientConfig.setModelCacheSize(Long.parseLong(modelCacheSize.trim()));
+        }
 
         return clientConfig;
     }
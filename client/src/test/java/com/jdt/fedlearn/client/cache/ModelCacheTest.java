@@ -1,25 +1,98 @@
 package com.jdt.fedlearn.client.cache;
 
 import com.jdt.fedlearn.core.model.Model;
-import com.jdt.fedlearn.core.type.data.Tuple2;
+import com.jdt.fedlearn.core.model.VerticalLRModel;
+import org.testng.Assert;
+import org.testng.annotations.Test;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ModelCacheTest {
-    public static void main(String[] args) {
-        int capacity = 10;
-        Set<String> tokenSet = new HashSet<>();
-        tokenSet.add("1");
-//        tokenSet.add("2");
-//        tokenSet.add("3");
-//        tokenSet.add("4");
-//        tokenSet.add("5");
-
-        List<String> needToLoad = tokenSet.stream().limit(capacity).collect(Collectors.toList());
-        System.out.println(needToLoad.size());
-
-        Queue<Tuple2<String, Model>> modelQueue = new LinkedList<>();
-        System.out.println(modelQueue.size());
+    private final List<String> tokens = Arrays.asList("a", "b", "c");
+
+    //每个模型权重为10，最多容纳2个
+    private ModelCache newCache(AtomicInteger loads) {
+        return new ModelCache(20, token -> {
+            loads.incrementAndGet();
+            return new VerticalLRModel();
+        }, token -> 10, Runnable::run, tokens);
+    }
+
+    @Test
+    public void lruEviction() {
+        AtomicInteger loads = new AtomicInteger();
+        ModelCache cache = newCache(loads);
+        Model a = cache.get("a");
+        Assert.assertNotNull(a);
+        Assert.assertNotNull(cache.get("b"));
+        //访问a之后，b是最久未访问的
+        Assert.assertSame(cache.get("a"), a);
+        Assert.assertNotNull(cache.get("c"));
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+        Assert.assertSame(cache.get("a"), a);
+        Assert.assertEquals(loads.get(), 3);
+        cache.get("b");
+        Assert.assertEquals(loads.get(), 4);
+        Assert.assertEquals(cache.getLoadCount(), 4);
+        Assert.assertEquals(cache.getHitCount(), 2);
+        Assert.assertEquals(cache.getMissCount(), 4);
+    }
+
+    @Test
+    public void pinnedNotEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+        ModelCache cache = newCache(loads);
+        Model training = new VerticalLRModel();
+        cache.put("train", training);
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+        Assert.assertSame(cache.get("train"), training);
+        Assert.assertTrue(cache.contain("train"));
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+    }
+
+    @Test
+    public void releaseUnsaved() {
+        AtomicInteger loads = new AtomicInteger();
+        ModelCache cache = newCache(loads);
+        Model training = new VerticalLRModel();
+        cache.put("train", training);
+        Assert.assertTrue(cache.release("train"));
+        Assert.assertFalse(cache.release("train"));
+        //已从文件加载的模型不受影响
+        Model a = cache.get("a");
+        Assert.assertFalse(cache.release("a"));
+        Assert.assertSame(cache.get("a"), a);
+        Assert.assertNotSame(cache.get("train"), training);
+    }
+
+    @Test
+    public void unknownToken() {
+        AtomicInteger loads = new AtomicInteger();
+        ModelCache cache = newCache(loads);
+        Assert.assertNull(cache.get("d"));
+        Assert.assertEquals(loads.get(), 0);
+    }
+
+    @Test
+    public void singleFlightLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        ModelCache cache = new ModelCache(20, token -> {
+            loads.incrementAndGet();
+            return new VerticalLRModel();
+        }, token -> 10, tasks::add, tokens);
+        CompletableFuture<Model> first = cache.getAsync("a");
+        CompletableFuture<Model> second = cache.getAsync("a");
+        Assert.assertSame(first, second);
+        Assert.assertEquals(tasks.size(), 1);
+        tasks.poll().run();
+        Assert.assertSame(first.join(), cache.get("a"));
+        Assert.assertEquals(loads.get(), 1);
     }
 }
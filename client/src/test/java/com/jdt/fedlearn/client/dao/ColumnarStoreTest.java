@@ -0,0 +1,49 @@
+package com.jdt.fedlearn.client.dao;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ColumnarStoreTest {
+
+    @Test
+    public void buildAndOpen() throws IOException {
+        Path base = Files.createTempDirectory("columnar");
+        Path csv = base.resolve("train.csv");
+        Files.write(csv, "uid,x1,x2,y\na,1,2.5,0\nb,3,-4,1\n".getBytes(StandardCharsets.UTF_8));
+        Path dir = base.resolve(".columnar").resolve("train.csv");
+
+        ColumnarStore store = ColumnarStore.openOrBuild(csv.toString(), dir);
+        Assert.assertNotNull(store);
+        Assert.assertEquals(store.getHeader(), new String[]{"uid", "x1", "x2", "y"});
+        Assert.assertEquals(store.numRows(), 2);
+        Assert.assertEquals(store.getUid(1), "b");
+        Assert.assertEquals(store.get(2, 0), 2.5);
+        Assert.assertEquals(store.get(2, 1), -4.0);
+        Assert.assertEquals(store.columnIndex("y"), 3);
+        Assert.assertEquals(store.toRows()[1], new String[]{"a", "1", "2.5", "0"});
+        Assert.assertEquals(store.toRows()[2], new String[]{"b", "3", "-4", "1"});
+
+        // 源文件变化后重建
+        Files.write(csv, "uid,x1,x2,y\na,1,2.5,0\nb,3,-4,1\nc,5,6,0\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(csv.toFile().setLastModified(System.currentTimeMillis() + 1000));
+        ColumnarStore rebuilt = ColumnarStore.openOrBuild(csv.toString(), dir);
+        Assert.assertNotNull(rebuilt);
+        Assert.assertEquals(rebuilt.numRows(), 3);
+        Assert.assertEquals(rebuilt.get(1, 2), 5.0);
+    }
+
+    @Test
+    public void nonNumericNotConverted() throws IOException {
+        Path base = Files.createTempDirectory("columnar");
+        Path csv = base.resolve("train.csv");
+        Files.write(csv, "uid,x1,city\na,1,beijing\n".getBytes(StandardCharsets.UTF_8));
+        Path dir = base.resolve(".columnar").resolve("train.csv");
+        Assert.assertNull(ColumnarStore.openOrBuild(csv.toString(), dir));
+        Assert.assertFalse(Files.exists(dir));
+    }
+}
@@ -0,0 +1,69 @@
+package com.jdt.fedlearn.client.dao;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CsvIndexTest {
+
+    @Test
+    public void lookupAndReadLine() throws IOException {
+        Path base = Files.createTempDirectory("csvIndex");
+        Path csv = base.resolve("inference.csv");
+        Files.write(csv, "uid,x1,x2\r\na,1,2\r\nb,3,4\r\na,5,6\r\nc,7,8".getBytes(StandardCharsets.UTF_8));
+
+        CsvIndex index = CsvIndex.of(csv.toString());
+        Assert.assertEquals(index.numLines(), 5);
+        Assert.assertEquals(index.readLine(0), "uid,x1,x2");
+        Assert.assertEquals(index.lineOf("b"), 2);
+        Assert.assertEquals(index.lineOf("a"), 1);
+        Assert.assertEquals(index.lineOf("uid"), -1);
+        Assert.assertEquals(index.lineOf("d"), -1);
+        Assert.assertEquals(index.readLine(4), "c,7,8");
+        Assert.assertTrue(Files.exists(base.resolve(".index").resolve("inference.csv.idx")));
+
+        String[][] res = new CsvReader().loadData(csv.toString(), new String[]{"c", "b", "d"});
+        Assert.assertEquals(res.length, 3);
+        Assert.assertEquals(res[0], new String[]{"uid", "x1", "x2"});
+        Assert.assertEquals(res[1], new String[]{"b", "3", "4"});
+        Assert.assertEquals(res[2], new String[]{"c", "7", "8"});
+    }
+
+    @Test
+    public void rebuildAfterChange() throws IOException {
+        Path base = Files.createTempDirectory("csvIndex");
+        Path csv = base.resolve("inference.csv");
+        Files.write(csv, "uid,x1\na,1\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(CsvIndex.of(csv.toString()).lineOf("b"), -1);
+
+        Files.write(csv, "uid,x1\na,1\nb,2\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(csv.toFile().setLastModified(System.currentTimeMillis() + 1000));
+        CsvIndex index = CsvIndex.of(csv.toString());
+        Assert.assertEquals(index.numLines(), 3);
+        Assert.assertEquals(index.readLine(index.lineOf("b")), "b,2");
+    }
+
+    @Test
+    public void boundedAndDropDeleted() throws IOException {
+        Path base = Files.createTempDirectory("csvIndex");
+        for (int i = 0; i < 20; i++) {
+            Path csv = base.resolve("inference" + i + ".csv");
+            Files.write(csv, ("uid,x1\na," + i + "\n").getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(CsvIndex.of(csv.toString()).lineOf("a"), 1);
+        }
+        Assert.assertTrue(CsvIndex.cachedIndexes() <= 16);
+
+        Path csv = base.resolve("inference19.csv");
+        Files.delete(csv);
+        try {
+            CsvIndex.of(csv.toString());
+            Assert.fail("deleted file should not be served from the cache");
+        } catch (IOException e) {
+            Assert.assertTrue(CsvIndex.cachedIndexes() < 16);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.jdt.fedlearn.client.service;
 
+import com.jdt.fedlearn.client.entity.train.QueryProgress;
+import com.jdt.fedlearn.common.constant.ResponseConstant;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.*;
@@ -27,4 +30,32 @@ public class TrainServiceTest {
             System.out.println(modelToken);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void queryProgressLongPoll() throws InterruptedException {
+        TrainService trainService = new TrainService();
+        QueryProgress query = new QueryProgress();
+        query.setStamp("stamp-long-poll");
+        query.setWait(10000L);
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            TrainService.putResponse("stamp-long-poll", "result");
+        });
+        producer.start();
+        long start = System.currentTimeMillis();
+        Map<String, Object> res = trainService.queryProgress(query);
+        Assert.assertTrue(System.currentTimeMillis() - start < 10000L);
+        Assert.assertEquals(res.get(ResponseConstant.STATUS), ResponseConstant.COMPLETE);
+        Assert.assertEquals(res.get(ResponseConstant.DATA), "result");
+        Assert.assertFalse(TrainService.responseQueue.containsKey("stamp-long-poll"));
+        producer.join();
+
+        query.setWait(0L);
+        Map<String, Object> doing = trainService.queryProgress(query);
+        Assert.assertEquals(doing.get(ResponseConstant.STATUS), ResponseConstant.DOING);
+    }
+}
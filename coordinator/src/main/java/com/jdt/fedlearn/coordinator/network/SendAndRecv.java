@@ -46,6 +46,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -57,7 +59,20 @@ public class SendAndRecv {
     private static final Logger logger = LoggerFactory.getLogger(SendAndRecv.class);
     private static final List<String> SUPPORT_PROTOCOL = Arrays.asList("http", "https");
     private static final int RETRY = 3;
+    //查询异步训练结果时客户端最长挂起时间（毫秒），需小于客户端 jetty 连接默认空闲超时（30s）
+    private static final long QUERY_WAIT = 20000L;
     private static final Serializer serializer = new JavaSerializer();
+    //训练请求并行分发的线程池，有界队列满时由调用线程直接执行，不会拒绝请求
+    private static final int BROADCAST_THREADS = 64;
+    private static final ThreadPoolExecutor BROADCAST_POOL = createBroadcastPool();
+
+    private static ThreadPoolExecutor createBroadcastPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(BROADCAST_THREADS, BROADCAST_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(BROADCAST_THREADS * 4), new BroadcastThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
 
     private static INetWorkService getNetWorkService() {
         String networkType = ConfigUtil.getNetworkType();
@@ -271,19 +286,21 @@ public class SendAndRecv {
      */
     public static List<CommonResponse> broadcastTrain(List<CommonRequest> requests, String modelToken, AlgorithmType algorithm,
                                                       RunningType status, String reqNum) {
-        List<CommonResponse> commonResponses = new ArrayList<>();
         int phase = requests.get(0).getPhase();
+        List<Future<CommonResponse>> futures = new ArrayList<>(requests.size());
         for (CommonRequest request : requests) {
-            String res = send(request.getClient(), modelToken, phase, algorithm, request.getBody(), status, request.isSync(), reqNum);
-            Message messageRes;
-            if (AppConstant.INIT_SUCCESS.equals(res)) {
-                messageRes = new SingleElement(res);
-            } else {
-                messageRes = serializer.deserialize(res);
-            }
-            commonResponses.add(new CommonResponse(request.getClient(), messageRes));
+            futures.add(BROADCAST_POOL.submit(() -> {
+                String res = send(request.getClient(), modelToken, phase, algorithm, request.getBody(), status, request.isSync(), reqNum);
+                Message messageRes;
+                if (AppConstant.INIT_SUCCESS.equals(res)) {
+                    messageRes = new SingleElement(res);
+                } else {
+                    messageRes = serializer.deserialize(res);
+                }
+                return new CommonResponse(request.getClient(), messageRes);
+            }));
         }
-        return commonResponses;
+        return collectInOrder(futures, requests);
     }
 
     /**
@@ -299,30 +316,85 @@ public class SendAndRecv {
      */
     public static List<CommonResponse> broadcastTrain(List<CommonRequest> requests, String modelToken, AlgorithmType algorithm,
                                                       RunningType status, String reqNum, List<String> dataset) {
-        List<CommonResponse> commonResponses = new ArrayList<>();
         int phase = requests.get(0).getPhase();
+        List<Future<CommonResponse>> futures = new ArrayList<>(requests.size());
         for (int i = 0; i < requests.size(); i++) {
             CommonRequest request = requests.get(i);
-            // master端将request分发给各个client端
-            String res = send(request.getClient(), modelToken, phase, algorithm, request.getBody(), status, request.isSync(), reqNum, dataset.get(i));
-//            logger.info("response : " + res);
-            Message messageRes;
-            if (AppConstant.INIT_SUCCESS.equals(res)) {
-                messageRes = new SingleElement(res);
-            } else if (AppConstant.INIT_FAILED.equals(res)) {
-                logger.error("初始化失败");
-                throw new UnsupportedOperationException("初始化失败");
-            } else if ("init_failed, 协调端需要与有y值的客户端部署在同一方".equals(res)) {
-                logger.error("初始化失败， 协调端需要与有y值的客户端部署在一方");
-                throw new UnsupportedOperationException("初始化失败， 协调端需要与有y值的客户端部署在一方");
-            } else {
-                messageRes = serializer.deserialize(res);
+            String clientDataset = dataset.get(i);
+            // master端将request并行分发给各个client端
+            futures.add(BROADCAST_POOL.submit(() -> {
+                String res = send(request.getClient(), modelToken, phase, algorithm, request.getBody(), status, request.isSync(), reqNum, clientDataset);
+                Message messageRes;
+                if (AppConstant.INIT_SUCCESS.equals(res)) {
+                    messageRes = new SingleElement(res);
+                } else if (AppConstant.INIT_FAILED.equals(res)) {
+                    logger.error("初始化失败");
+                    throw new UnsupportedOperationException("初始化失败");
+                } else if ("init_failed, 协调端需要与有y值的客户端部署在同一方".equals(res)) {
+                    logger.error("初始化失败， 协调端需要与有y值的客户端部署在一方");
+                    throw new UnsupportedOperationException("初始化失败， 协调端需要与有y值的客户端部署在一方");
+                } else {
+                    messageRes = serializer.deserialize(res);
+                }
+                return new CommonResponse(request.getClient(), messageRes);
+            }));
+        }
+        return collectInOrder(futures, requests);
+    }
+
+    /**
+     * 按客户端顺序等待并收集各个请求的结果，整轮耗时取决于最慢的客户端而不是所有客户端之和。
+     * 任一客户端失败或超时时取消其余请求并抛出异常，与串行发送时的行为一致。
+     * 取消会中断正在执行的发送线程，sendWithRetry 不再重试；已阻塞在网络读写中的单次请求
+     * 是否立即返回取决于底层 http 客户端，最迟在其自身超时后释放线程
+     *
+     * @param futures  与 requests 一一对应的异步请求
+     * @param requests 原始请求，用于日志
+     * @return 与 requests 顺序一致的返回结果
+     */
+    private static List<CommonResponse> collectInOrder(List<Future<CommonResponse>> futures, List<CommonRequest> requests) {
+        long timeout = ConfigUtil.getTrainTimeout();
+        long deadline = System.currentTimeMillis() + timeout;
+        List<CommonResponse> commonResponses = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                if (timeout > 0) {
+                    long remaining = Math.max(deadline - System.currentTimeMillis(), 0L);
+                    commonResponses.add(futures.get(i).get(remaining, TimeUnit.MILLISECONDS));
+                } else {
+                    commonResponses.add(futures.get(i).get());
+                }
+            } catch (TimeoutException e) {
+                futures.forEach(f -> f.cancel(true));
+                logger.error("client " + requests.get(i).getClient() + " not response in " + timeout + "ms");
+                throw new RuntimeException("train request timeout, client: " + requests.get(i).getClient());
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("broadcast train interrupted");
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException(cause);
             }
-            commonResponses.add(new CommonResponse(request.getClient(), messageRes));
         }
         return commonResponses;
     }
 
+    private static class BroadcastThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "broadcast-train-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
     /**
      * @param client      客户端地址
      * @param modelToken  模型唯一识别码
@@ -450,21 +522,26 @@ public class SendAndRecv {
     }
 
 
-    //轮询客户端计算是否完成，完成后取回数据
+    /**
+     * 长轮询客户端计算是否完成，客户端在结果产生时立即返回，完成后取回数据。
+     * 对不支持长轮询、立即返回进行中的一端，退回到递增间隔轮询
+     */
     public static String queryAndFetch(ClientInfo client, String stamp) throws InterruptedException, IOException {
         String response = "";
         int i = 0;
         do {
-            if (i > 0 && i < 30) {
-                Thread.sleep(1000L * i);
-            }
             logger.info("client is:" + client.toString() + " stamp:" + stamp);
             String url = client.url() + RequestConstant.TRAIN_PROGRESS_QUERY;
             Map<String, Object> context = new HashMap<>();
             context.put("stamp", stamp);
+            context.put("wait", QUERY_WAIT);
+            long start = System.currentTimeMillis();
             String result = getNetWorkService().sendAndRecv(url, context);
             response = GZIPCompressUtil.unCompress(result);
-            i = i + 1;
+            if (response.contains(ResponseConstant.DOING) && System.currentTimeMillis() - start < QUERY_WAIT / 2) {
+                i = i + 1;
+                Thread.sleep(1000L * Math.min(i, 29));
+            }
         } while (response.contains(ResponseConstant.DOING));
         Map resJson = JsonUtil.json2Object(response, Map.class);
         return (String) resJson.get(ResponseConstant.DATA);
@@ -496,6 +573,11 @@ public class SendAndRecv {
         int retryThreshold = RETRY;
 
         for (int i = 0; i < retryThreshold; i++) {
+            //广播被取消时不再发起新的请求
+            if (Thread.currentThread().isInterrupted()) {
+                logger.info("request cancelled: " + url);
+                throw new CancellationException("request cancelled: " + url);
+            }
             long s3 = System.currentTimeMillis();
             String subRes = getNetWorkService().sendAndRecv(url, context);
             logger.info("请求地址：{}", url);
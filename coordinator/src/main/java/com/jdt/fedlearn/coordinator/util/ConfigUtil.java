@@ -140,4 +140,14 @@ public class ConfigUtil {
         return type;
     }
 
+    /**
+     * @return 单个客户端训练请求的超时时间（毫秒），未配置或不大于0时不限制
+     */
+    public static long getTrainTimeout() {
+        if (properties == null || properties.getProperty("train.timeout") == null) {
+            return 0L;
+        }
+        return Long.parseLong(properties.getProperty("train.timeout").trim());
+    }
+
 }
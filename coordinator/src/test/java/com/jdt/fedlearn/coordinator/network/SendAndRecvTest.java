@@ -133,6 +133,26 @@ public class SendAndRecvTest {
 
     }
 
+    @Test
+    public void TestBroadCastTrainMultiClient() {
+        // 多个客户端并行发送，返回结果需与请求顺序一致
+        MockPostData(0);
+        List<CommonRequest> requests = new ArrayList<>();
+        List<String> dataset = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ClientInfo client = new ClientInfo("1.0.0." + (i + 2), 8050 + i, "http");
+            requests.add(new CommonRequest(client, new BoostP1Req(client, true)));
+            dataset.add("dataset" + i + ".csv");
+        }
+        List<CommonResponse> responses = SendAndRecv.broadcastTrain(requests, modelToken, AlgorithmType.FederatedGB,
+                RunningType.RUNNING, "1", dataset);
+        Assert.assertEquals(responses.size(), requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Assert.assertEquals(responses.get(i).getClient(), requests.get(i).getClient());
+            Assert.assertEquals(((SingleElement) responses.get(i).getBody()).getElement(), "init_success");
+        }
+    }
+
     @Test
     public void testSendInference() throws IOException {
         MockPostData(3);
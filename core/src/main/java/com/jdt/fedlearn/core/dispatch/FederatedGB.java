@@ -37,7 +37,6 @@ import com.jdt.fedlearn.core.type.FGBDispatchPhaseType;
 import com.jdt.fedlearn.core.type.MetricType;
 import com.jdt.fedlearn.core.type.ObjectiveType;
 import com.jdt.fedlearn.core.type.data.Pair;
-import com.jdt.fedlearn.core.type.data.Tuple2;
 import com.jdt.fedlearn.core.util.Tool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -266,6 +265,8 @@ public class FederatedGB implements Control {
             if (!client.equals(res.getClient())) {
                 EncryptedGradHess req = new EncryptedGradHess(client, res.getInstanceSpace(), res.getGh(), res.getPubKey(), res.getNewTree());
                 req.setWorkerNum(encryptedGradHess.getWorkerNum());
+                req.setNodeIndex(res.getNodeIndex());
+                req.setPackedGh(res.getPackedGh());
                 request.setBody(req);
             }
             request.setPhase(2);
@@ -472,27 +473,41 @@ public class FederatedGB implements Control {
             }
         } else {
             // queryTree不是null return null
-            updateParameter2(responses);
+            if (responses.stream().anyMatch(x -> x.getBody() instanceof BoostN2Res)) {
+                updateParameterBatch(responses);
+            } else {
+                updateParameter2(responses);
+            }
             if (isStopInference) {
                 return null;
             }
         }
-        //根据返回结果，构造下一次请求
-        Map<ClientInfo, List<int[]>> clientBoostN2ReqBodyMap2 =
-                IntStream.range(0, queryTree.size())
-                        .parallel()
-                        .boxed()
-                        .flatMap(j -> IntStream.range(0, idIndexArray.length)
-                                .parallel()
-                                .boxed()
-                                .filter(i -> !treeNodeMatrix[i][j].isLeaf) // 对于每一棵树，每一个需要推理的id筛选出来不是leaf的node
-                                .map(i -> new Tuple2<>(treeNodeMatrix[i][j].client, new int[]{i, j, treeNodeMatrix[i][j].recordId})))
-                        .collect(Collectors.groupingBy(Tuple2::_1, HashMap::new, Collectors.mapping(Tuple2::_2, Collectors.toList())));// Map<client, (uid_index, tree_index, recordId)>
-
-        List<CommonRequest> res = clientBoostN2ReqBodyMap2
+        //根据查询树构造批量请求，每个client只请求一次，包含其在所有树中负责的分裂节点
+        Map<String, TreeSet<Integer>> clientRecordIds = new HashMap<>();
+        Map<String, ClientInfo> clients = new HashMap<>();
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        queryTree.forEach(tree -> stack.push(tree.getRoot()));
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            if (node.isLeaf) {
+                continue;
+            }
+            String uniqueId = node.client.getUniqueId();
+            clients.putIfAbsent(uniqueId, node.client);
+            clientRecordIds.computeIfAbsent(uniqueId, k -> new TreeSet<>()).add(node.recordId);
+            if (node.leftChild != null) {
+                stack.push(node.leftChild);
+            }
+            if (node.rightChild != null) {
+                stack.push(node.rightChild);
+            }
+        }
+
+        List<CommonRequest> res = clientRecordIds
                 .entrySet()
-                .parallelStream()
-                .map(entry -> new CommonRequest(entry.getKey(), new Int2dArray(entry.getValue()), inferencePhase)) // entry value: (uid_index, tree_index, recordId)
+                .stream()
+                .map(entry -> new CommonRequest(clients.get(entry.getKey()),
+                        new BoostN2Req(entry.getValue().stream().mapToInt(Integer::intValue).toArray()), inferencePhase))
                 .collect(Collectors.toList());
 
         // treeNode 中的 client只包含uniqueId，需要把 client信息补上
@@ -505,6 +520,43 @@ public class FederatedGB implements Control {
         return res;
     }
 
+    //批量结果处理，根据各client返回的分裂方向，在本地走完每个样本在每棵树上的路径
+    private void updateParameterBatch(List<CommonResponse> responses) {
+        Map<String, BoostN2Res> clientRes = new HashMap<>();
+        Map<String, Map<Integer, Integer>> clientRecordIndex = new HashMap<>();
+        for (CommonResponse response : responses) {
+            if (!(response.getBody() instanceof BoostN2Res)) {
+                continue;
+            }
+            BoostN2Res body = (BoostN2Res) response.getBody();
+            String uniqueId = response.getClient().getUniqueId();
+            Map<Integer, Integer> recordIndex = new HashMap<>();
+            int[] recordIds = body.getRecordIds();
+            for (int k = 0; k < recordIds.length; k++) {
+                recordIndex.put(recordIds[k], k);
+            }
+            clientRes.put(uniqueId, body);
+            clientRecordIndex.put(uniqueId, recordIndex);
+        }
+
+        IntStream.range(0, treeNodeMatrix.length).parallel().forEach(i -> {
+            for (int j = 0; j < treeNodeMatrix[i].length; j++) {
+                TreeNode node = treeNodeMatrix[i][j];
+                while (!node.isLeaf) {
+                    String uniqueId = node.client.getUniqueId();
+                    Integer k = clientRecordIndex.getOrDefault(uniqueId, Collections.emptyMap()).get(node.recordId);
+                    if (k == null) {
+                        throw new NotMatchException("no split result from client " + uniqueId + " for record " + node.recordId);
+                    }
+                    node = clientRes.get(uniqueId).isRight(k, i) ? node.rightChild : node.leftChild;
+                }
+                treeNodeMatrix[i][j] = node;
+            }
+        });
+        isStopInference = true;
+        updateScores();
+    }
+
     //结果处理，score保存
     private void updateParameter2(List<CommonResponse> responses) {
         //更新存储在矩阵中的当前节点
@@ -539,14 +591,18 @@ public class FederatedGB implements Control {
         //矩阵中每个node都到达叶子节点意味着整个训练结束
         if (Arrays.stream(treeNodeMatrix).flatMap(Arrays::stream).allMatch(x -> x.isLeaf)) {
             isStopInference = true;
-            //开始处理score
-            final int rounds = (int) queryTree.size() / numClass;
-            double eta = parameter.getEta();
-            for (int i = 0; i < treeNodeMatrix.length; i++) {
-                TreeNode[] line = treeNodeMatrix[i];
-                scores[i] = IntStream.range(0, numClass).parallel().mapToDouble(classIndex -> (IntStream.range(0, rounds)
-                        .mapToDouble(j -> line[j * numClass + classIndex].leafScore).sum()) * eta + firstRoundPred).toArray();
-            }
+            updateScores();
+        }
+    }
+
+    //所有节点都已到达叶子节点，计算每个样本的score
+    private void updateScores() {
+        final int rounds = (int) queryTree.size() / numClass;
+        double eta = parameter.getEta();
+        for (int i = 0; i < treeNodeMatrix.length; i++) {
+            TreeNode[] line = treeNodeMatrix[i];
+            scores[i] = IntStream.range(0, numClass).parallel().mapToDouble(classIndex -> (IntStream.range(0, rounds)
+                    .mapToDouble(j -> line[j * numClass + classIndex].leafScore).sum()) * eta + firstRoundPred).toArray();
         }
     }
 
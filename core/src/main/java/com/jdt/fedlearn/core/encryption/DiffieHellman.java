@@ -16,6 +16,7 @@ package com.jdt.fedlearn.core.encryption;
 import com.jdt.fedlearn.core.util.HashUtil;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Random;
 
 
@@ -49,26 +50,29 @@ public class DiffieHellman {
         return a2s.toString();
     }
 
+    /**
+     * 批量加密，g 与 random 的乘积只计算一次，各 uid 之间互不依赖，并行计算；结果与逐个调用 trans1 一致
+     */
     public static String[] trans1(String[] uidArray, BigInteger g, BigInteger n, BigInteger random)  {
-        String[] res = new String[uidArray.length];
-        for (int i = 0; i < res.length; i++) {
-            String singleUid = uidArray[i];
-            String singleRes = trans1(singleUid, g, n, random);
-            res[i] = singleRes;
-        }
-        return res;
+        BigInteger factor = g.multiply(random).mod(n);
+        return Arrays.stream(uidArray).parallel()
+                .map(uid -> HashUtil.md5(uid).multiply(factor).mod(n).toString())
+                .toArray(String[]::new);
     }
 
-
     public static String trans2(String cipherUid, BigInteger g, BigInteger n, BigInteger random) {
         BigInteger c = new BigInteger(cipherUid);
         BigInteger res2 = a1(c, n, random);
         return res2.toString();
     }
 
+    /**
+     * 批量二次加密，并行计算；结果与逐个调用 trans2 一致
+     */
     public static String[] trans2(String[] cipherUidArray, BigInteger g, BigInteger n, BigInteger random) {
-        String[] res = new String[cipherUidArray.length];
-        return res;
+        return Arrays.stream(cipherUidArray).parallel()
+                .map(cipherUid -> trans2(cipherUid, g, n, random))
+                .toArray(String[]::new);
     }
 
     public static BigInteger generateG(int bitLength,  int certainty){
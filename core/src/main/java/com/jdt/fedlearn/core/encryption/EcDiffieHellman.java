@@ -0,0 +1,111 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.encryption;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 基于椭圆曲线 P-256 的密钥交换变换，k<sub>A</sub>·(k<sub>B</sub>·H(ID)) = k<sub>B</sub>·(k<sub>A</sub>·H(ID))。
+ * 点只编码 32 字节的 x 坐标，x(k·P) 与 P 的 y 坐标符号无关，因此解码时固定取偶数 y 不影响结果；
+ * 对齐消息中以 Base64 字符串传输
+ */
+public class EcDiffieHellman {
+    private static final X9ECParameters PARAMS = CustomNamedCurves.getByName("secp256r1");
+    private static final ECCurve CURVE = PARAMS.getCurve();
+    private static final BigInteger ORDER = PARAMS.getN();
+    private static final int FIELD_BYTES = (CURVE.getFieldSize() + 7) / 8;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * @return [1, n-1] 范围内的随机私钥
+     */
+    public static BigInteger randomScalar() {
+        BigInteger k;
+        do {
+            k = new BigInteger(ORDER.bitLength(), RANDOM);
+        } while (k.signum() == 0 || k.compareTo(ORDER) >= 0);
+        return k;
+    }
+
+    /**
+     * 将 uid 映射到曲线上后乘以私钥，并行计算
+     */
+    public static String[] trans1(String[] uidArray, BigInteger k) {
+        return Arrays.stream(uidArray).parallel()
+                .map(uid -> encode(hashToCurve(uid).multiply(k)))
+                .toArray(String[]::new);
+    }
+
+    /**
+     * 对其他方已经加密过的点再乘以本方私钥，并行计算
+     */
+    public static String[] trans2(String[] cipherArray, BigInteger k) {
+        return Arrays.stream(cipherArray).parallel()
+                .map(cipher -> encode(decode(cipher).multiply(k)))
+                .toArray(String[]::new);
+    }
+
+    //try-and-increment：sha256(uid || counter) 作为 x 坐标，直到落在曲线上
+    static ECPoint hashToCurve(String uid) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] data = uid.getBytes(StandardCharsets.UTF_8);
+        BigInteger p = CURVE.getField().getCharacteristic();
+        for (int counter = 0; ; counter++) {
+            md.update(data);
+            md.update(new byte[]{(byte) (counter >>> 24), (byte) (counter >>> 16), (byte) (counter >>> 8), (byte) counter});
+            BigInteger x = new BigInteger(1, md.digest());
+            if (x.compareTo(p) >= 0) {
+                continue;
+            }
+            ECFieldElement fx = CURVE.fromBigInteger(x);
+            ECFieldElement y = fx.square().add(CURVE.getA()).multiply(fx).add(CURVE.getB()).sqrt();
+            if (y != null) {
+                return CURVE.createPoint(x, y.toBigInteger());
+            }
+        }
+    }
+
+    static String encode(ECPoint point) {
+        byte[] x = point.normalize().getAffineXCoord().getEncoded();
+        return Base64.getEncoder().encodeToString(x);
+    }
+
+    static ECPoint decode(String cipher) {
+        byte[] x = Base64.getDecoder().decode(cipher);
+        if (x.length != FIELD_BYTES) {
+            throw new IllegalArgumentException("invalid point encoding length: " + x.length);
+        }
+        byte[] compressed = new byte[FIELD_BYTES + 1];
+        compressed[0] = 0x02;
+        System.arraycopy(x, 0, compressed, 1, FIELD_BYTES);
+        return CURVE.decodePoint(compressed);
+    }
+}
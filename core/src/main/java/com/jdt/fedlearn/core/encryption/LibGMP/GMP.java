@@ -18,6 +18,7 @@ import com.sun.jna.Native;
 import com.sun.jna.NativeLong;
 import com.sun.jna.Pointer;
 import java.math.BigInteger;
+import java.util.stream.IntStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -323,6 +324,243 @@ public final class GMP {
         return new BigInteger(mpzSgn(sharedOperands[3]), mpzExport(sharedOperands[3], requiredSize));
     }
 
+    /**
+     * Batch operations
+     *
+     * 每个块向 MpzWorkspace 池借一个工作区，块之间并行。块内所有操作数拼接后一次写入 native 内存，
+     * 共享的指数和模数每块只导入一次，结果导出到同一块 native 内存后一次读回，
+     * 避免逐个调用时每次都经过 scratch 缓冲区的拷贝
+     */
+    private static final int BATCH_CHUNK = 256;
+
+    /**
+     * Calculate bases[i] ^ exp % mod for all i with the timing-hardened powm_sec, like modPowSecure.
+     * A zero exponent gives 1 % mod without touching the base.
+     */
+    public static BigInteger[] modPowBatchSecure(BigInteger[] bases, BigInteger exp, BigInteger mod) {
+        checkModulus(mod, true);
+        return batch(bases.length, (w, from, to, res) -> modPowChunk(w, bases, null, exp, mod, true, from, to, res));
+    }
+
+    /**
+     * Calculate bases[i] ^ exps[i] % mod for all i, see {@link #modPowBatchSecure(BigInteger[], BigInteger, BigInteger)}
+     */
+    public static BigInteger[] modPowBatchSecure(BigInteger[] bases, BigInteger[] exps, BigInteger mod) {
+        checkModulus(mod, true);
+        checkLength(bases, exps);
+        return batch(bases.length, (w, from, to, res) -> modPowChunk(w, bases, exps, null, mod, true, from, to, res));
+    }
+
+    /**
+     * Calculate bases[i] ^ exp % mod for all i with powm, like modPowInsecure. Not timing-hardened,
+     * but also accepts even moduli.
+     */
+    public static BigInteger[] modPowBatchInsecure(BigInteger[] bases, BigInteger exp, BigInteger mod) {
+        checkModulus(mod, false);
+        return batch(bases.length, (w, from, to, res) -> modPowChunk(w, bases, null, exp, mod, false, from, to, res));
+    }
+
+    /**
+     * Calculate bases[i] ^ exps[i] % mod for all i, see {@link #modPowBatchInsecure(BigInteger[], BigInteger, BigInteger)}
+     */
+    public static BigInteger[] modPowBatchInsecure(BigInteger[] bases, BigInteger[] exps, BigInteger mod) {
+        checkModulus(mod, false);
+        checkLength(bases, exps);
+        return batch(bases.length, (w, from, to, res) -> modPowChunk(w, bases, exps, null, mod, false, from, to, res));
+    }
+
+    /**
+     * Calculate a[i] * b[i] mod n for all i, results are non-negative
+     */
+    public static BigInteger[] mulModBatch(BigInteger[] a, BigInteger[] b, BigInteger mod) {
+        checkModulus(mod, false);
+        checkLength(a, b);
+        return batch(a.length, (w, from, to, res) -> mulModChunk(w, a, b, mod, from, to, res));
+    }
+
+    private static void checkModulus(BigInteger mod, boolean odd) {
+        if (mod.signum() <= 0) {
+            throw new ArithmeticException("modulus must be positive");
+        }
+        if (odd && !mod.testBit(0)) {
+            throw new IllegalArgumentException("modulus must be odd");
+        }
+    }
+
+    private static void checkLength(BigInteger[] a, BigInteger[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("operands length not match");
+        }
+    }
+
+    private interface ChunkOp {
+        void apply(MpzWorkspace workspace, int from, int to, BigInteger[] res);
+    }
+
+    private static BigInteger[] batch(int size, ChunkOp op) {
+        BigInteger[] res = new BigInteger[size];
+        int chunks = (size + BATCH_CHUNK - 1) / BATCH_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * BATCH_CHUNK;
+            int to = min(size, from + BATCH_CHUNK);
+            MpzWorkspace workspace = MpzWorkspace.borrow();
+            try {
+                op.apply(workspace, from, to, res);
+            } finally {
+                MpzWorkspace.release(workspace);
+            }
+        });
+        return res;
+    }
+
+    private static void modPowChunk(MpzWorkspace w, BigInteger[] bases, BigInteger[] exps, BigInteger exp,
+                                    BigInteger mod, boolean secure, int from, int to, BigInteger[] res) {
+        mpz_t base = w.operands[0];
+        mpz_t e = w.operands[1];
+        mpz_t m = w.operands[2];
+        mpz_t out = w.operands[3];
+        int n = to - from;
+        Operands operands = exps == null ? new Operands(w, from, to, bases) : new Operands(w, from, to, bases, exps);
+        Operands.importValue(w, m, mod);
+        if (exps == null) {
+            Operands.importValue(w, e, exp.abs());
+        }
+        Results results = new Results(w, n, mod);
+        for (int i = 0; i < n; i++) {
+            BigInteger exponent = exps == null ? exp : exps[from + i];
+            operands.importAt(base, i);
+            if (exps != null) {
+                operands.importMagnitudeAt(e, n + i);
+            }
+            if (exponent.signum() < 0 && LibGMP.__gmpz_invert(base, base, m) == 0) {
+                throw new ArithmeticException("val not invertible");
+            }
+            //powm_sec 要求指数为正，指数为0时结果与底数无关
+            if (secure && exponent.signum() != 0) {
+                LibGMP.__gmpz_powm_sec(out, base, e, m);
+            } else {
+                LibGMP.__gmpz_powm(out, base, e, m);
+            }
+            results.export(out, i);
+        }
+        results.read(res, from);
+    }
+
+    private static void mulModChunk(MpzWorkspace w, BigInteger[] a, BigInteger[] b, BigInteger mod,
+                                    int from, int to, BigInteger[] res) {
+        mpz_t pa = w.operands[0];
+        mpz_t pb = w.operands[1];
+        mpz_t m = w.operands[2];
+        mpz_t out = w.operands[3];
+        int n = to - from;
+        Operands operands = new Operands(w, from, to, a, b);
+        Operands.importValue(w, m, mod);
+        Results results = new Results(w, n, mod);
+        for (int i = 0; i < n; i++) {
+            operands.importAt(pa, i);
+            operands.importAt(pb, n + i);
+            LibGMP.__gmpz_mul(out, pa, pb);
+            LibGMP.__gmpz_mod(out, out, m);
+            results.export(out, i);
+        }
+        results.read(res, from);
+    }
+
+    /**
+     * 一个块的输入：各数组 [from, to) 的绝对值依次拼接后一次写入工作区的输入缓冲区，
+     * 第 k 个数为第 k / (to - from) 个数组的第 from + k % (to - from) 个元素
+     */
+    private static final class Operands {
+        private final Memory buf;
+        private final long[] offsets;
+        private final int[] lengths;
+        private final int[] signs;
+
+        Operands(MpzWorkspace w, int from, int to, BigInteger[]... arrays) {
+            int n = to - from;
+            int total = n * arrays.length;
+            byte[][] magnitudes = new byte[total][];
+            offsets = new long[total];
+            lengths = new int[total];
+            signs = new int[total];
+            long size = 0;
+            for (int k = 0; k < total; k++) {
+                BigInteger value = arrays[k / n][from + k % n];
+                magnitudes[k] = value.abs().toByteArray();
+                offsets[k] = size;
+                lengths[k] = magnitudes[k].length;
+                signs[k] = value.signum();
+                size += lengths[k];
+            }
+            byte[] all = new byte[(int) size];
+            for (int k = 0; k < total; k++) {
+                System.arraycopy(magnitudes[k], 0, all, (int) offsets[k], lengths[k]);
+            }
+            buf = w.input(max(size, 1));
+            buf.write(0, all, 0, all.length);
+        }
+
+        void importMagnitudeAt(mpz_t ptr, int k) {
+            LibGMP.__gmpz_import(ptr, lengths[k], 1, 1, 1, 0, buf.share(offsets[k]));
+        }
+
+        void importAt(mpz_t ptr, int k) {
+            importMagnitudeAt(ptr, k);
+            if (signs[k] < 0) {
+                LibGMP.__gmpz_neg(ptr, ptr);
+            }
+        }
+
+        //共享的操作数，写在输入缓冲区之后的输出缓冲区前部，导入后即可覆盖
+        static void importValue(MpzWorkspace w, mpz_t ptr, BigInteger value) {
+            byte[] bytes = value.abs().toByteArray();
+            Memory tmp = w.output(bytes.length);
+            tmp.write(0, bytes, 0, bytes.length);
+            LibGMP.__gmpz_import(ptr, bytes.length, 1, 1, 1, 0, tmp);
+            if (value.signum() < 0) {
+                LibGMP.__gmpz_neg(ptr, ptr);
+            }
+        }
+    }
+
+    /**
+     * 一个块的输出：每个结果按模数的字节数定长导出到工作区的输出缓冲区，最后一次读回。
+     * 结果均为非负数
+     */
+    private static final class Results {
+        private final MpzWorkspace w;
+        private final int width;
+        private final int[] counts;
+        private Memory buf;
+
+        Results(MpzWorkspace w, int n, BigInteger mod) {
+            this.w = w;
+            this.width = (mod.bitLength() + 7) / 8;
+            this.counts = new int[n];
+        }
+
+        void export(mpz_t ptr, int i) {
+            if (buf == null) {
+                buf = w.output(max((long) counts.length * width, 1));
+            }
+            LibGMP.__gmpz_export(buf.share((long) i * width), w.countPtr, 1, 1, 1, 0, ptr);
+            counts[i] = LibGMP.readSizeT(w.countPtr);
+        }
+
+        void read(BigInteger[] res, int from) {
+            if (counts.length == 0) {
+                return;
+            }
+            byte[] all = new byte[counts.length * width];
+            buf.read(0, all, 0, all.length);
+            for (int i = 0; i < counts.length; i++) {
+                byte[] magnitude = new byte[counts[i]];
+                System.arraycopy(all, i * width, magnitude, 0, counts[i]);
+                res[from + i] = new BigInteger(1, magnitude);
+            }
+        }
+    }
+
     /**
      * Calculate multiplicative inverse of "a" with respect to modulus
      */
@@ -0,0 +1,110 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.encryption.LibGMP;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量运算使用的 mpz 工作区：若干已初始化的 mpz_t 以及输入输出缓冲区。
+ * 通过 borrow/release 在有界池中复用，fork-join 等线程池的工作线程不必各自持有一份 ThreadLocal 副本；
+ * 池中空闲的工作区不超过 CPU 核数，多出的在归还时释放。
+ */
+final class MpzWorkspace {
+    static final int OPERANDS = 4;
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+    private static final ConcurrentLinkedQueue<MpzWorkspace> IDLE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger IDLE_SIZE = new AtomicInteger();
+    private static final int INITIAL_BUF_SIZE = 1 << 12;
+
+    final mpz_t[] operands = new mpz_t[OPERANDS];
+    private boolean freed = false;
+    /** 与 GMP 相同，释放底层内存前必须先 clear mpz_t */
+    private final Memory mem = new Memory((long) mpz_t.SIZE * OPERANDS + Native.SIZE_T_SIZE) {
+        @Override
+        protected void finalize() {
+            clearOperands();
+            super.finalize();
+        }
+    };
+    final Pointer countPtr;
+    private Memory input = new Memory(INITIAL_BUF_SIZE);
+    private Memory output = new Memory(INITIAL_BUF_SIZE);
+
+    private MpzWorkspace() {
+        for (int i = 0; i < OPERANDS; i++) {
+            operands[i] = new mpz_t(mem.share((long) i * mpz_t.SIZE, mpz_t.SIZE));
+            LibGMP.__gmpz_init(operands[i]);
+        }
+        countPtr = mem.share((long) mpz_t.SIZE * OPERANDS, Native.SIZE_T_SIZE);
+    }
+
+    static MpzWorkspace borrow() {
+        MpzWorkspace workspace = IDLE.poll();
+        if (workspace == null) {
+            return new MpzWorkspace();
+        }
+        IDLE_SIZE.decrementAndGet();
+        return workspace;
+    }
+
+    static void release(MpzWorkspace workspace) {
+        if (IDLE_SIZE.incrementAndGet() <= MAX_IDLE) {
+            IDLE.offer(workspace);
+        } else {
+            IDLE_SIZE.decrementAndGet();
+            workspace.clearOperands();
+        }
+    }
+
+    /**
+     * @param size 需要的字节数
+     * @return 至少 size 字节的输入缓冲区，内容不保留
+     */
+    Memory input(long size) {
+        input = ensure(input, size);
+        return input;
+    }
+
+    Memory output(long size) {
+        output = ensure(output, size);
+        return output;
+    }
+
+    private static Memory ensure(Memory buf, long size) {
+        if (buf.size() >= size) {
+            return buf;
+        }
+        long newSize = buf.size();
+        while (newSize < size) {
+            newSize <<= 1;
+        }
+        return new Memory(newSize);
+    }
+
+    private synchronized void clearOperands() {
+        if (!freed) {
+            freed = true;
+            for (mpz_t operand : operands) {
+                if (operand != null) {
+                    LibGMP.__gmpz_clear(operand);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.encryption.common;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 密文数组的二进制打包，替代逐个 serialize() 得到的字符串列表。
+ * 格式为 varint 个数 + 逐个密文的编码，单个密文的编码由 {@link EncryptionTool#writeCiphertext} 决定。
+ * 每个线程复用一个 ByteBuffer，空间不足时扩容后重写当前密文。
+ */
+public class CiphertextPacker {
+    private static final int INIT_CAPACITY = 1 << 16;
+    //超过该容量的buffer用完后不再保留，避免大消息长期占用内存
+    private static final int MAX_RETAINED_CAPACITY = 1 << 24;
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(INIT_CAPACITY));
+
+    private CiphertextPacker() {
+    }
+
+    /**
+     * @param ciphertexts    密文数组
+     * @param publicKey      公钥
+     * @param encryptionTool 加密工具
+     * @return 打包后的字节数组
+     */
+    public static byte[] pack(Ciphertext[] ciphertexts, PublicKey publicKey, EncryptionTool encryptionTool) {
+        ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+        writeVarint(buffer, ciphertexts.length);
+        for (Ciphertext ciphertext : ciphertexts) {
+            int start = buffer.position();
+            while (true) {
+                try {
+                    encryptionTool.writeCiphertext(ciphertext, publicKey, buffer);
+                    break;
+                } catch (BufferOverflowException e) {
+                    buffer.position(start);
+                    buffer = grow(buffer);
+                }
+            }
+        }
+        byte[] res = Arrays.copyOf(buffer.array(), buffer.position());
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return res;
+    }
+
+    /**
+     * @param packed         pack 的输出
+     * @param publicKey      公钥
+     * @param encryptionTool 加密工具，需与打包时一致
+     * @return 密文数组
+     */
+    public static Ciphertext[] unpack(byte[] packed, PublicKey publicKey, EncryptionTool encryptionTool) {
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        Ciphertext[] res = new Ciphertext[readVarint(buffer)];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = encryptionTool.readCiphertext(buffer, publicKey);
+        }
+        return res;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer) {
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        BUFFER.set(larger);
+        return larger;
+    }
+
+    //无符号 varint，每个字节低7位为数据，最高位表示后面是否还有字节
+    public static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    //有符号数先做 zigzag 变换，使绝对值小的负数也只占少量字节
+    public static void writeSignedVarint(ByteBuffer buffer, int value) {
+        writeVarint(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    public static int readSignedVarint(ByteBuffer buffer) {
+        int raw = readVarint(buffer);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
@@ -0,0 +1,110 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.encryption.common;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * 同态密文向量的批量运算，绑定一组加密工具和公钥
+ * 同态加法满足交换律和结合律，解密结果与累加顺序无关，因此可以按行分块并行累加后再合并；
+ * 明文系数为0的项不做模幂直接跳过，0 的密文只在需要时加密一次并复用
+ */
+public class EncryptedLinearAlgebra {
+    private static final int MIN_ROWS_PER_BLOCK = 16;
+
+    private final EncryptionTool tool;
+    private final PublicKey publicKey;
+    private volatile Ciphertext zero;
+
+    public EncryptedLinearAlgebra(EncryptionTool tool, PublicKey publicKey) {
+        this.tool = tool;
+        this.publicKey = publicKey;
+    }
+
+    /**
+     * @return 预先加密的0，作为加法单位元复用
+     */
+    public Ciphertext zero() {
+        Ciphertext res = zero;
+        if (res == null) {
+            res = tool.encrypt(0, publicKey);
+            zero = res;
+        }
+        return res;
+    }
+
+    public Ciphertext[] restore(String[] ciphers) {
+        return Arrays.stream(ciphers).parallel().map(tool::restoreCiphertext).toArray(Ciphertext[]::new);
+    }
+
+    public Ciphertext[] encrypt(double[] values) {
+        return Arrays.stream(values).parallel().mapToObj(v -> tool.encrypt(v, publicKey)).toArray(Ciphertext[]::new);
+    }
+
+    public String[] serialize(Ciphertext[] ciphers) {
+        return Arrays.stream(ciphers).parallel().map(Ciphertext::serialize).toArray(String[]::new);
+    }
+
+    /**
+     * @param values 密文向量
+     * @return 所有密文的和，向量为空时返回0的密文
+     */
+    public Ciphertext sum(Ciphertext[] values) {
+        return Arrays.stream(values).parallel().reduce((a, b) -> tool.add(a, b, publicKey)).orElseGet(this::zero);
+    }
+
+    /**
+     * 计算 vector^T * matrix，即 res[k] = sum_j vector[j] * matrix[j][k]
+     *
+     * @param vector 长度为行数的密文向量
+     * @param matrix 明文矩阵，按行存储
+     * @param cols   矩阵列数
+     * @return 长度为列数的密文向量
+     */
+    public Ciphertext[] transposeMultiply(Ciphertext[] vector, double[][] matrix, int cols) {
+        int rows = vector.length;
+        int blocks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, rows / MIN_ROWS_PER_BLOCK));
+        int blockSize = (rows + blocks - 1) / blocks;
+        //每个行块的部分和，null 表示该位置尚无累加项
+        Ciphertext[][] partial = new Ciphertext[blocks][];
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            Ciphertext[] acc = new Ciphertext[cols];
+            int end = Math.min(rows, (block + 1) * blockSize);
+            for (int j = block * blockSize; j < end; j++) {
+                double[] row = matrix[j];
+                int width = Math.min(cols, row.length);
+                for (int k = 0; k < width; k++) {
+                    double coefficient = row[k];
+                    if (coefficient == 0) {
+                        continue;
+                    }
+                    Ciphertext term = tool.multiply(vector[j], coefficient, publicKey);
+                    acc[k] = acc[k] == null ? term : tool.add(acc[k], term, publicKey);
+                }
+            }
+            partial[block] = acc;
+        });
+        return IntStream.range(0, cols).parallel().mapToObj(k -> {
+            Ciphertext res = null;
+            for (Ciphertext[] acc : partial) {
+                if (acc[k] != null) {
+                    res = res == null ? acc[k] : tool.add(res, acc[k], publicKey);
+                }
+            }
+            return res == null ? zero() : res;
+        }).toArray(Ciphertext[]::new);
+    }
+}
@@ -13,6 +13,10 @@ limitations under the License.
 
 package com.jdt.fedlearn.core.encryption.common;
 
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public interface EncryptionTool {
 
     /**
@@ -40,6 +44,18 @@ public interface EncryptionTool {
      */
     Ciphertext add(Ciphertext ciphertext1, Ciphertext ciphertext2, PublicKey publicKey);
 
+    /**
+     * 默认实现为加上密文2与-1的乘积，具体实现可提供更高效的方式
+     *
+     * @param ciphertext1 密文1
+     * @param ciphertext2 密文2
+     * @param publicKey 公钥
+     * @return 密文的差
+     */
+    default Ciphertext subtract(Ciphertext ciphertext1, Ciphertext ciphertext2, PublicKey publicKey) {
+        return add(ciphertext1, multiply(ciphertext2, -1, publicKey), publicKey);
+    }
+
     /**
      *
      * @param cipherText 密文
@@ -58,6 +74,37 @@ public interface EncryptionTool {
      */
     Ciphertext multiply(Ciphertext cipherText, int number, PublicKey pubKey);
 
+    /**
+     * 整数明文可用的比特数（不含符号位），供 {@link PlaintextPacker} 把多个定点数打包进一个明文；
+     * 默认返回0，表示不支持整数明文
+     *
+     * @param pubKey 公钥
+     * @return 整数明文绝对值的最大比特数
+     */
+    default int plaintextBits(PublicKey pubKey) {
+        return 0;
+    }
+
+    /**
+     *
+     * @param number 需要加密的整数，绝对值不超过 plaintextBits 位
+     * @param pubKey 公钥
+     * @return 密文，可与同样由本方法得到的密文做同态加减
+     */
+    default Ciphertext encryptInteger(BigInteger number, PublicKey pubKey) {
+        throw new UnsupportedOperationException("integer plaintext not supported: " + getClass().getSimpleName());
+    }
+
+    /**
+     *
+     * @param cipherText encryptInteger 得到的密文及其同态运算结果
+     * @param privateKey 私钥
+     * @return 解密后的有符号整数
+     */
+    default BigInteger decryptInteger(Ciphertext cipherText, PrivateKey privateKey) {
+        throw new UnsupportedOperationException("integer plaintext not supported: " + getClass().getSimpleName());
+    }
+
     /**
      *
      * @param cipherText 密文
@@ -95,4 +142,30 @@ public interface EncryptionTool {
      * @return 密文对象
      */
     Ciphertext restoreCiphertext(String cipherString);
+
+    /**
+     * 将密文以二进制形式写入buffer，默认实现写入 serialize() 的UTF-8编码及其长度，
+     * 具体实现可提供更紧凑的编码。buffer 空间不足时抛出 BufferOverflowException
+     *
+     * @param ciphertext 密文
+     * @param publicKey 公钥
+     * @param buffer 写入的buffer
+     */
+    default void writeCiphertext(Ciphertext ciphertext, PublicKey publicKey, ByteBuffer buffer) {
+        byte[] bytes = ciphertext.serialize().getBytes(StandardCharsets.UTF_8);
+        CiphertextPacker.writeVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     *
+     * @param buffer 读取的buffer，与 writeCiphertext 对应
+     * @param publicKey 公钥
+     * @return 密文对象
+     */
+    default Ciphertext readCiphertext(ByteBuffer buffer, PublicKey publicKey) {
+        byte[] bytes = new byte[CiphertextPacker.readVarint(buffer)];
+        buffer.get(bytes);
+        return restoreCiphertext(new String(bytes, StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,156 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.encryption.common;
+
+import java.math.BigInteger;
+import java.util.stream.IntStream;
+
+/**
+ * 明文打包：把多个定点数放进一个整数明文的不同槽位，一次加密、传输和同态加法同时处理多个数。
+ * 每个数按 2^precision 缩放取整，槽位宽度为 数值位 + 保护位 + 符号位，保护位由最多累加次数决定，
+ * 因此同一槽位累加（或相减）不超过 maxAdds 个数时不会溢出到相邻槽位。
+ * 槽位内允许负数，整个明文即各槽位值乘以 2^(j*slotBits) 之和，解密后从低位起逐个取出有符号槽位值。
+ * 仅适用于 {@link EncryptionTool#plaintextBits} 大于0的加密工具。
+ */
+public class PlaintextPacker {
+    //double 尾数精度，缩放后的整数绝对值不超过 2^52，缩放时不丢失精度
+    private static final int VALUE_BITS = 53;
+
+    private final int precision;
+    private final int slotBits;
+    private final int slots;
+    private final double scale;
+    private final double bound;
+    private final BigInteger mask;
+    private final BigInteger half;
+
+    /**
+     * @param bound         打包的数绝对值的上界
+     * @param maxAdds       同一槽位最多累加的数的个数
+     * @param plaintextBits 整数明文可用比特数，见 {@link EncryptionTool#plaintextBits}
+     */
+    public PlaintextPacker(double bound, long maxAdds, int plaintextBits) {
+        if (Double.isNaN(bound) || Double.isInfinite(bound) || maxAdds < 1) {
+            throw new IllegalArgumentException("illegal bound " + bound + " or maxAdds " + maxAdds);
+        }
+        this.bound = bound > 0 ? bound : 1.0;
+        // bound * 2^precision < 2^(VALUE_BITS - 1)
+        this.precision = VALUE_BITS - 2 - Math.getExponent(this.bound);
+        this.scale = Math.scalb(1.0, precision);
+        int guardBits = 64 - Long.numberOfLeadingZeros(maxAdds);
+        this.slotBits = VALUE_BITS + guardBits + 1;
+        this.slots = plaintextBits / slotBits;
+        if (slots < 1) {
+            throw new IllegalArgumentException("plaintext of " + plaintextBits + " bits can not hold a slot of " + slotBits + " bits");
+        }
+        this.mask = BigInteger.ONE.shiftLeft(slotBits).subtract(BigInteger.ONE);
+        this.half = BigInteger.ONE.shiftLeft(slotBits - 1);
+    }
+
+    /**
+     * @return 每个明文的槽位数
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    public int getSlotBits() {
+        return slotBits;
+    }
+
+    /**
+     * 把 values[from, from+count) 编码为一个整数，count 不超过槽位数
+     */
+    public BigInteger encode(double[] values, int from, int count) {
+        if (count > slots) {
+            throw new IllegalArgumentException(count + " values exceed " + slots + " slots");
+        }
+        BigInteger packed = BigInteger.ZERO;
+        //高位槽位先放入，第 j 个数位于 [j*slotBits, (j+1)*slotBits)
+        for (int j = from + count - 1; j >= from; j--) {
+            packed = packed.shiftLeft(slotBits).add(BigInteger.valueOf(quantize(values[j])));
+        }
+        return packed;
+    }
+
+    public BigInteger encode(double... values) {
+        return encode(values, 0, values.length);
+    }
+
+    /**
+     * @param packed encode 结果或其同态加减后的解密结果
+     * @param count  槽位个数
+     * @return 每个槽位的值
+     */
+    public double[] decode(BigInteger packed, int count) {
+        double[] res = new double[count];
+        BigInteger rest = packed;
+        for (int j = 0; j < count; j++) {
+            // and 按补码取低位，负数同样适用
+            BigInteger slot = rest.and(mask);
+            if (slot.compareTo(half) >= 0) {
+                slot = slot.subtract(mask).subtract(BigInteger.ONE);
+            }
+            res[j] = Math.scalb(slot.doubleValue(), -precision);
+            rest = rest.subtract(slot).shiftRight(slotBits);
+        }
+        return res;
+    }
+
+    /**
+     * 按槽位数依次打包后加密，第 i 个密文包含 values[i*slots, (i+1)*slots)
+     *
+     * @param values         需要加密的数
+     * @param publicKey      公钥
+     * @param encryptionTool 加密工具
+     * @return 密文数组，长度为 values.length 除以槽位数向上取整
+     */
+    public Ciphertext[] encrypt(double[] values, PublicKey publicKey, EncryptionTool encryptionTool) {
+        int num = (values.length + slots - 1) / slots;
+        return IntStream.range(0, num)
+                .parallel()
+                .mapToObj(i -> {
+                    int from = i * slots;
+                    return encryptionTool.encryptInteger(encode(values, from, Math.min(slots, values.length - from)), publicKey);
+                })
+                .toArray(Ciphertext[]::new);
+    }
+
+    /**
+     * encrypt 的逆过程，密文可以是同态加减之后的结果
+     *
+     * @param ciphertexts    密文数组
+     * @param count          原始数的个数
+     * @param privateKey     私钥
+     * @param encryptionTool 加密工具
+     * @return 解密解码后的数
+     */
+    public double[] decrypt(Ciphertext[] ciphertexts, int count, PrivateKey privateKey, EncryptionTool encryptionTool) {
+        double[] res = new double[count];
+        IntStream.range(0, ciphertexts.length).parallel().forEach(i -> {
+            int from = i * slots;
+            int num = Math.min(slots, count - from);
+            double[] slotValues = decode(encryptionTool.decryptInteger(ciphertexts[i], privateKey), num);
+            System.arraycopy(slotValues, 0, res, from, num);
+        });
+        return res;
+    }
+
+    private long quantize(double value) {
+        if (!(Math.abs(value) <= bound)) {
+            throw new IllegalArgumentException("value " + value + " out of bound " + bound);
+        }
+        return Math.round(value * scale);
+    }
+}
@@ -553,6 +553,37 @@ public class DistributedPaillier {
         return res;
     }
 
+    /**
+     * Sum 一次 native 调用完成整个密文数组的求和，避免逐个 add 时的JNI调用和密文深拷贝。
+     * 各密文 scale 相同（encDouble 的结果均为 SCALE）时直接使用输入；
+     * 否则先复制并对齐到最大的 scale
+     *
+     * @param a:       ciphertext array, not empty
+     * @param pub_key: public key
+     * @return ciphertext result
+     */
+    public static signedByteArray sum(signedByteArray[] a,
+                                      DistPaillierPubkey pub_key) {
+        assert (a.length > 0);
+        long scale = Arrays.stream(a).mapToLong(x -> x.scale).max().getAsLong();
+        signedByteArray[] in = a;
+        if (Arrays.stream(a).anyMatch(x -> x.scale != scale)) {
+            in = new signedByteArray[a.length];
+            for (int i = 0; i < a.length; i++) {
+                in[i] = a[i].deep_copy();
+                if (a[i].scale != scale) {
+                    assert (scale % a[i].scale == 0);
+                    __mul__(in[i], in[i], scale / a[i].scale, pub_key.bitLen, pub_key.n);
+                    in[i].scale = scale;
+                }
+            }
+        }
+        signedByteArray res = new signedByteArray();
+        res.scale = scale;
+        __sum_vec__(res, in, pub_key.bitLen, pub_key.n);
+        return res;
+    }
+
     /**
      * Mul
      *
@@ -18,6 +18,8 @@ import com.jdt.fedlearn.core.encryption.distributedPaillier.DistributedPaillier.
 import com.jdt.fedlearn.core.encryption.distributedPaillier.DistributedPaillierNative.signedByteArray;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntFunction;
 import java.util.stream.IntStream;
 
 
@@ -169,6 +171,36 @@ public class HomoEncryptionUtil {
         }
     }
 
+    /**
+     * 密文数组求和，一次 native 调用完成，空数组返回0的加密
+     */
+    public signedByteArray sum(signedByteArray[] a, DistPaillierPubkey pubKey) {
+        if (a.length == 0) {
+            return encryption(0.0, pubKey);
+        }
+        if (!usingFake) {
+            return DistributedPaillier.sum(a, pubKey);
+        } else {
+            return toSignedByteArr(Arrays.stream(toDoubleLst(a)).sum());
+        }
+    }
+
+    /**
+     * 按下标分组批量求和，第 i 个结果为 groups[i] 中各下标对应密文之和。
+     * 每组只做一次 native 调用，各组之间并行；用于分桶累加等大量样本聚合到少量桶的场景
+     *
+     * @param groups  每组的下标
+     * @param element 下标 -> 密文
+     * @param pubKey  公钥
+     * @return 每组的密文和，空组为0的加密
+     */
+    public signedByteArray[] groupSum(int[][] groups, IntFunction<signedByteArray> element, DistPaillierPubkey pubKey) {
+        return Arrays.stream(groups)
+                .parallel()
+                .map(group -> sum(Arrays.stream(group).mapToObj(element).toArray(signedByteArray[]::new), pubKey))
+                .toArray(signedByteArray[]::new);
+    }
+
     public signedByteArray[] add(signedByteArray[] a, double[] b, DistPaillierPubkey pubKey) {
         assert (a.length == b.length);
         if (!usingFake) {
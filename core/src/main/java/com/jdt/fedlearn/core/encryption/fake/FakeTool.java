@@ -37,6 +37,14 @@ public class FakeTool implements EncryptionTool {
         return new FakeCiphertext(res);
     }
 
+    @Override
+    public Ciphertext subtract(Ciphertext ciphertext1, Ciphertext ciphertext2, PublicKey publicKey) {
+        FakeCiphertext text1 = (FakeCiphertext) ciphertext1;
+        FakeCiphertext text2 = (FakeCiphertext) ciphertext2;
+        double res = text1.getReal() - text2.getReal();
+        return new FakeCiphertext(res);
+    }
+
     @Override
     public Ciphertext multiply(Ciphertext cipherText, double number, PublicKey pubKey) {
         FakeCiphertext ciphertext = (FakeCiphertext) cipherText;
@@ -50,6 +50,20 @@ public final class JavallierCiphertext implements Ciphertext {
         return isSafe;
     }
 
+    public BigInteger getValue() {
+        if (encryptedNumber != null) {
+            return encryptedNumber.calculateCiphertext();
+        }
+        return v;
+    }
+
+    public int getExponent() {
+        if (encryptedNumber != null) {
+            return encryptedNumber.getExponent();
+        }
+        return e;
+    }
+
     @Override
     public String serialize() {
         if (encryptedNumber != null){
@@ -15,6 +15,7 @@ package com.jdt.fedlearn.core.encryption.javallier;
 
 import com.jdt.fedlearn.core.encryption.common.PrivateKey;
 import com.jdt.fedlearn.core.encryption.common.PublicKey;
+import com.n1analytics.paillier.PaillierContext;
 import com.n1analytics.paillier.PaillierPrivateKey;
 import com.n1analytics.paillier.PaillierPublicKey;
 
@@ -23,6 +24,7 @@ import java.math.BigInteger;
 public class JavallierPriKey implements PrivateKey{
     private final PaillierPrivateKey privateKey;
     private final boolean isSafe;
+    private transient volatile JavallierPubKey publicKey;
 
     public JavallierPriKey(PaillierPrivateKey privateKey, boolean isSafe) {
         this.privateKey = privateKey;
@@ -48,7 +50,14 @@ public class JavallierPriKey implements PrivateKey{
 
 
     public PublicKey generatePublicKey() {
-        return new JavallierPubKey(privateKey.getPublicKey().getModulus(), isSafe);
+        if (publicKey == null) {
+            publicKey = new JavallierPubKey(privateKey.getPublicKey().getModulus(), isSafe);
+        }
+        return publicKey;
+    }
+
+    public PaillierContext getSignedContext() {
+        return ((JavallierPubKey) generatePublicKey()).getSignedContext();
     }
 
 }
@@ -14,6 +14,7 @@ package com.jdt.fedlearn.core.encryption.javallier;
 
 import com.jdt.fedlearn.core.encryption.common.PublicKey;
 import com.jdt.fedlearn.core.exception.NotMatchException;
+import com.n1analytics.paillier.PaillierContext;
 import com.n1analytics.paillier.PaillierPublicKey;
 
 import java.math.BigInteger;
@@ -21,6 +22,10 @@ import java.math.BigInteger;
 public class JavallierPubKey implements PublicKey {
     private final BigInteger modulus;
     private final boolean isSafe;
+    //n^2 与编码上下文只依赖 modulus，首次使用时构造后复用
+    private transient volatile PaillierPublicKey paillierPublicKey;
+    private transient volatile PaillierContext signedContext;
+    private transient volatile ObfuscatorPool obfuscatorPool;
 
     public JavallierPubKey(BigInteger modulus, boolean isSafe) {
         this.modulus = modulus;
@@ -28,13 +33,42 @@ public class JavallierPubKey implements PublicKey {
     }
 
     public PaillierPublicKey getPaillierPublicKey() {
-        return new PaillierPublicKey(modulus);
+        if (paillierPublicKey == null) {
+            paillierPublicKey = new PaillierPublicKey(modulus);
+        }
+        return paillierPublicKey;
+    }
+
+    public PaillierContext getSignedContext() {
+        if (signedContext == null) {
+            signedContext = getPaillierPublicKey().createSignedContext();
+        }
+        return signedContext;
+    }
+
+    /**
+     * 混淆因子池只在首次使用或原有池被淘汰关闭后才去共享表中获取
+     */
+    public ObfuscatorPool getObfuscatorPool() {
+        ObfuscatorPool pool = obfuscatorPool;
+        if (pool == null || pool.isClosed()) {
+            pool = ObfuscatorPool.of(getPaillierPublicKey());
+            obfuscatorPool = pool;
+        }
+        return pool;
     }
 
     public boolean isSafe() {
         return isSafe;
     }
 
+    /**
+     * @return 密文（小于 n^2）定长编码所需的字节数
+     */
+    public int ciphertextByteLength() {
+        return (2 * modulus.bitLength() + 7) / 8;
+    }
+
     @Override
     public String serialize() {
         return modulus.toString() + ":" + isSafe;
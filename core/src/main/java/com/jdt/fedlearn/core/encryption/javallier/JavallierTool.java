@@ -14,6 +14,7 @@ limitations under the License.
 package com.jdt.fedlearn.core.encryption.javallier;
 
 import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.CiphertextPacker;
 import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
 import com.jdt.fedlearn.core.encryption.common.PrivateKey;
 import com.jdt.fedlearn.core.encryption.common.PublicKey;
@@ -21,54 +22,104 @@ import com.jdt.fedlearn.core.exception.NotMatchException;
 import com.n1analytics.paillier.*;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 public class JavallierTool implements EncryptionTool {
-    private boolean isSafe = true;
+    private final boolean isSafe;
+
+    /**
+     * isSafe 为 true 时加密不做混淆，与历史行为一致
+     */
+    public JavallierTool() {
+        this(true);
+    }
+
+    /**
+     * @param isSafe 为 false 时生成的密钥加密时乘以随机混淆因子，相同明文的密文不同
+     */
+    public JavallierTool(boolean isSafe) {
+        this.isSafe = isSafe;
+    }
 
-    //TODO 新增isSafe参数
     public JavallierPriKey keyGenerate(int bitLengthVal, int a) {
-        this.isSafe = true;
         PaillierPrivateKey paillierPrivateKey = PaillierPrivateKey.create(bitLengthVal);
         return new JavallierPriKey(paillierPrivateKey, this.isSafe);
     }
 
     public Ciphertext encrypt(double d, PublicKey pubKey) {
         JavallierPubKey publicKey = (JavallierPubKey) pubKey;
-        if (this.isSafe) {
-            PaillierContext paillierContext = publicKey.getPaillierPublicKey().createSignedContext();
-            EncodedNumber encoded = paillierContext.encode(d);
-            BigInteger value = encoded.getValue();
-            BigInteger ciphertext = publicKey.getPaillierPublicKey().raw_encrypt_without_obfuscation(value);
-            return new JavallierCiphertext(new EncryptedNumber(paillierContext, ciphertext, encoded.getExponent(), isSafe));
-        } else {
-            PaillierContext paillierContext = publicKey.getPaillierPublicKey().createSignedContext();
-            return new JavallierCiphertext(paillierContext.encrypt(d).getSafeEncryptedNumber());
+        PaillierContext paillierContext = publicKey.getSignedContext();
+        EncodedNumber encoded = paillierContext.encode(d);
+        BigInteger ciphertext = rawEncrypt(encoded.getValue(), publicKey);
+        return new JavallierCiphertext(new EncryptedNumber(paillierContext, ciphertext, encoded.getExponent(), true));
+    }
+
+    //是否混淆由公钥决定，混淆因子 r^n 由后台线程预计算，这里只需一次模乘
+    private static BigInteger rawEncrypt(BigInteger value, JavallierPubKey publicKey) {
+        PaillierPublicKey paillierPublicKey = publicKey.getPaillierPublicKey();
+        BigInteger ciphertext = paillierPublicKey.raw_encrypt_without_obfuscation(value);
+        if (!publicKey.isSafe()) {
+            ciphertext = ciphertext.multiply(publicKey.getObfuscatorPool().next()).mod(paillierPublicKey.getModulusSquared());
         }
+        return ciphertext;
+    }
+
+    /**
+     * 有符号上下文可编码的范围约为 (-n/2, n/2)，留出一位余量
+     */
+    @Override
+    public int plaintextBits(PublicKey pubKey) {
+        return ((JavallierPubKey) pubKey).getPaillierPublicKey().getModulus().bitLength() - 2;
+    }
+
+    @Override
+    public Ciphertext encryptInteger(BigInteger number, PublicKey pubKey) {
+        JavallierPubKey publicKey = (JavallierPubKey) pubKey;
+        PaillierContext paillierContext = publicKey.getSignedContext();
+        //整数编码的指数恒为0，同态相加时无需对齐指数
+        EncodedNumber encoded = paillierContext.encode(number);
+        BigInteger ciphertext = rawEncrypt(encoded.getValue(), publicKey);
+        return new JavallierCiphertext(new EncryptedNumber(paillierContext, ciphertext, encoded.getExponent(), true));
+    }
+
+    @Override
+    public BigInteger decryptInteger(Ciphertext cipherText, PrivateKey privateKey) {
+        JavallierCiphertext jCiphertext = (JavallierCiphertext) cipherText;
+        JavallierPriKey javallierPriKey = (JavallierPriKey) privateKey;
+        PaillierContext paillierContext = javallierPriKey.getSignedContext();
+        return javallierPriKey.getPrivateKey().decrypt(jCiphertext.getEncryptedNumber(paillierContext)).decodeBigInteger();
     }
 
     public Ciphertext add(Ciphertext ciphertext1, Ciphertext ciphertext2, PublicKey publicKey) {
         //TODO  assert c1's PaillierContext equal to c2's
         JavallierCiphertext d = (JavallierCiphertext) ciphertext1;
         JavallierCiphertext e = (JavallierCiphertext) ciphertext2;
-        PaillierPublicKey paillierPublicKey = ((JavallierPubKey)publicKey).getPaillierPublicKey();
-        PaillierContext paillierContext = paillierPublicKey.createSignedContext();
+        PaillierContext paillierContext = ((JavallierPubKey) publicKey).getSignedContext();
         EncryptedNumber dm = d.getEncryptedNumber(paillierContext);
         EncryptedNumber em = e.getEncryptedNumber(paillierContext);
         return new JavallierCiphertext(dm.add(em));
     }
 
+    public Ciphertext subtract(Ciphertext ciphertext1, Ciphertext ciphertext2, PublicKey publicKey) {
+        JavallierCiphertext d = (JavallierCiphertext) ciphertext1;
+        JavallierCiphertext e = (JavallierCiphertext) ciphertext2;
+        PaillierContext paillierContext = ((JavallierPubKey) publicKey).getSignedContext();
+        EncryptedNumber dm = d.getEncryptedNumber(paillierContext);
+        EncryptedNumber em = e.getEncryptedNumber(paillierContext);
+        //密文求逆后相乘，避免与-1做模幂
+        return new JavallierCiphertext(dm.subtract(em));
+    }
+
     public Ciphertext multiply(Ciphertext ciphertext1, double number, PublicKey publicKey) {
         JavallierCiphertext d = (JavallierCiphertext) ciphertext1;
-        PaillierPublicKey paillierPublicKey = ((JavallierPubKey)publicKey).getPaillierPublicKey();
-        PaillierContext paillierContext = paillierPublicKey.createSignedContext();
+        PaillierContext paillierContext = ((JavallierPubKey) publicKey).getSignedContext();
         EncryptedNumber dm = d.getEncryptedNumber(paillierContext);
         return new JavallierCiphertext(dm.multiply(number));
     }
 
     public Ciphertext multiply(Ciphertext ciphertext1, int number, PublicKey publicKey) {
         JavallierCiphertext d = (JavallierCiphertext) ciphertext1;
-        PaillierPublicKey paillierPublicKey = ((JavallierPubKey)publicKey).getPaillierPublicKey();
-        PaillierContext paillierContext = paillierPublicKey.createSignedContext();
+        PaillierContext paillierContext = ((JavallierPubKey) publicKey).getSignedContext();
         EncryptedNumber dm = d.getEncryptedNumber(paillierContext);
 //        d.getPaillierContext();
         return new JavallierCiphertext(dm.multiply(number));
@@ -77,10 +128,8 @@ public class JavallierTool implements EncryptionTool {
     public double decrypt(Ciphertext cipherText, PrivateKey privateKey) {
         JavallierCiphertext jCiphertext = (JavallierCiphertext) cipherText;
         JavallierPriKey javallierPriKey = (JavallierPriKey) privateKey;
-
-        PaillierPublicKey paillierPublicKey = ((JavallierPubKey)privateKey.generatePublicKey()).getPaillierPublicKey();
-        PaillierContext paillierContext = paillierPublicKey.createSignedContext();
-
+        //PaillierPrivateKey 内部已按 p、q 做 CRT 解密，这里只需复用缓存的上下文
+        PaillierContext paillierContext = javallierPriKey.getSignedContext();
         return javallierPriKey.getPrivateKey().decrypt(jCiphertext.getEncryptedNumber(paillierContext)).decodeDouble();
     }
 
@@ -127,18 +176,42 @@ public class JavallierTool implements EncryptionTool {
         return new JavallierCiphertext(v, e, isSafe);
     }
 
+    /**
+     * 定长大端序的密文值（按 n^2 的字节数左补0）加 zigzag varint 编码的指数，
+     * 避免十进制字符串转换，且比字符串小一半以上
+     */
+    @Override
+    public void writeCiphertext(Ciphertext ciphertext, PublicKey publicKey, ByteBuffer buffer) {
+        JavallierCiphertext jCiphertext = (JavallierCiphertext) ciphertext;
+        int width = ((JavallierPubKey) publicKey).ciphertextByteLength();
+        byte[] magnitude = jCiphertext.getValue().toByteArray();
+        // toByteArray 可能带有一个符号位字节
+        int offset = Math.max(magnitude.length - width, 0);
+        for (int i = magnitude.length - offset; i < width; i++) {
+            buffer.put((byte) 0);
+        }
+        buffer.put(magnitude, offset, magnitude.length - offset);
+        CiphertextPacker.writeSignedVarint(buffer, jCiphertext.getExponent());
+    }
+
+    @Override
+    public Ciphertext readCiphertext(ByteBuffer buffer, PublicKey publicKey) {
+        byte[] magnitude = new byte[((JavallierPubKey) publicKey).ciphertextByteLength()];
+        buffer.get(magnitude);
+        int e = CiphertextPacker.readSignedVarint(buffer);
+        return new JavallierCiphertext(new BigInteger(1, magnitude), e, isSafe);
+    }
+
     //TODO 以下两个函数主要是历史遗留，部分算法仍在用，后续会优化
     @Deprecated
     public static EncryptedNumber encryptionInner(double d, PaillierPublicKey publicKey, boolean isSafe) {
         PaillierContext paillierContext = publicKey.createSignedContext();
-        if (isSafe) {
-            EncodedNumber encoded = paillierContext.encode(d);
-            BigInteger value = encoded.getValue();
-            BigInteger ciphertext = publicKey.raw_encrypt_without_obfuscation(value);
-            return new EncryptedNumber(paillierContext, ciphertext, encoded.getExponent(), true);
-        } else {
-            return paillierContext.encrypt(d).getSafeEncryptedNumber();
+        EncodedNumber encoded = paillierContext.encode(d);
+        BigInteger ciphertext = publicKey.raw_encrypt_without_obfuscation(encoded.getValue());
+        if (!isSafe) {
+            ciphertext = ciphertext.multiply(ObfuscatorPool.of(publicKey).next()).mod(publicKey.getModulusSquared());
         }
+        return new EncryptedNumber(paillierContext, ciphertext, encoded.getExponent(), true);
     }
 
     @Deprecated
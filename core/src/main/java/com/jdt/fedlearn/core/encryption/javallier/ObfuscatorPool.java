@@ -0,0 +1,127 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.encryption.javallier;
+
+import com.n1analytics.paillier.PaillierPublicKey;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 混淆因子 r^n mod n^2 的预计算池。
+ * 混淆加密的主要开销是这次模幂，且与明文无关，因此由后台守护线程提前计算，
+ * 加密时无锁取出；池为空时退化为当场计算，不会阻塞加密。
+ * 每个公钥一个池，同时存在的池数量有上限，超出时关闭最早创建的池。
+ */
+public class ObfuscatorPool {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_POOLS = 4;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final Map<BigInteger, ObfuscatorPool> POOLS = new LinkedHashMap<>();
+
+    private final BigInteger modulus;
+    private final BigInteger modulusSquared;
+    private final int capacity;
+    private final ConcurrentLinkedQueue<BigInteger> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final SecureRandom random = new SecureRandom();
+    private final Thread producer;
+    private volatile boolean closed = false;
+
+    ObfuscatorPool(PaillierPublicKey publicKey, int capacity) {
+        this.modulus = publicKey.getModulus();
+        this.modulusSquared = publicKey.getModulusSquared();
+        this.capacity = capacity;
+        this.producer = new Thread(this::produce, "paillier-obfuscator");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    /**
+     * 获取公钥对应的共享池，不存在时创建
+     */
+    public static ObfuscatorPool of(PaillierPublicKey publicKey) {
+        synchronized (POOLS) {
+            ObfuscatorPool pool = POOLS.get(publicKey.getModulus());
+            if (pool == null) {
+                if (POOLS.size() >= MAX_POOLS) {
+                    Iterator<ObfuscatorPool> eldest = POOLS.values().iterator();
+                    eldest.next().close();
+                    eldest.remove();
+                }
+                pool = new ObfuscatorPool(publicKey, DEFAULT_CAPACITY);
+                POOLS.put(publicKey.getModulus(), pool);
+            }
+            return pool;
+        }
+    }
+
+    private void produce() {
+        while (!closed) {
+            if (size.get() >= capacity) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            queue.offer(generate());
+            size.incrementAndGet();
+        }
+        queue.clear();
+    }
+
+    /**
+     * @return 一个新的 r^n mod n^2，每个值只会被取出一次
+     */
+    public BigInteger next() {
+        BigInteger obfuscator = queue.poll();
+        if (obfuscator == null) {
+            return generate();
+        }
+        if (size.decrementAndGet() <= capacity / 2) {
+            LockSupport.unpark(producer);
+        }
+        return obfuscator;
+    }
+
+    /**
+     * 停止后台线程，之后的 next 调用全部当场计算
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(producer);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int available() {
+        return size.get();
+    }
+
+    // r 在 Z*_n 中均匀选取
+    private BigInteger generate() {
+        BigInteger r;
+        do {
+            r = new BigInteger(modulus.bitLength(), random);
+        } while (r.signum() <= 0 || r.compareTo(modulus) >= 0 || !r.gcd(modulus).equals(BigInteger.ONE));
+        return r.modPow(modulus, modulusSquared);
+    }
+}
@@ -0,0 +1,34 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.entity.boost;
+
+import com.jdt.fedlearn.common.entity.core.Message;
+
+/**
+ * 批量推理请求，包含该 client 在所有查询树中负责的分裂节点 recordId
+ */
+public class BoostN2Req implements Message {
+    private int[] recordIds;
+
+    public BoostN2Req() {
+    }
+
+    public BoostN2Req(int[] recordIds) {
+        this.recordIds = recordIds;
+    }
+
+    public int[] getRecordIds() {
+        return recordIds;
+    }
+}
@@ -0,0 +1,60 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.entity.boost;
+
+import com.jdt.fedlearn.common.entity.core.Message;
+
+/**
+ * 批量推理结果，每个 recordId 对所有待推理样本的分裂方向，按位保存，置位表示走右子树。
+ * 每个 recordId 占 wordsPerRecord(numRows) 个 long，第 i 个样本在其中的第 i 位
+ */
+public class BoostN2Res implements Message {
+    private int[] recordIds;
+    private int numRows;
+    private long[] rightBits;
+
+    public BoostN2Res() {
+    }
+
+    public BoostN2Res(int[] recordIds, int numRows, long[] rightBits) {
+        this.recordIds = recordIds;
+        this.numRows = numRows;
+        this.rightBits = rightBits;
+    }
+
+    public int[] getRecordIds() {
+        return recordIds;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public long[] getRightBits() {
+        return rightBits;
+    }
+
+    /**
+     * @param recordIndex recordId 在 recordIds 中的下标
+     * @param row         样本下标
+     * @return 是否走右子树
+     */
+    public boolean isRight(int recordIndex, int row) {
+        return (rightBits[recordIndex * wordsPerRecord(numRows) + (row >>> 6)] & (1L << row)) != 0;
+    }
+
+    public static int wordsPerRecord(int numRows) {
+        return (numRows + 63) >>> 6;
+    }
+}
@@ -33,6 +33,7 @@ public class BoostP3Req implements Message {
             List<FeatureLeftGH> subBodies = new ArrayList<>();
             for (FeatureLeftGH b : r.getFeatureGL()) {
                 FeatureLeftGH boostP3ReqSubBody = new FeatureLeftGH(b.getClient(), b.getFeature(), b.getGhLeft());
+                boostP3ReqSubBody.setPackedGhLeft(b.getPackedGhLeft());
                 subBodies.add(boostP3ReqSubBody);
             }
             dataList.add(subBodies);
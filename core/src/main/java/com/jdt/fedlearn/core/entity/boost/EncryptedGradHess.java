@@ -23,6 +23,10 @@ public class EncryptedGradHess implements Message {
     private ClientInfo client;
     private int[] instanceSpace;
     private StringTuple2[] gh;
+    //CiphertextPacker 打包的 (g, h) 交替序列，顺序与 instanceSpace 一致，存在时替代 gh
+    private byte[] packedGh;
+    //为 true 时 packedGh 中每个样本只有一个密文，g 和 h 由 PlaintextPacker 打包在同一明文中
+    private boolean slotPacked;
     private String pubKey;
     private boolean newTree;
     private MetricValue trainMetric;
@@ -31,6 +35,8 @@ public class EncryptedGradHess implements Message {
     private int modelId;
     private int instanceMin;
     private int instanceMax;
+    //当前节点编号，用于被动方的直方图缓存，0表示未知
+    private int nodeIndex;
 
     public EncryptedGradHess() {
     }
@@ -74,6 +80,22 @@ public class EncryptedGradHess implements Message {
         this.gh = gh;
     }
 
+    public byte[] getPackedGh() {
+        return packedGh;
+    }
+
+    public void setPackedGh(byte[] packedGh) {
+        this.packedGh = packedGh;
+    }
+
+    public boolean isSlotPacked() {
+        return slotPacked;
+    }
+
+    public void setSlotPacked(boolean slotPacked) {
+        this.slotPacked = slotPacked;
+    }
+
     public boolean getNewTree() {
         return newTree;
     }
@@ -126,4 +148,12 @@ public class EncryptedGradHess implements Message {
         this.instanceMax = instanceMax;
     }
 
+    public int getNodeIndex() {
+        return nodeIndex;
+    }
+
+    public void setNodeIndex(int nodeIndex) {
+        this.nodeIndex = nodeIndex;
+    }
+
 }
@@ -29,6 +29,8 @@ public class FeatureLeftGH implements Message {
     private ClientInfo client;
     private String feature;
     private StringTuple2[] ghLeft;
+    //CiphertextPacker 打包的 (gL, hL) 交替序列，存在时替代 ghLeft
+    private byte[] packedGhLeft;
     private List<int[]> instanceList = new ArrayList<>();
 
     public FeatureLeftGH() {
@@ -61,6 +63,14 @@ public class FeatureLeftGH implements Message {
         return ghLeft;
     }
 
+    public byte[] getPackedGhLeft() {
+        return packedGhLeft;
+    }
+
+    public void setPackedGhLeft(byte[] packedGhLeft) {
+        this.packedGhLeft = packedGhLeft;
+    }
+
     public ClientInfo getClient() {
         return client;
     }
@@ -82,13 +92,15 @@ public class FeatureLeftGH implements Message {
             return false;
         }
         FeatureLeftGH that = (FeatureLeftGH) o;
-        return Objects.equals(client, that.client) && Objects.equals(feature, that.feature) && Arrays.equals(ghLeft, that.ghLeft);
+        return Objects.equals(client, that.client) && Objects.equals(feature, that.feature) && Arrays.equals(ghLeft, that.ghLeft)
+                && Arrays.equals(packedGhLeft, that.packedGhLeft);
     }
 
     @Override
     public int hashCode() {
         int result = Objects.hash(client, feature);
         result = 31 * result + Arrays.hashCode(ghLeft);
+        result = 31 * result + Arrays.hashCode(packedGhLeft);
         return result;
     }
 }
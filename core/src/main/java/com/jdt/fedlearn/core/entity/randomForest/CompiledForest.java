@@ -0,0 +1,198 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.entity.randomForest;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * 随机森林推理用的编译结果，模型加载时由解析后的树结构构建一次。
+ * 每棵树只包含本方模型中出现的节点，节点按节点编号（根为0，左右子节点为 2i+1 和 2i+2）升序排列，
+ * 特征、阈值、叶子值和左右子节点位置保存在平行的基本类型数组中，推理时不再解析字符串。
+ * 子节点不在本方时位置为 -1，由其他方发来的 L/R 结果决定走向
+ */
+public class CompiledForest {
+    private static final String LEFT = "L";
+    private static final String RIGHT = "R";
+    private static final int NONE = -1;
+
+    private final int numTrees;
+    private final int[][] nodeIds;
+    //叶子节点的特征为 -1
+    private final int[][] features;
+    private final double[][] thresholds;
+    private final double[][] leafValues;
+    //叶子值的原始字符串，作为推理结果发给主动方时保持原有格式
+    private final String[][] leafStrings;
+    private final int[][] leftSlots;
+    private final int[][] rightSlots;
+
+    private CompiledForest(int numTrees) {
+        this.numTrees = numTrees;
+        this.nodeIds = new int[numTrees][];
+        this.features = new int[numTrees][];
+        this.thresholds = new double[numTrees][];
+        this.leafValues = new double[numTrees][];
+        this.leafStrings = new String[numTrees][];
+        this.leftSlots = new int[numTrees][];
+        this.rightSlots = new int[numTrees][];
+    }
+
+    /**
+     * @param treeInfo 树编号 -> 节点编号 -> 节点信息，分裂节点为 "特征 阈值"，叶子节点为预测值
+     * @return 编译后的森林
+     */
+    public static CompiledForest compile(Map<Integer, Map<Integer, String>> treeInfo) {
+        CompiledForest forest = new CompiledForest(treeInfo.size());
+        for (int tree = 0; tree < forest.numTrees; tree++) {
+            Map<Integer, String> nodes = treeInfo.getOrDefault(tree, Collections.emptyMap());
+            int[] ids = nodes.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            int size = ids.length;
+            int[] feature = new int[size];
+            double[] threshold = new double[size];
+            double[] leafValue = new double[size];
+            String[] leafString = new String[size];
+            for (int slot = 0; slot < size; slot++) {
+                String[] s = nodes.get(ids[slot]).split(" ");
+                if (s.length > 1) {
+                    feature[slot] = Integer.parseInt(s[0]);
+                    threshold[slot] = Double.parseDouble(s[1]);
+                } else {
+                    feature[slot] = NONE;
+                    leafString[slot] = s[0];
+                    leafValue[slot] = Double.parseDouble(s[0]);
+                }
+            }
+            int[] left = new int[size];
+            int[] right = new int[size];
+            for (int slot = 0; slot < size; slot++) {
+                left[slot] = slotOf(ids, 2 * ids[slot] + 1);
+                right[slot] = slotOf(ids, 2 * ids[slot] + 2);
+            }
+            forest.nodeIds[tree] = ids;
+            forest.features[tree] = feature;
+            forest.thresholds[tree] = threshold;
+            forest.leafValues[tree] = leafValue;
+            forest.leafStrings[tree] = leafString;
+            forest.leftSlots[tree] = left;
+            forest.rightSlots[tree] = right;
+        }
+        return forest;
+    }
+
+    private static int slotOf(int[] ids, int nodeId) {
+        int slot = Arrays.binarySearch(ids, nodeId);
+        return slot >= 0 ? slot : NONE;
+    }
+
+    public int getNumTrees() {
+        return numTrees;
+    }
+
+    /**
+     * 本方节点在每个样本上的走向，格式与原有推理消息一致：节点编号 -> 每个样本的 L/R 或叶子值
+     *
+     * @param tree 树编号
+     * @param x    推理数据
+     * @return 本方各节点的结果
+     */
+    public Map<Integer, List<String>> directions(int tree, double[][] x) {
+        Map<Integer, List<String>> res = new HashMap<>();
+        int[] ids = nodeIds[tree];
+        for (int slot = 0; slot < ids.length; slot++) {
+            List<String> vals = new ArrayList<>(x.length);
+            int feature = features[tree][slot];
+            if (feature == NONE) {
+                String leaf = leafStrings[tree][slot];
+                for (int i = 0; i < x.length; i++) {
+                    vals.add(leaf);
+                }
+            } else {
+                double threshold = thresholds[tree][slot];
+                for (double[] row : x) {
+                    vals.add(row[feature] < threshold ? LEFT : RIGHT);
+                }
+            }
+            res.put(ids[slot], vals);
+        }
+        return res;
+    }
+
+    /**
+     * 结合其他方发来的节点结果，计算每个样本在所有树上的平均预测值。
+     * 同一节点同时存在于本方和其他方时以其他方的结果为准
+     *
+     * @param x      推理数据
+     * @param remote 其他方的结果，树编号 -> 节点编号 -> 每个样本的 L/R 或叶子值，可以为 null
+     * @return 每个样本的预测值
+     */
+    public double[] predict(double[][] x, Map<Integer, Map<Integer, List<String>>> remote) {
+        Set<Integer> treeSet = new TreeSet<>();
+        for (int tree = 0; tree < numTrees; tree++) {
+            treeSet.add(tree);
+        }
+        if (remote != null) {
+            treeSet.addAll(remote.keySet());
+        }
+        int[] trees = treeSet.stream().mapToInt(Integer::intValue).toArray();
+        List<Map<Integer, List<String>>> remoteTrees = new ArrayList<>(trees.length);
+        for (int tree : trees) {
+            Map<Integer, List<String>> remoteTree = remote == null ? null : remote.get(tree);
+            remoteTrees.add(remoteTree == null || remoteTree.isEmpty() ? null : remoteTree);
+        }
+        double[] res = new double[x.length];
+        IntStream.range(0, x.length).parallel().forEach(i -> {
+            double sum = 0;
+            for (int t = 0; t < trees.length; t++) {
+                sum += predictOne(trees[t], remoteTrees.get(t), x[i], i);
+            }
+            res[i] = sum / trees.length;
+        });
+        return res;
+    }
+
+    private double predictOne(int tree, Map<Integer, List<String>> remoteTree, double[] row, int i) {
+        boolean local = tree < numTrees;
+        int nodeId = 0;
+        int slot = local ? slotOf(nodeIds[tree], 0) : NONE;
+        while (true) {
+            List<String> remoteNode = remoteTree == null ? null : remoteTree.get(nodeId);
+            if (remoteNode != null) {
+                String val = remoteNode.get(i);
+                if (LEFT.equals(val)) {
+                    nodeId = 2 * nodeId + 1;
+                } else if (RIGHT.equals(val)) {
+                    nodeId = 2 * nodeId + 2;
+                } else {
+                    return Double.parseDouble(val);
+                }
+                slot = local ? slotOf(nodeIds[tree], nodeId) : NONE;
+            } else if (slot != NONE) {
+                int feature = features[tree][slot];
+                if (feature == NONE) {
+                    return leafValues[tree][slot];
+                }
+                if (row[feature] < thresholds[tree][slot]) {
+                    nodeId = 2 * nodeId + 1;
+                    slot = leftSlots[tree][slot];
+                } else {
+                    nodeId = 2 * nodeId + 2;
+                    slot = rightSlots[tree][slot];
+                }
+            } else {
+                throw new IllegalStateException("node " + nodeId + " of tree " + tree + " not found in any party");
+            }
+        }
+    }
+}
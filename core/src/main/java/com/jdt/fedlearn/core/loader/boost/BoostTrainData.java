@@ -13,14 +13,17 @@ limitations under the License.
 
 package com.jdt.fedlearn.core.loader.boost;
 
+import com.jdt.fedlearn.core.model.common.tree.histogram.FeatureBins;
 import com.jdt.fedlearn.core.model.common.tree.sampling.ColSampler;
 import com.jdt.fedlearn.core.model.common.tree.sampling.RowSampler;
 import com.jdt.fedlearn.common.entity.core.feature.Features;
 import com.jdt.fedlearn.core.loader.common.AbstractTrainData;
+import com.jdt.fedlearn.core.loader.common.ColumnarTable;
 import com.jdt.fedlearn.core.loader.common.TrainData;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * 数据的加载，和加载后的简单处理
@@ -31,6 +34,8 @@ import java.util.*;
 public class BoostTrainData extends AbstractTrainData implements TrainData, Serializable {
     //原始数据，列式存储,即每行一个特征，每列一个样本
     private double[][] column_sample;
+    //预分桶结果，每个特征一个，下标与column_sample一致
+    private FeatureBins[] featureBins;
     //非数值型列名和非数值型列id
     private List<String> catFeaturesNames;
     private RowSampler rowSampler;
@@ -42,6 +47,17 @@ public class BoostTrainData extends AbstractTrainData implements TrainData, Seri
         this.catFeaturesNames = categoricalFeatures;
 
         super.scan(rawTable, idMap, features);
+        afterScan();
+    }
+
+    public BoostTrainData(ColumnarTable table, String[] idMap, Features features, List<String> categoricalFeatures) {
+        this.catFeaturesNames = categoricalFeatures;
+
+        super.scan(table, idMap, features);
+        afterScan();
+    }
+
+    private void afterScan() {
         if (expressions != null && expressions.size() != 0) {
             super.featureProcessing(expressions);
         }
@@ -64,6 +80,22 @@ public class BoostTrainData extends AbstractTrainData implements TrainData, Seri
         return res;
     }
 
+    /**
+     * 对所有特征做一次分桶，后续各树节点的直方图均基于该分桶结果构建
+     *
+     * @param numBin 最大分桶个数
+     */
+    public void binning(int numBin) {
+        featureBins = IntStream.range(0, column_sample.length)
+                .parallel()
+                .mapToObj(col -> new FeatureBins(column_sample[col], numBin))
+                .toArray(FeatureBins[]::new);
+    }
+
+    //col 与 getFeature 一致，从1开始
+    public FeatureBins getFeatureBins(int col) {
+        return featureBins[col - 1];
+    }
 
     public RowSampler getRowSampler() {
         return rowSampler;
@@ -17,7 +17,6 @@ import com.jdt.fedlearn.common.entity.core.feature.Features;
 import com.jdt.fedlearn.common.entity.core.feature.SingleFeature;
 import com.jdt.fedlearn.core.math.MathExt;
 import com.jdt.fedlearn.core.util.Tool;
-import com.jdt.fedlearn.tools.ExprAnalysis;
 
 import java.io.Serializable;
 import java.util.*;
@@ -70,6 +69,67 @@ public abstract class AbstractTrainData implements TrainData, Serializable {
         return rawTable3;
     }
 
+    /**
+     * 从列式数据加载，结果与 {@link #scan(String[][], String[], Features)} 一致，
+     * 但按列号直接读取数值，不做整表转置，也不构造中间字符串
+     */
+    public void scan(ColumnarTable table, String[] commonIds, Features features) {
+        if (features.getLabel() != null && !features.getLabel().isEmpty()) {
+            this.hasLabel = true;
+        }
+        String[] header = table.getHeader();
+        featureName = loadFeatureNames(new String[][]{header}, features);
+        //与 loadSpecifiedFeature 一致，选中的列包含index列和label列
+        int selected = (int) Arrays.stream(header).filter(features::contain).count();
+        featureDim = hasLabel ? selected - 2 : selected - 1;
+
+        //根据 id 过滤，并按原始 uid 排序
+        Set<String> idMapSet = new HashSet<>(Arrays.asList(commonIds));
+        int[] rows = IntStream.range(0, table.numRows())
+                .filter(row -> idMapSet.contains(table.getUid(row)))
+                .boxed()
+                .sorted(Comparator.comparing(table::getUid))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        datasetSize = rows.length;
+        uid = new String[datasetSize];
+        fullInstance = new int[datasetSize];
+        for (int i = 0; i < datasetSize; i++) {
+            uid[i] = table.getUid(rows[i]);
+            fullInstance[i] = i;
+        }
+
+        int labelCol = -1;
+        List<Integer> featureCols = new ArrayList<>();
+        for (int col = 1; col < header.length; col++) {
+            if (hasLabel && header[col].equals(features.getLabel())) {
+                labelCol = col;
+            }
+            if (features.contain(header[col]) && !features.isLabel(header[col]) && !features.isIndex(header[col])) {
+                featureCols.add(col);
+            }
+        }
+        if (hasLabel && labelCol > 0) {
+            label = new double[datasetSize];
+            for (int i = 0; i < datasetSize; i++) {
+                label[i] = table.get(labelCol, rows[i]);
+            }
+        }
+        if (featureCols.isEmpty()) {
+            sample = new double[0][];
+        } else {
+            int width = Math.min(featureDim, featureCols.size());
+            int[] cols = featureCols.stream().mapToInt(Integer::intValue).toArray();
+            sample = new double[datasetSize][featureDim];
+            IntStream.range(0, datasetSize).parallel().forEach(i -> {
+                for (int j = 0; j < width; j++) {
+                    sample[i][j] = table.get(cols[j], rows[i]);
+                }
+            });
+        }
+        loadExpressions(features);
+    }
+
     private void loadExpressions(Features features) {
         List<SingleFeature> featureList = features.getFeatureList();
         expressions = new ArrayList<>();
@@ -285,30 +345,8 @@ public abstract class AbstractTrainData implements TrainData, Serializable {
     }
 
     public void featureProcessing(List<String> expressions) {
-        ExprAnalysis exprAnalysis = new ExprAnalysis();
         List<String> featuresName = Arrays.asList(featureName);
-        int featureDim = this.featureDim;
-        double[][] res = new double[sample.length][featureDim + expressions.size()];
-        IntStream.range(0, expressions.size()).parallel().forEach(i -> {
-            String token = null;
-            String expr = expressions.get(i);
-            try {
-                token = exprAnalysis.init(expr, featuresName);
-            } catch (NoSuchElementException e) {
-                throw new RuntimeException("antlr init error:" + e.getMessage());
-            }
-
-            String finalToken = token;
-            IntStream.range(0, sample.length).parallel().forEach(row -> {
-                if (featureDim >= 0) System.arraycopy(sample[row], 0, res[row], 0, featureDim);
-                try {
-                    res[row][featureDim + i] = exprAnalysis.expression(finalToken, sample[row], featuresName);
-                } catch (Exception e) {
-                    throw new RuntimeException("antlr calculate error:" + e.getMessage());
-                }
-            });
-            exprAnalysis.close(token);
-        });
+        double[][] res = FeatureExpressions.append(sample, featureDim, featuresName, expressions);
         List<String> featureNameList = new ArrayList(Arrays.asList(this.featureName));
         for (int i = 0; i < expressions.size(); i++) {
             featureNameList.add(newFeatureName.get(i));
@@ -0,0 +1,75 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.loader.common;
+
+/**
+ * 列式存储的原始训练数据，与 <code>String[][]</code> 格式的原始表含义相同：
+ * 表头第一列是uid列，其余列均为数值列（含label列），
+ * uid 以字符串字典保存，数值列直接以 double 读取，无需构造字符串再解析
+ */
+public interface ColumnarTable {
+
+    /**
+     * @return 表头，包含uid列
+     */
+    String[] getHeader();
+
+    /**
+     * @return 样本行数，不含表头
+     */
+    int numRows();
+
+    /**
+     * @param row 行号，从0开始，不含表头
+     * @return 该行的uid
+     */
+    String getUid(int row);
+
+    /**
+     * @param col 表头中的列号，0 为uid列，不可读取
+     * @param row 行号，从0开始，不含表头
+     * @return 数值
+     */
+    double get(int col, int row);
+
+    /**
+     * 转为行式字符串表，供尚未支持列式数据的算法使用。
+     * 整数值按整数输出（如 "1" 而不是 "1.0"），与 csv 中的原始写法一致，其余按 double 的最短表示输出
+     *
+     * @return 第一行为表头的原始表
+     */
+    default String[][] toRows() {
+        String[] header = getHeader();
+        int rows = numRows();
+        String[][] res = new String[rows + 1][];
+        res[0] = header.clone();
+        for (int row = 0; row < rows; row++) {
+            String[] line = new String[header.length];
+            line[0] = getUid(row);
+            for (int col = 1; col < header.length; col++) {
+                line[col] = format(get(col, row));
+            }
+            res[row + 1] = line;
+        }
+        return res;
+    }
+
+    //超出 long 精确范围的整数仍按 double 输出
+    static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.valueOf(value);
+    }
+}
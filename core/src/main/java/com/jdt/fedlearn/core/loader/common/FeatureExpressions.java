@@ -0,0 +1,75 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.loader.common;
+
+import com.jdt.fedlearn.tools.CompiledExpr;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * 根据特征表达式生成新特征列
+ * 每个表达式编译一次，按行分块后对整块样本逐列计算，表达式和分块之间并行
+ */
+class FeatureExpressions {
+    private static final int CHUNK = 4096;
+
+    private FeatureExpressions() {
+    }
+
+    /**
+     * @param sample       按行存储的样本
+     * @param featureDim   原始特征数
+     * @param featuresName 原始特征名
+     * @param expressions  表达式列表
+     * @return 原始特征后依次追加表达式计算结果的新样本
+     */
+    static double[][] append(double[][] sample, int featureDim, List<String> featuresName, List<String> expressions) {
+        CompiledExpr[] compiled = new CompiledExpr[expressions.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            try {
+                compiled[i] = CompiledExpr.compile(expressions.get(i), featuresName);
+            } catch (NoSuchElementException e) {
+                throw new RuntimeException("antlr init error:" + e.getMessage());
+            } catch (Exception e) {
+                throw new RuntimeException("antlr calculate error:" + e.getMessage());
+            }
+        }
+        int rows = sample.length;
+        int width = featureDim + compiled.length;
+        double[][] res = new double[rows][];
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            res[row] = new double[width];
+            System.arraycopy(sample[row], 0, res[row], 0, featureDim);
+        });
+        int chunks = (rows + CHUNK - 1) / CHUNK;
+        IntStream.range(0, compiled.length * chunks).parallel().forEach(task -> {
+            int i = task / chunks;
+            int from = (task % chunks) * CHUNK;
+            int to = Math.min(rows, from + CHUNK);
+            double[] values;
+            try {
+                values = compiled[i].evaluate(sample, from, to);
+            } catch (Exception e) {
+                throw new RuntimeException("antlr calculate error:" + e.getMessage());
+            }
+            int col = featureDim + i;
+            for (int row = from; row < to; row++) {
+                res[row][col] = values[row - from];
+            }
+        });
+        return res;
+    }
+}
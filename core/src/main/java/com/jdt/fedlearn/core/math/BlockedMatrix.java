@@ -0,0 +1,119 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.math;
+
+import java.util.stream.IntStream;
+
+/**
+ * 行优先一维数组上的稠密矩阵运算
+ * 矩阵乘法按行块、列块和内积维分块，保证参与计算的 B 子块留在缓存中，最内层循环沿连续内存访问；
+ * 不同行块之间并行。每个输出元素仍按内积下标从小到大累加，结果与朴素三重循环一致
+ */
+public class BlockedMatrix {
+    private static final int ROW_BLOCK = 64;
+    private static final int INNER_BLOCK = 128;
+    private static final int COL_BLOCK = 256;
+
+    private BlockedMatrix() {
+    }
+
+    /**
+     * C = A * B
+     *
+     * @param a   左矩阵，行优先，第 i 行从 i * lda 开始
+     * @param lda 左矩阵的行跨度，不小于 k
+     * @param b   右矩阵，k 行 n 列，行优先
+     * @param m   左矩阵行数
+     * @param k   内积维度
+     * @param n   右矩阵列数
+     * @return m 行 n 列的结果，行优先
+     */
+    public static double[] multiply(double[] a, int lda, double[] b, int m, int k, int n) {
+        double[] c = new double[m * n];
+        int rowBlocks = (m + ROW_BLOCK - 1) / ROW_BLOCK;
+        IntStream.range(0, rowBlocks).parallel().forEach(block -> {
+            int rowStart = block * ROW_BLOCK;
+            multiplyRows(a, lda, b, c, rowStart, Math.min(m, rowStart + ROW_BLOCK), k, n);
+        });
+        return c;
+    }
+
+    /**
+     * 随机傅里叶特征：res[i][j] = scale * cos((X * W)[i][j] + bias[j])
+     * 每个行块完成乘法后立即做 cos 变换，不再单独遍历一次结果矩阵
+     *
+     * @param x     样本矩阵，行优先，第 i 行从 i * ldx 开始
+     * @param ldx   样本矩阵的行跨度，不小于 k
+     * @param w     投影矩阵，k 行 n 列，行优先
+     * @param bias  长度为 n 的偏置
+     * @param scale 缩放系数
+     * @param m     样本数
+     * @param k     参与投影的特征维度
+     * @param n     映射后的维度
+     * @return m 行 n 列的映射结果，行优先
+     */
+    public static double[] randomFourierFeatures(double[] x, int ldx, double[] w, double[] bias, double scale, int m, int k, int n) {
+        double[] res = new double[m * n];
+        int rowBlocks = (m + ROW_BLOCK - 1) / ROW_BLOCK;
+        IntStream.range(0, rowBlocks).parallel().forEach(block -> {
+            int rowStart = block * ROW_BLOCK;
+            int rowEnd = Math.min(m, rowStart + ROW_BLOCK);
+            multiplyRows(x, ldx, w, res, rowStart, rowEnd, k, n);
+            for (int i = rowStart; i < rowEnd; i++) {
+                int offset = i * n;
+                for (int j = 0; j < n; j++) {
+                    res[offset + j] = scale * Math.cos(res[offset + j] + bias[j]);
+                }
+            }
+        });
+        return res;
+    }
+
+    //计算 C 的 [rowStart, rowEnd) 行，C 中对应位置需为 0
+    private static void multiplyRows(double[] a, int lda, double[] b, double[] c, int rowStart, int rowEnd, int k, int n) {
+        for (int colStart = 0; colStart < n; colStart += COL_BLOCK) {
+            int colEnd = Math.min(n, colStart + COL_BLOCK);
+            for (int innerStart = 0; innerStart < k; innerStart += INNER_BLOCK) {
+                int innerEnd = Math.min(k, innerStart + INNER_BLOCK);
+                for (int i = rowStart; i < rowEnd; i++) {
+                    int aOffset = i * lda;
+                    int cOffset = i * n;
+                    for (int p = innerStart; p < innerEnd; p++) {
+                        double aip = a[aOffset + p];
+                        int bOffset = p * n;
+                        for (int j = colStart; j < colEnd; j++) {
+                            c[cOffset + j] += aip * b[bOffset + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param mat 二维数组
+     * @return 行优先展开的一维数组
+     */
+    public static double[] flatten(double[][] mat) {
+        if (mat.length == 0) {
+            return new double[0];
+        }
+        int cols = mat[0].length;
+        double[] res = new double[mat.length * cols];
+        for (int i = 0; i < mat.length; i++) {
+            System.arraycopy(mat[i], 0, res, i * cols, cols);
+        }
+        return res;
+    }
+}
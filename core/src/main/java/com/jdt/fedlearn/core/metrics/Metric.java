@@ -23,6 +23,10 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class Metric {
+    //样本数不少于该值时先用直方图计算 auc 和 ks，误差上界不超过 HISTOGRAM_TOLERANCE 时直接使用，否则排序精确计算
+    private static final int HISTOGRAM_MIN_SIZE = 1 << 16;
+    private static final int HISTOGRAM_BINS = 1 << 16;
+    private static final double HISTOGRAM_TOLERANCE = 1e-4;
 
     public static Map<MetricType, Double> calculateMetric(MetricType[] evalMetric, double[] pred, double[] label) {
         return Arrays.stream(evalMetric).collect(Collectors.toMap(metric -> metric, metric -> calculateMetric(metric, pred, label)));
@@ -267,41 +271,69 @@ public class Metric {
     }
 
     public static double auc(double[] pred, double[] label) {
-        int dataSize = label.length;
-        double n_pos = Arrays.stream(label).sum();
-        if (n_pos == dataSize || n_pos == 0) {
-            return 0;
+        if (pred.length >= HISTOGRAM_MIN_SIZE) {
+            ScoreHistogram histogram = ScoreHistogram.of(pred, label, HISTOGRAM_BINS);
+            if (histogram.aucErrorBound() <= HISTOGRAM_TOLERANCE) {
+                return histogram.auc();
+            }
         }
-        double n_neg = dataSize - n_pos;
+        return exactAuc(pred, label);
+    }
 
-        double[][] label_pred = new double[dataSize][2];
-        for (int i = 0; i < dataSize; i++) {
-            label_pred[i][0] = label[i];
-            label_pred[i][1] = pred[i];
+    //正负样本分别排序后归并，相同预测值的正负样本对计一半，等价于平均秩公式
+    private static double exactAuc(double[] pred, double[] label) {
+        double[][] scores = splitByLabel(pred, label);
+        double[] posScores = scores[0];
+        double[] negScores = scores[1];
+        int nPos = posScores.length;
+        int nNeg = negScores.length;
+        if (nPos == 0 || nNeg == 0) {
+            return 0;
         }
-
-        Arrays.sort(label_pred, Comparator.comparingDouble(a -> a[1]));
-
-        double[] posRank = new double[dataSize];
+        double area = 0;
+        int negBelow = 0;
         int i = 0;
-        int samePredsCnt;
-        double samePredsRankSum;
-        while (i < dataSize) {
-            samePredsCnt = 1;
-            samePredsRankSum = i + 1.0d;
-            while (i + samePredsCnt < dataSize && label_pred[i][1] == label_pred[i + samePredsCnt][1]) {
-                samePredsCnt++;
-                samePredsRankSum += i + samePredsCnt;
+        while (i < nPos) {
+            double value = posScores[i];
+            int posEnd = i;
+            while (posEnd < nPos && Double.compare(posScores[posEnd], value) == 0) {
+                posEnd++;
             }
-            for (int j = i; j < i + samePredsCnt; j++) {
-                if (label_pred[j][0] == 1) {
-                    posRank[j] = samePredsRankSum / samePredsCnt;
-                }
+            while (negBelow < nNeg && Double.compare(negScores[negBelow], value) < 0) {
+                negBelow++;
             }
-            i = i + samePredsCnt;
+            int negEnd = negBelow;
+            while (negEnd < nNeg && Double.compare(negScores[negEnd], value) == 0) {
+                negEnd++;
+            }
+            area += (posEnd - i) * (negBelow + (negEnd - negBelow) / 2.0);
+            i = posEnd;
         }
+        return area / nPos / nNeg;
+    }
 
-        return (Arrays.stream(posRank).sum() - n_pos * (n_pos + 1) / 2) / n_pos / n_neg;
+    //返回升序排列的正样本预测值和负样本预测值
+    private static double[][] splitByLabel(double[] pred, double[] label) {
+        int nPos = 0;
+        for (double l : label) {
+            if (l == 1) {
+                nPos++;
+            }
+        }
+        double[] posScores = new double[nPos];
+        double[] negScores = new double[label.length - nPos];
+        int p = 0;
+        int n = 0;
+        for (int i = 0; i < label.length; i++) {
+            if (label[i] == 1) {
+                posScores[p++] = pred[i];
+            } else {
+                negScores[n++] = pred[i];
+            }
+        }
+        Arrays.sort(posScores);
+        Arrays.sort(negScores);
+        return new double[][]{posScores, negScores};
     }
 
     // 二分类
@@ -373,9 +405,38 @@ public class Metric {
     }
 
     public static double KS(double[] pred, double[] label) {
-        Double[][] ksCurve = calculateKSCurve(pred, label);
-        List<Double> ys = Arrays.stream(ksCurve).mapToDouble(doubles -> doubles[1]).boxed().collect(Collectors.toList());
-        return Collections.max(ys);
+        if (pred.length >= HISTOGRAM_MIN_SIZE) {
+            ScoreHistogram histogram = ScoreHistogram.of(pred, label, HISTOGRAM_BINS);
+            if (histogram.ksErrorBound() <= HISTOGRAM_TOLERANCE) {
+                return histogram.ks();
+            }
+        }
+        return exactKs(pred, label);
+    }
+
+    //从大到小在每个不同的预测值处计算 TPR - FPR，取最大值
+    private static double exactKs(double[] pred, double[] label) {
+        double[][] scores = splitByLabel(pred, label);
+        double[] posScores = scores[0];
+        double[] negScores = scores[1];
+        double nLabelPos = posScores.length;
+        double nLabelNeg = negScores.length;
+        int p = posScores.length - 1;
+        int n = negScores.length - 1;
+        double ks = 0;
+        while (p >= 0 || n >= 0) {
+            double value = p < 0 ? negScores[n] : n < 0 ? posScores[p] : Double.compare(posScores[p], negScores[n]) >= 0 ? posScores[p] : negScores[n];
+            while (p >= 0 && Double.compare(posScores[p], value) == 0) {
+                p--;
+            }
+            while (n >= 0 && Double.compare(negScores[n], value) == 0) {
+                n--;
+            }
+            double truePositiveRate = nLabelPos == 0 ? 0 : (nLabelPos - 1 - p) / nLabelPos;
+            double falsePositiveRate = nLabelNeg == 0 ? 0 : (nLabelNeg - 1 - n) / nLabelNeg;
+            ks = Math.max(ks, truePositiveRate - falsePositiveRate);
+        }
+        return ks;
     }
 
     public static double rae(double[] pred, double[] label) {
@@ -0,0 +1,235 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.metrics;
+
+import java.io.Serializable;
+
+/**
+ * 二分类预测值的定宽直方图，分别累计正负样本在每个分数区间的权重，
+ * 只需一次遍历即可增量更新，不同数据分片的直方图可以直接合并；
+ * auc、ks、gain、lift 均在 O(bins) 内计算。
+ * 同一个桶内的样本无法区分先后，因此结果为近似值，误差上界见 {@link #aucErrorBound()} 和 {@link #ksErrorBound()}；
+ * 每个桶内最多只有一种取值时 auc 与精确值相同。label 为 1 的样本视为正样本，其余为负样本
+ */
+public class ScoreHistogram implements Serializable {
+    private final double lower;
+    private final double upper;
+    private final double scale;
+    private final double[] pos;
+    private final double[] neg;
+    private double totalPos;
+    private double totalNeg;
+
+    /**
+     * @param numBins 桶数
+     * @param lower   分数下界，更小的分数计入第一个桶
+     * @param upper   分数上界，更大的分数计入最后一个桶
+     */
+    public ScoreHistogram(int numBins, double lower, double upper) {
+        if (numBins <= 0 || !(upper >= lower)) {
+            throw new IllegalArgumentException("invalid histogram, bins:" + numBins + " range:[" + lower + "," + upper + "]");
+        }
+        this.lower = lower;
+        this.upper = upper;
+        this.scale = upper > lower ? numBins / (upper - lower) : 0;
+        this.pos = new double[numBins];
+        this.neg = new double[numBins];
+    }
+
+    /**
+     * 以预测值的最小值和最大值为范围构造直方图
+     */
+    public static ScoreHistogram of(double[] pred, double[] label, int numBins) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double p : pred) {
+            if (p < min) {
+                min = p;
+            }
+            if (p > max) {
+                max = p;
+            }
+        }
+        if (min > max) {
+            min = 0;
+            max = 0;
+        }
+        ScoreHistogram histogram = new ScoreHistogram(numBins, min, max);
+        histogram.add(pred, label);
+        return histogram;
+    }
+
+    private int binOf(double score) {
+        if (!(score > lower)) {
+            return 0;
+        }
+        if (score >= upper) {
+            return pos.length - 1;
+        }
+        return Math.min((int) ((score - lower) * scale), pos.length - 1);
+    }
+
+    public void add(double score, double label) {
+        add(score, label, 1.0);
+    }
+
+    public void add(double score, double label, double weight) {
+        int bin = binOf(score);
+        if (label == 1) {
+            pos[bin] += weight;
+            totalPos += weight;
+        } else {
+            neg[bin] += weight;
+            totalNeg += weight;
+        }
+    }
+
+    public void add(double[] pred, double[] label) {
+        for (int i = 0; i < pred.length; i++) {
+            add(pred[i], label[i], 1.0);
+        }
+    }
+
+    /**
+     * 合并另一个分片的直方图，两者的桶数和范围必须一致
+     *
+     * @param other 另一个直方图
+     * @return 合并后的当前直方图
+     */
+    public ScoreHistogram merge(ScoreHistogram other) {
+        if (other.pos.length != pos.length || other.lower != lower || other.upper != upper) {
+            throw new IllegalArgumentException("histogram bins not match");
+        }
+        for (int i = 0; i < pos.length; i++) {
+            pos[i] += other.pos[i];
+            neg[i] += other.neg[i];
+        }
+        totalPos += other.totalPos;
+        totalNeg += other.totalNeg;
+        return this;
+    }
+
+    /**
+     * 同一个桶内的正负样本对按各一半计入，与 auc 的相同预测值处理方式一致
+     *
+     * @return auc，只有一类样本时返回 0
+     */
+    public double auc() {
+        if (totalPos == 0 || totalNeg == 0) {
+            return 0;
+        }
+        double area = 0;
+        double negBelow = 0;
+        for (int i = 0; i < pos.length; i++) {
+            area += pos[i] * (negBelow + neg[i] / 2);
+            negBelow += neg[i];
+        }
+        return area / totalPos / totalNeg;
+    }
+
+    /**
+     * @return auc 与精确值之差的上界，即桶内正负样本对占比的一半
+     */
+    public double aucErrorBound() {
+        if (totalPos == 0 || totalNeg == 0) {
+            return 0;
+        }
+        double pairs = 0;
+        for (int i = 0; i < pos.length; i++) {
+            pairs += pos[i] * neg[i];
+        }
+        return pairs / 2 / totalPos / totalNeg;
+    }
+
+    /**
+     * 在每个桶的边界处计算 TPR - FPR 的最大值
+     *
+     * @return ks
+     */
+    public double ks() {
+        double ks = 0;
+        double truePos = 0;
+        double falsePos = 0;
+        for (int i = pos.length - 1; i >= 0; i--) {
+            truePos += pos[i];
+            falsePos += neg[i];
+            double tpr = totalPos == 0 ? 0 : truePos / totalPos;
+            double fpr = totalNeg == 0 ? 0 : falsePos / totalNeg;
+            ks = Math.max(ks, tpr - fpr);
+        }
+        return ks;
+    }
+
+    /**
+     * 桶内 TPR 的增量最多为该桶正样本占比，FPR 不减
+     *
+     * @return ks 与精确值之差的上界
+     */
+    public double ksErrorBound() {
+        if (totalPos == 0) {
+            return 0;
+        }
+        double max = 0;
+        for (double p : pos) {
+            max = Math.max(max, p);
+        }
+        return max / totalPos;
+    }
+
+    /**
+     * 按分数从高到低，截至每个桶累计覆盖的正样本占比
+     *
+     * @return 长度为桶数的累计增益曲线，第 i 个元素对应分数最高的 i+1 个桶
+     */
+    public double[] gain() {
+        double[] gain = new double[pos.length];
+        double truePos = 0;
+        for (int i = 0; i < pos.length; i++) {
+            truePos += pos[pos.length - 1 - i];
+            gain[i] = totalPos == 0 ? 0 : truePos / totalPos;
+        }
+        return gain;
+    }
+
+    /**
+     * 按分数从高到低，截至每个桶的正样本比例与整体正样本比例之比
+     *
+     * @return 长度为桶数的累计提升度曲线，尚无样本的位置为 0
+     */
+    public double[] lift() {
+        double[] lift = new double[pos.length];
+        double total = totalPos + totalNeg;
+        double truePos = 0;
+        double count = 0;
+        for (int i = 0; i < pos.length; i++) {
+            int bin = pos.length - 1 - i;
+            truePos += pos[bin];
+            count += pos[bin] + neg[bin];
+            lift[i] = count == 0 || totalPos == 0 ? 0 : (truePos / count) / (totalPos / total);
+        }
+        return lift;
+    }
+
+    public int getNumBins() {
+        return pos.length;
+    }
+
+    public double getTotalPositive() {
+        return totalPos;
+    }
+
+    public double getTotalNegative() {
+        return totalNeg;
+    }
+}
@@ -46,6 +46,7 @@ import com.jdt.fedlearn.core.model.common.loss.Loss;
 import com.jdt.fedlearn.core.model.common.loss.SquareLoss;
 import com.jdt.fedlearn.core.model.common.loss.crossEntropy;
 import com.jdt.fedlearn.core.model.common.tree.Tree;
+import com.jdt.fedlearn.core.model.common.tree.InstancePartition;
 import com.jdt.fedlearn.core.model.common.tree.TreeNode;
 import com.jdt.fedlearn.core.model.serialize.FgbModelSerializer;
 import com.jdt.fedlearn.core.parameter.FgbParameter;
@@ -103,6 +104,9 @@ public class DistributedFederatedGBModel implements Model, Serializable {
 
     private List<Double> multiClassUniqueLabelList = new ArrayList<>();
 
+    //节点分裂时划分样本用的位图，按数据集大小复用
+    private transient InstancePartition instancePartition;
+
     //phase2 缓存
     private Map<Integer, Tuple2<Ciphertext, Ciphertext>> ghMap2 = new HashMap<>();
 
@@ -978,7 +982,7 @@ public class DistributedFederatedGBModel implements Model, Serializable {
         leftChild.Hess = lHess;
 
         TreeNode rightChild = new TreeNode(3 * node.index + 1, node.depth + 1, node.featureDim, false);
-        int[] rightIns = MathExt.diffSet2(node.instanceSpace, instanceIds);
+        int[] rightIns = instancePartition().rightOf(node.instanceSpace, instanceIds);
 
         rightChild.instanceSpace = rightIns;
         rightChild.numSample = rightIns.length;
@@ -1180,19 +1184,15 @@ public class DistributedFederatedGBModel implements Model, Serializable {
     }
 
     private void updateCorrespondingTreeNodeSecure(TreeNode[] correspondingTreeNode) {
-        for (int i = 0; i < datasetSize; i++) {
-            TreeNode treenode = correspondingTreeNode[i];
-            // 对于每个datapoint对应的node，如果是leaf就pass
-            if (treenode.isLeaf) {
-                continue;
-            }
-            // 如果不是leaf，判断是否当前节点在左子树里，如果是就更新为左子树，如果不是就更新到右子树里
-            if (Tool.contain(treenode.leftChild.instanceSpace, i)) {
-                correspondingTreeNode[i] = treenode.leftChild;
-            } else {
-                correspondingTreeNode[i] = treenode.rightChild;
-            }
+        // 对于每个datapoint对应的node，如果是leaf就pass，如果不是leaf，按是否在左子树里更新为左子树或右子树
+        instancePartition().moveToChildren(correspondingTreeNode);
+    }
+
+    private InstancePartition instancePartition() {
+        if (instancePartition == null) {
+            instancePartition = new InstancePartition(datasetSize);
         }
+        return instancePartition;
     }
 
     /**
@@ -1760,6 +1760,9 @@ public class DistributedFederatedGBModel implements Model, Serializable {
             StringArray parameterData = (StringArray) jsonData;
             return inferencePhase1(parameterData, inferenceData, this.trees, this.firstRoundPredict, this.multiClassUniqueLabelList);
         } else if (phase == -2) {
+            if (jsonData instanceof BoostN2Req) {
+                return inferenceBatch((BoostN2Req) jsonData, inferenceData, this.passiveQueryTable);
+            }
             return inferencePhase2(jsonData, inferenceData, this.passiveQueryTable);
         } else {
             throw new UnsupportedOperationException("unsupported phase:" + phase);
@@ -1788,6 +1791,36 @@ public class DistributedFederatedGBModel implements Model, Serializable {
     }
 
 
+    /**
+     * 批量推理，一次计算本方所有分裂节点对全部样本的分裂方向，
+     * coordinator 据此在本地完成所有树的路径查找，不再逐层请求
+     *
+     * @param req           本方负责的分裂节点 recordId
+     * @param inferenceData 需要推理的样本
+     * @param queryTable    本方的查询表
+     * @return 按位保存的分裂方向
+     */
+    public BoostN2Res inferenceBatch(BoostN2Req req, InferenceData inferenceData, List<QueryEntry> queryTable) {
+        int[] recordIds = req.getRecordIds();
+        double[][] featuresList = inferenceData.getSample();
+        int numRows = featuresList.length;
+        int words = BoostN2Res.wordsPerRecord(numRows);
+        long[] rightBits = new long[recordIds.length * words];
+        //每个 recordId 占独立的 long 区间，可以按 recordId 并行写入
+        IntStream.range(0, recordIds.length).parallel().forEach(k -> {
+            QueryEntry x = queryTable.get(recordIds[k] - 1);
+            int featureIndex = x.getFeatureIndex() - 1;
+            double splitValue = x.getSplitValue();
+            int offset = k * words;
+            for (int row = 0; row < numRows; row++) {
+                if (featuresList[row][featureIndex] > splitValue) {
+                    rightBits[offset + (row >>> 6)] |= 1L << row;
+                }
+            }
+        });
+        return new BoostN2Res(recordIds, numRows, rightBits);
+    }
+
     public Message inferencePhase2(Message jsonData, InferenceData inferenceData, List<QueryEntry> queryTable) {
         if (jsonData == null) {
             return null;
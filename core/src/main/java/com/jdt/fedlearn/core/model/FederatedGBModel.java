@@ -16,7 +16,9 @@ package com.jdt.fedlearn.core.model;
 
 import com.jdt.fedlearn.common.entity.core.type.AlgorithmType;
 import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.CiphertextPacker;
 import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
+import com.jdt.fedlearn.core.encryption.common.PlaintextPacker;
 import com.jdt.fedlearn.core.encryption.common.PrivateKey;
 import com.jdt.fedlearn.core.encryption.common.PublicKey;
 import com.jdt.fedlearn.core.encryption.javallier.JavallierTool;
@@ -31,6 +33,9 @@ import com.jdt.fedlearn.core.model.common.loss.Loss;
 import com.jdt.fedlearn.core.model.common.loss.SquareLoss;
 import com.jdt.fedlearn.core.model.common.loss.crossEntropy;
 import com.jdt.fedlearn.core.model.common.tree.Tree;
+import com.jdt.fedlearn.core.model.common.tree.histogram.EncryptedHistogram;
+import com.jdt.fedlearn.core.model.common.tree.histogram.FeatureBins;
+import com.jdt.fedlearn.core.model.common.tree.histogram.HistogramCache;
 import com.jdt.fedlearn.common.entity.core.ClientInfo;
 import com.jdt.fedlearn.common.entity.core.feature.Features;
 import com.jdt.fedlearn.core.loader.common.InferenceData;
@@ -44,11 +49,13 @@ import com.jdt.fedlearn.core.type.data.Pair;
 import com.jdt.fedlearn.core.type.data.StringTuple2;
 import com.jdt.fedlearn.core.entity.boost.Bucket;
 import com.jdt.fedlearn.core.loader.boost.BoostTrainData;
+import com.jdt.fedlearn.core.loader.common.ColumnarTable;
 import com.jdt.fedlearn.core.math.MathExt;
 import com.jdt.fedlearn.core.parameter.FgbParameter;
 import com.jdt.fedlearn.core.type.data.Tuple2;
 import com.jdt.fedlearn.core.util.Tool;
 import com.jdt.fedlearn.core.model.common.loss.LogisticLoss;
+import com.jdt.fedlearn.core.model.common.tree.InstancePartition;
 import com.jdt.fedlearn.core.model.common.tree.TreeNode;
 import com.jdt.fedlearn.core.exception.NotImplementedException;
 import com.jdt.fedlearn.core.loader.common.TrainData;
@@ -66,15 +73,17 @@ import java.util.stream.IntStream;
 import static java.util.stream.Collectors.toList;
 
 /**
- * TODO:items(sortedFeatureMap currentNode passiveQueryTable trees...)
+ * TODO:items(nodeBinMap currentNode passiveQueryTable trees...)
  * should save as map(trainID, item) for train parallel
  */
 public class FederatedGBModel implements Model {
     private static final Logger logger = LoggerFactory.getLogger(FederatedGBModel.class);
 
     private int depth = 0;
-    //four col, id,val,grad,hess
-    private Map<Integer, List<Bucket>> sortedFeatureMap = new ConcurrentHashMap<>();
+    //当前节点每个特征非空的桶编号，升序，下标即分裂点序号
+    private Map<Integer, int[]> nodeBinMap = new ConcurrentHashMap<>();
+    //当前节点的样本空间
+    private int[] nodeInstanceSpace;
     private TreeNode currentNode;
     private List<QueryEntry> passiveQueryTable = new ArrayList<>();
     private List<Tree> trees = new ArrayList<>();
@@ -98,14 +107,19 @@ public class FederatedGBModel implements Model {
     // new double[parameter.getNumClass()][datasetSize]
     public double[][] grad;
     public double[][] hess;
-    private List<String> encryptedG;
-    private List<String> encryptedH;
     private String[] testId;
 
     private List<Double> multiClassUniqueLabelList = new ArrayList<>();
 
-    //phase2 缓存
-    private Map<Integer, Tuple2<Ciphertext, Ciphertext>> ghMap2;
+    //主动方为加密后的g h，被动方为phase2 缓存，下标为样本编号；g h 打包时 encryptedGrad 为 (g, h) 的密文，encryptedHess 为 null
+    private Ciphertext[] encryptedGrad;
+    private Ciphertext[] encryptedHess;
+    //主动方当前树的 g h 明文打包方式，不支持打包时为 null
+    private PlaintextPacker ghPacker;
+    //被动方各节点加密直方图缓存，用于兄弟节点直方图相减
+    private final HistogramCache histogramCache = new HistogramCache();
+    //节点分裂时划分样本用的位图，按数据集大小复用
+    private InstancePartition instancePartition;
 
     //用于计算全局敏感度
     public double maxg = 1;
@@ -163,10 +177,25 @@ public class FederatedGBModel implements Model {
         String[] trainUids = trainTestUId._1();
         testId = trainTestUId._2();
         BoostTrainData trainData = new BoostTrainData(rawData, trainUids, features, new ArrayList<>());
+        return initModel(trainData, hyperParameter, features);
+    }
+
+    @Override
+    public BoostTrainData trainInit(ColumnarTable table, String[] uids, int[] testIndex, HyperParameter hyperParameter, Features features, Map<String, Object> others) {
+        Tuple2<String[], String[]> trainTestUId = Tool.splitUid(uids, testIndex);
+        String[] trainUids = trainTestUId._1();
+        testId = trainTestUId._2();
+        BoostTrainData trainData = new BoostTrainData(table, trainUids, features, new ArrayList<>());
+        return initModel(trainData, hyperParameter, features);
+    }
+
+    private BoostTrainData initModel(BoostTrainData trainData, HyperParameter hyperParameter, Features features) {
         this.expressions = trainData.getExpressions();
         newTreeNodes = new LinkedList<>();
         //TODO 修改指针
         parameter = (FgbParameter) hyperParameter;
+        //每个特征只分桶一次，各节点直接基于桶编号构建直方图
+        trainData.binning(parameter.getNumBin());
         //初始化预测值和gradient hessian
         logger.info("actual received features:" + features.toString());
         logger.info("client data dim:" + trainData.getDatasetSize() + "," + trainData.getFeatureDim());
@@ -265,7 +294,7 @@ public class FederatedGBModel implements Model {
             }
             case 4: {
                 contributeFea++;
-                Tuple2<LeftTreeInfo, List<QueryEntry>> req = trainPhase4(jsonData, sortedFeatureMap, passiveQueryTable);
+                Tuple2<LeftTreeInfo, List<QueryEntry>> req = trainPhase4(jsonData, trainData, nodeBinMap, nodeInstanceSpace, passiveQueryTable);
                 passiveQueryTable = req._2();
                 if (trainData.hasLabel) {
                     req._1().setTrainMetric(metricValue);
@@ -391,8 +420,20 @@ public class FederatedGBModel implements Model {
         // 加密g和h
         if (req.isNewTree()) {
             treeInit(trainSet);
-            encryptedG = Arrays.stream(grad[numClassRound]).parallel().mapToObj(g -> (encryptionTool.encrypt(g, privateKey.generatePublicKey()))).map(Ciphertext::serialize).collect(toList());
-            encryptedH = Arrays.stream(hess[numClassRound]).parallel().mapToObj(h -> encryptionTool.encrypt(h, privateKey.generatePublicKey())).map(Ciphertext::serialize).collect(toList());
+            PublicKey activePublicKey = privateKey.generatePublicKey();
+            double[] g = grad[numClassRound];
+            double[] h = hess[numClassRound];
+            ghPacker = ghPacker(g, h, activePublicKey);
+            if (ghPacker != null) {
+                // 每个样本的 (g, h) 放进同一明文，加密和后续同态加法次数减半
+                encryptedGrad = IntStream.range(0, g.length).parallel()
+                        .mapToObj(i -> encryptionTool.encryptInteger(ghPacker.encode(g[i], h[i]), activePublicKey))
+                        .toArray(Ciphertext[]::new);
+                encryptedHess = null;
+            } else {
+                encryptedGrad = Arrays.stream(g).parallel().mapToObj(x -> encryptionTool.encrypt(x, activePublicKey)).toArray(Ciphertext[]::new);
+                encryptedHess = Arrays.stream(h).parallel().mapToObj(x -> encryptionTool.encrypt(x, activePublicKey)).toArray(Ciphertext[]::new);
+            }
         }
 
         // 有label的客户端计算g 和 h(第一轮g、h已在初始化过程计算，其他轮在phase5计算)
@@ -410,16 +451,55 @@ public class FederatedGBModel implements Model {
         // generate publickey and encrytedArray storing (g, h) only at root(new tree)
         EncryptedGradHess res;
         if (req.isNewTree()) {
-            StringTuple2[] encryptedArray = Arrays.stream(instanceSpace).parallel().mapToObj(x -> new StringTuple2(encryptedG.get(x), encryptedH.get(x))).toArray(StringTuple2[]::new);
-            String pk = privateKey.generatePublicKey().serialize();
-            res = new EncryptedGradHess(req.getClient(), instanceSpace, encryptedArray, pk, true);
+            // (g, h) 交替排列后二进制打包，顺序与 instanceSpace 一致；明文已打包时每个样本一个密文
+            Ciphertext[] encryptedArray;
+            if (ghPacker != null) {
+                encryptedArray = Arrays.stream(instanceSpace).mapToObj(ins -> encryptedGrad[ins]).toArray(Ciphertext[]::new);
+            } else {
+                encryptedArray = new Ciphertext[2 * instanceSpace.length];
+                for (int i = 0; i < instanceSpace.length; i++) {
+                    encryptedArray[2 * i] = encryptedGrad[instanceSpace[i]];
+                    encryptedArray[2 * i + 1] = encryptedHess[instanceSpace[i]];
+                }
+            }
+            PublicKey pk = privateKey.generatePublicKey();
+            res = new EncryptedGradHess(req.getClient(), instanceSpace, null, pk.serialize(), true);
+            res.setPackedGh(CiphertextPacker.pack(encryptedArray, pk, encryptionTool));
+            res.setSlotPacked(ghPacker != null);
         } else {
             res = new EncryptedGradHess(req.getClient(), instanceSpace);
         }
+        res.setNodeIndex(currentNode.index);
         res.setTrainMetric(metricValue);
         return res;
     }
 
+    /**
+     * g h 的明文打包方式，槽位需容纳所有样本累加的结果
+     *
+     * @return 加密工具不支持整数明文或明文空间放不下两个槽位时返回 null
+     */
+    private PlaintextPacker ghPacker(double[] g, double[] h, PublicKey publicKey) {
+        int plaintextBits = encryptionTool.plaintextBits(publicKey);
+        if (plaintextBits <= 0) {
+            return null;
+        }
+        double bound = 0;
+        for (int i = 0; i < g.length; i++) {
+            bound = Math.max(bound, Math.max(Math.abs(g[i]), Math.abs(h[i])));
+        }
+        if (Double.isNaN(bound) || Double.isInfinite(bound)) {
+            return null;
+        }
+        try {
+            PlaintextPacker packer = new PlaintextPacker(bound, Math.max(g.length, 1), plaintextBits);
+            return packer.getSlots() >= 2 ? packer : null;
+        } catch (IllegalArgumentException e) {
+            logger.info("plaintext packing disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * client端根据g和h，计算所有的gl，hl
      * 输入的json data中包含了encrypted gl 和 hl
@@ -428,7 +508,6 @@ public class FederatedGBModel implements Model {
      * @param trainSet 训练数据
      * @return 训练结果
      */
-    // TODO 把ghMap2加入入参
     public BoostP2Res trainPhase2(Message jsonData, BoostTrainData trainSet, EncryptionTool encryptionTool) {
         //含label的客户端无需处理
         if (trainSet.hasLabel) {
@@ -442,40 +521,154 @@ public class FederatedGBModel implements Model {
         int[] instanceSpace = req.getInstanceSpace();
         // initialize publicKey with null
         if (req.getNewTree()) {
-            // if new tree, get Grad Hess.
-            StringTuple2[] gh = req.getGh();
             // if new tree, get publicKey.
             String pubKey = req.getPubKey();
             publicKey = encryptionTool.restorePublicKey(pubKey);
             // instance index i - (g_i, h_i)
-            ghMap2 = new HashMap<>();
-            for (int i = 0; i < instanceSpace.length; i++) {
-                ghMap2.put(instanceSpace[i], new Tuple2<>(encryptionTool.restoreCiphertext(gh[i].getFirst()), encryptionTool.restoreCiphertext(gh[i].getSecond())));
+            encryptedGrad = new Ciphertext[datasetSize];
+            encryptedHess = new Ciphertext[datasetSize];
+            if (req.getPackedGh() != null && req.isSlotPacked()) {
+                // 每个密文为一个样本打包在一起的 (g, h)，直方图只需累加一个密文
+                Ciphertext[] gh = CiphertextPacker.unpack(req.getPackedGh(), publicKey, encryptionTool);
+                for (int i = 0; i < instanceSpace.length; i++) {
+                    encryptedGrad[instanceSpace[i]] = gh[i];
+                }
+                encryptedHess = null;
+            } else if (req.getPackedGh() != null) {
+                Ciphertext[] gh = CiphertextPacker.unpack(req.getPackedGh(), publicKey, encryptionTool);
+                for (int i = 0; i < instanceSpace.length; i++) {
+                    encryptedGrad[instanceSpace[i]] = gh[2 * i];
+                    encryptedHess[instanceSpace[i]] = gh[2 * i + 1];
+                }
+            } else {
+                StringTuple2[] gh = req.getGh();
+                for (int i = 0; i < instanceSpace.length; i++) {
+                    encryptedGrad[instanceSpace[i]] = encryptionTool.restoreCiphertext(gh[i].getFirst());
+                    encryptedHess[instanceSpace[i]] = encryptionTool.restoreCiphertext(gh[i].getSecond());
+                }
             }
+            histogramCache.clear();
         }
+        nodeInstanceSpace = instanceSpace;
         //TODO 根据样本空间查询
 //        ColSampler colSampler = trainSet.getColSampler();
         //对每一列（特征），每个特征计算gl hl
-        //忽略column 0 ，col-0 是用户id
-        PublicKey finalPublicKey = publicKey;
+        EncryptedHistogram[] histograms = nodeHistograms(req.getNodeIndex(), instanceSpace, trainSet, publicKey, encryptionTool);
         // feature从1开始，不是从0开始
-        // TODO 为什么会从这里print出来很多的is true??
         FeatureLeftGH[] bodyArray = IntStream.range(1, trainSet.getFeatureDim() + 1)
                 .parallel()
                 .mapToObj(col -> {
-                    // current instance space corresponding feature value matrix
-                    double[][] theFeature = trainSet.getFeature(instanceSpace, col);
-                    // use feature value to sort and bucket the feature
-                    List<Bucket> buckets = sortAndGroup(theFeature, parameter.getNumBin());
-                    // feature id -> feature buckets
-                    sortedFeatureMap.put(col, buckets);
-                    StringTuple2[] full = ghSum(buckets, ghMap2, finalPublicKey, encryptionTool);
-                    return new FeatureLeftGH(req.getClient(), "" + col, full);
+                    // 只返回非空的桶，分裂点序号即非空桶的序号
+                    int[] occupied = histograms[col - 1].occupiedBins();
+                    nodeBinMap.put(col, occupied);
+                    FeatureLeftGH featureLeftGH = new FeatureLeftGH(req.getClient(), "" + col, null);
+                    featureLeftGH.setPackedGhLeft(histograms[col - 1].pack(occupied, publicKey, encryptionTool));
+                    return featureLeftGH;
                 })
                 .toArray(FeatureLeftGH[]::new);
         return new BoostP2Res(bodyArray);
     }
 
+    /**
+     * 获取节点所有特征的加密直方图。
+     * 若该节点的直方图已在处理兄弟节点时由父节点相减得到且样本空间一致，直接取用；
+     * 若父节点直方图已缓存且该节点不是nan子节点，则只对两个子节点中样本较少的一个做累加，另一个由父节点减去得到；
+     * 否则（根节点或节点编号未知）对所有样本累加。
+     *
+     * @param nodeIndex      节点编号，0表示未知，不使用缓存
+     * @param instanceSpace  节点样本空间
+     * @param trainSet       训练数据，包含预分桶结果
+     * @param publicKey      公钥
+     * @param encryptionTool 加密工具
+     * @return 下标为特征编号减1的加密直方图
+     */
+    private EncryptedHistogram[] nodeHistograms(int nodeIndex, int[] instanceSpace, BoostTrainData trainSet,
+                                                PublicKey publicKey, EncryptionTool encryptionTool) {
+        if (nodeIndex <= 0) {
+            return buildHistograms(instanceSpace, trainSet, publicKey, encryptionTool);
+        }
+        histogramCache.evictBefore(nodeIndex);
+        EncryptedHistogram[] histograms;
+        HistogramCache.Entry derived = histogramCache.remove(nodeIndex);
+        if (derived != null && !derived.sameSpace(instanceSpace)) {
+            derived = null;
+        }
+        // nan子节点没有唯一的兄弟节点，不使用父节点相减，父节点缓存留给左/右子节点
+        HistogramCache.Entry parent = derived == null && !HistogramCache.isNanChild(nodeIndex)
+                ? histogramCache.remove(HistogramCache.parentIndex(nodeIndex)) : null;
+        if (derived != null) {
+            histograms = derived.getHistograms();
+        } else if (parent == null) {
+            histograms = buildHistograms(instanceSpace, trainSet, publicKey, encryptionTool);
+        } else {
+            EncryptedHistogram[] parentHistograms = parent.getHistograms();
+            int[] siblingSpace = diffInstance(parent.getInstanceSpace(), instanceSpace);
+            EncryptedHistogram[] siblingHistograms;
+            if (siblingSpace.length < instanceSpace.length) {
+                siblingHistograms = buildHistograms(siblingSpace, trainSet, publicKey, encryptionTool);
+                histograms = IntStream.range(0, parentHistograms.length).parallel()
+                        .mapToObj(i -> parentHistograms[i].subtract(siblingHistograms[i], publicKey, encryptionTool))
+                        .toArray(EncryptedHistogram[]::new);
+            } else {
+                histograms = buildHistograms(instanceSpace, trainSet, publicKey, encryptionTool);
+                EncryptedHistogram[] finalHistograms = histograms;
+                siblingHistograms = IntStream.range(0, parentHistograms.length).parallel()
+                        .mapToObj(i -> parentHistograms[i].subtract(finalHistograms[i], publicKey, encryptionTool))
+                        .toArray(EncryptedHistogram[]::new);
+            }
+            histogramCache.putSibling(HistogramCache.siblingIndex(nodeIndex), siblingSpace, siblingHistograms);
+        }
+        // 子节点深度达到上限时必为叶节点，无需作为父节点缓存
+        if (HistogramCache.depthOf(nodeIndex) + 1 < parameter.getMaxDepth()) {
+            histogramCache.put(nodeIndex, instanceSpace, histograms);
+        }
+        return histograms;
+    }
+
+    private EncryptedHistogram[] buildHistograms(int[] instanceSpace, BoostTrainData trainSet,
+                                                 PublicKey publicKey, EncryptionTool encryptionTool) {
+        // 一次线性扫描得到每个桶的加密 g h 之和
+        return IntStream.range(1, trainSet.getFeatureDim() + 1)
+                .parallel()
+                .mapToObj(col -> EncryptedHistogram.build(trainSet.getFeatureBins(col), instanceSpace,
+                        encryptedGrad, encryptedHess, publicKey, encryptionTool))
+                .toArray(EncryptedHistogram[]::new);
+    }
+
+    //allSet 中不属于 subSet 的样本，保持原有顺序
+    private int[] diffInstance(int[] allSet, int[] subSet) {
+        boolean[] inSub = new boolean[datasetSize];
+        for (int ins : subSet) {
+            inSub[ins] = true;
+        }
+        return Arrays.stream(allSet).filter(ins -> !inSub[ins]).toArray();
+    }
+
+    /**
+     * 单个特征在当前节点上的明文直方图，仅返回非空桶，同时记录非空桶编号
+     *
+     * @param col           特征编号
+     * @param bins          特征预分桶结果
+     * @param instanceSpace 当前节点样本空间
+     * @param grad          样本编号 -> g
+     * @param hess          样本编号 -> h
+     * @return 每个非空桶的 (g和, h和)
+     */
+    private DoubleTuple2[] plainHistogram(int col, FeatureBins bins, int[] instanceSpace, double[] grad, double[] hess) {
+        double[] binG = new double[bins.getNumBins()];
+        double[] binH = new double[bins.getNumBins()];
+        int[] count = new int[bins.getNumBins()];
+        for (int ins : instanceSpace) {
+            int bin = bins.binOf(ins);
+            binG[bin] += grad[ins];
+            binH[bin] += hess[ins];
+            count[bin]++;
+        }
+        int[] occupied = IntStream.range(0, bins.getNumBins()).filter(bin -> count[bin] > 0).toArray();
+        nodeBinMap.put(col, occupied);
+        return Arrays.stream(occupied).mapToObj(bin -> new DoubleTuple2(binG[bin], binH[bin])).toArray(DoubleTuple2[]::new);
+    }
+
     /**
      * 对于一个feature，计算并返回feature bucket
      */
@@ -591,18 +784,10 @@ public class FederatedGBModel implements Model {
         //遍历属于自己的未加密特征
         //忽略column 0 ，col 0 是用户id
         int[] instanceSpace = currentNode.instanceSpace;
-        Map<Integer, DoubleTuple2> ghMap = new HashMap<>();
-        for (int ins : instanceSpace) {
-            ghMap.put(ins, new DoubleTuple2(grad[numClassRound][ins], hess[numClassRound][ins]));
-        }
+        nodeInstanceSpace = instanceSpace;
         for (int col = 1; col <= trainSet.getFeatureDim(); col++) {
-            double[][] rawFeature = trainSet.getFeature(instanceSpace, col);
-            //TODO 在 sortAndGroup 函数中区分数值型与枚举型
-            List<Bucket> buckets = sortAndGroup(rawFeature, parameter.getNumBin());
-            //TODO 使用更轻量级的buckets作为缓存
-            sortedFeatureMap.put(col, buckets);
             // body: BucketIndex -> (gL, hL)
-            DoubleTuple2[] body = processEachNumericFeature2(buckets, ghMap); // ghMap: index -> (g,h)
+            DoubleTuple2[] body = plainHistogram(col, trainSet.getFeatureBins(col), instanceSpace, grad[numClassRound], hess[numClassRound]);
             List<Tuple2<Double, Integer>> featureGain = computeGain(body, g, h, parameter);
             Optional<Tuple2<Double, Integer>> featureMaxGain = featureGain.parallelStream().max(Comparator.comparing(Tuple2::_1));
             // 本地特征最佳split gain和其他client进行对比
@@ -697,6 +882,21 @@ public class FederatedGBModel implements Model {
      * @return
      */
     private DoubleTuple2[] decryptGH(FeatureLeftGH input, EncryptionTool encryptionTool, PrivateKey privateKey) {
+        if (input.getPackedGhLeft() != null) {
+            Ciphertext[] packedGH = CiphertextPacker.unpack(input.getPackedGhLeft(), privateKey.generatePublicKey(), encryptionTool);
+            if (ghPacker != null) {
+                // 每个桶一个密文，解密后拆出 (g和, h和)
+                return Arrays.stream(packedGH)
+                        .parallel()
+                        .map(c -> ghPacker.decode(encryptionTool.decryptInteger(c, privateKey), 2))
+                        .map(gh -> new DoubleTuple2(gh[0], gh[1]))
+                        .toArray(DoubleTuple2[]::new);
+            }
+            return IntStream.range(0, packedGH.length / 2)
+                    .parallel()
+                    .mapToObj(i -> new DoubleTuple2(encryptionTool.decrypt(packedGH[2 * i], privateKey), encryptionTool.decrypt(packedGH[2 * i + 1], privateKey)))
+                    .toArray(DoubleTuple2[]::new);
+        }
         // Left G and Left H for one feature at each bucket
         StringTuple2[] tmpGH = input.getGhLeft();
         // decrypt G and H
@@ -758,21 +958,51 @@ public class FederatedGBModel implements Model {
                 }
             }
         }
+        passiveQueryTable = appendQueryEntry(passiveQueryTable, featureIndex, splitValue);
+        int recordId = passiveQueryTable.get(passiveQueryTable.size() - 1).getRecordId();
+        int[] left = Tool.list2IntArray(leftIns);
+        Tuple2<LeftTreeInfo, List<QueryEntry>> t = new Tuple2<>(new LeftTreeInfo(recordId, left), passiveQueryTable);
+        return t;
+    }
+
+    /**
+     * 基于预分桶结果的 phase4，分裂值为所选桶的上界，左子树为当前节点中桶编号不大于所选桶的样本
+     *
+     * @param jsonData          迭代数据
+     * @param trainSet          训练数据，包含预分桶结果
+     * @param nodeBinMap        (feature id, 当前节点非空桶编号)
+     * @param instanceSpace     当前节点样本空间
+     * @param passiveQueryTable 查询表
+     * @return 左子树信息和更新后的查询表
+     */
+    public Tuple2<LeftTreeInfo, List<QueryEntry>> trainPhase4(Message jsonData, BoostTrainData trainSet, Map<Integer, int[]> nodeBinMap,
+                                                              int[] instanceSpace, List<QueryEntry> passiveQueryTable) {
+        BoostP4Req req = (BoostP4Req) (jsonData);
+        if (!req.isAccept()) {
+            return new Tuple2<>(new LeftTreeInfo(0, null), passiveQueryTable);
+        }
+        int featureIndex = req.getkOpt();
+        FeatureBins bins = trainSet.getFeatureBins(featureIndex);
+        int splitBin = nodeBinMap.get(featureIndex)[req.getvOpt()];
+        double splitValue = bins.getSplitValue(splitBin);
+        int[] left = Arrays.stream(instanceSpace).filter(ins -> bins.binOf(ins) <= splitBin).toArray();
+        passiveQueryTable = appendQueryEntry(passiveQueryTable, featureIndex, splitValue);
+        int recordId = passiveQueryTable.get(passiveQueryTable.size() - 1).getRecordId();
+        return new Tuple2<>(new LeftTreeInfo(recordId, left), passiveQueryTable);
+    }
+
+    //新建查询表条目记录分裂特征和分裂值，recordId 从1开始递增
+    private List<QueryEntry> appendQueryEntry(List<QueryEntry> passiveQueryTable, int featureIndex, double splitValue) {
         int recordId = 1;
         if (passiveQueryTable == null || passiveQueryTable.size() == 0) {
-            QueryEntry entry = new QueryEntry(recordId, featureIndex, splitValue); // 新建查询表条目记录分裂特征和分裂值
             passiveQueryTable = new ArrayList<>();
-            passiveQueryTable.add(entry);
         } else {
             QueryEntry lastLine = passiveQueryTable.get(passiveQueryTable.size() - 1); // 当前查询表的最后一行
             assert lastLine != null;
             recordId = lastLine.getRecordId() + 1;
-            QueryEntry line = new QueryEntry(recordId, featureIndex, splitValue);
-            passiveQueryTable.add(line);
         }
-        int[] left = Tool.list2IntArray(leftIns);
-        Tuple2<LeftTreeInfo, List<QueryEntry>> t = new Tuple2<>(new LeftTreeInfo(recordId, left), passiveQueryTable);
-        return t;
+        passiveQueryTable.add(new QueryEntry(recordId, featureIndex, splitValue));
+        return passiveQueryTable;
     }
 
     //build full query index and update prediction and grad
@@ -846,7 +1076,7 @@ public class FederatedGBModel implements Model {
         leftChild.Hess = lHess;
 
         TreeNode rightChild = new TreeNode(3 * node.index + 1, node.depth + 1, node.featureDim, false);
-        int[] rightIns = MathExt.diffSet2(node.instanceSpace, instanceIds);
+        int[] rightIns = instancePartition().rightOf(node.instanceSpace, instanceIds);
 
         rightChild.instanceSpace = rightIns;
         rightChild.numSample = rightIns.length;
@@ -1049,19 +1279,15 @@ public class FederatedGBModel implements Model {
     }
 
     private void updateCorrespondingTreeNodeSecure(TreeNode[] correspondingTreeNode) {
-        for (int i = 0; i < datasetSize; i++) {
-            TreeNode treenode = correspondingTreeNode[i];
-            // 对于每个datapoint对应的node，如果是leaf就pass
-            if (treenode.isLeaf) {
-                continue;
-            }
-            // 如果不是leaf，判断是否当前节点在左子树里，如果是就更新为左子树，如果不是就更新到右子树里
-            if (Tool.contain(treenode.leftChild.instanceSpace, i)) {
-                correspondingTreeNode[i] = treenode.leftChild;
-            } else {
-                correspondingTreeNode[i] = treenode.rightChild;
-            }
+        // 对于每个datapoint对应的node，如果是leaf就pass，如果不是leaf，按是否在左子树里更新为左子树或右子树
+        instancePartition().moveToChildren(correspondingTreeNode);
+    }
+
+    private InstancePartition instancePartition() {
+        if (instancePartition == null) {
+            instancePartition = new InstancePartition(datasetSize);
         }
+        return instancePartition;
     }
 
     /**
@@ -1085,6 +1311,9 @@ public class FederatedGBModel implements Model {
             StringArray parameterData = (StringArray) jsonData;
             return inferencePhase1(parameterData, inferenceData, this.trees, this.firstRoundPred, this.multiClassUniqueLabelList);
         } else if (phase == -2) {
+            if (jsonData instanceof BoostN2Req) {
+                return inferenceBatch((BoostN2Req) jsonData, inferenceData, this.passiveQueryTable);
+            }
             return inferencePhase2(jsonData, inferenceData, this.passiveQueryTable);
         } else {
             throw new UnsupportedOperationException("unsupported phase:" + phase);
@@ -1113,6 +1342,36 @@ public class FederatedGBModel implements Model {
     }
 
 
+    /**
+     * 批量推理，一次计算本方所有分裂节点对全部样本的分裂方向，
+     * coordinator 据此在本地完成所有树的路径查找，不再逐层请求
+     *
+     * @param req           本方负责的分裂节点 recordId
+     * @param inferenceData 需要推理的样本
+     * @param queryTable    本方的查询表
+     * @return 按位保存的分裂方向
+     */
+    public BoostN2Res inferenceBatch(BoostN2Req req, InferenceData inferenceData, List<QueryEntry> queryTable) {
+        int[] recordIds = req.getRecordIds();
+        double[][] featuresList = inferenceData.getSample();
+        int numRows = featuresList.length;
+        int words = BoostN2Res.wordsPerRecord(numRows);
+        long[] rightBits = new long[recordIds.length * words];
+        //每个 recordId 占独立的 long 区间，可以按 recordId 并行写入
+        IntStream.range(0, recordIds.length).parallel().forEach(k -> {
+            QueryEntry x = queryTable.get(recordIds[k] - 1);
+            int featureIndex = x.getFeatureIndex() - 1;
+            double splitValue = x.getSplitValue();
+            int offset = k * words;
+            for (int row = 0; row < numRows; row++) {
+                if (featuresList[row][featureIndex] > splitValue) {
+                    rightBits[offset + (row >>> 6)] |= 1L << row;
+                }
+            }
+        });
+        return new BoostN2Res(recordIds, numRows, rightBits);
+    }
+
     public Message inferencePhase2(Message jsonData, InferenceData inferenceData, List<QueryEntry> queryTable) {
         if (jsonData == null) {
             return null;
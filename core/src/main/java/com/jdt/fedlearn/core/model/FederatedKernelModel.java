@@ -34,6 +34,7 @@ import com.jdt.fedlearn.core.loader.common.CommonInferenceData;
 import com.jdt.fedlearn.core.loader.common.InferenceData;
 import com.jdt.fedlearn.core.loader.common.TrainData;
 import com.jdt.fedlearn.core.loader.kernelLinearRegression.KernelLinearRegressionTrainData;
+import com.jdt.fedlearn.core.math.BlockedMatrix;
 import com.jdt.fedlearn.core.math.MathExt;
 import com.jdt.fedlearn.core.math.Normalizer;
 import com.jdt.fedlearn.core.math.NormalizerOutPackage;
@@ -47,6 +48,7 @@ import com.jdt.fedlearn.core.type.*;
 import com.jdt.fedlearn.core.type.data.Tuple2;
 import com.jdt.fedlearn.core.util.Tool;
 import com.jdt.fedlearn.grpc.federatedlearning.Vector;
+import org.ejml.data.DMatrixRMaj;
 import org.ejml.simple.SimpleMatrix;
 import org.jblas.DoubleMatrix;
 import org.jblas.Solve;
@@ -437,16 +439,10 @@ public class FederatedKernelModel implements Model {
         int col = featureTrain.numCols();
         transMetric = MathExt.generateNormal(col, (int) mapdim, scale);
         bias1 = MathExt.generateUniform((int) mapdim);
-        double[][] mulity = new double[num][transMetric[0].length];
-        for (int i = 0; i < mulity.length; i++) {
-            for (int j = 0; j < transMetric[0].length; j++) {
-                for (int k = 0; k < col; k++) {
-                    mulity[i][j] += featureTrain.get(i, k) * transMetric[k][j];
-                }
-                mulity[i][j] = Math.cos(mulity[i][j] + bias1[j]) * Math.sqrt(2) / Math.sqrt((int) mapdim);
-            }
-        }
-        return new SimpleMatrix(mulity);
+        int dim = transMetric[0].length;
+        double[] res = BlockedMatrix.randomFourierFeatures(featureTrain.getDDRM().data, col, BlockedMatrix.flatten(transMetric),
+                bias1, Math.sqrt(2.) / Math.sqrt((int) mapdim), num, col, dim);
+        return SimpleMatrix.wrap(DMatrixRMaj.wrap(num, dim, res));
     }
 
     /**
@@ -458,14 +454,16 @@ public class FederatedKernelModel implements Model {
      * @return 转换后的特征
      */
     public SimpleMatrix kernelApproximation(SimpleMatrix simpleMatrix, SimpleMatrix transMat, Vector bias) {
-        double[][] multiRes = MathExt.matrixMul(simpleMatrix, transMat);
-        double[][] res = new double[multiRes.length][multiRes[0].length];
-        for (int i = 0; i < res.length; i++) {
-            for (int j = 0; j < res[i].length; j++) {
-                res[i][j] = (Math.sqrt(2.) / Math.sqrt(bias.getValuesCount())) * Math.cos(multiRes[i][j] + bias.getValues(j));
-            }
+        int num = simpleMatrix.numRows();
+        int col = simpleMatrix.numCols();
+        int inner = transMat.numRows();
+        int dim = transMat.numCols();
+        if (col < inner) {
+            throw new IllegalArgumentException("feature dim " + col + " less than transform rows " + inner);
         }
-        return new SimpleMatrix(res);
+        double[] res = BlockedMatrix.randomFourierFeatures(simpleMatrix.getDDRM().data, col, transMat.getDDRM().data,
+                DataUtils.vectorToArray(bias), Math.sqrt(2.) / Math.sqrt(bias.getValuesCount()), num, inner, dim);
+        return SimpleMatrix.wrap(DMatrixRMaj.wrap(num, dim, res));
     }
 
 
@@ -35,6 +35,7 @@ import com.jdt.fedlearn.core.model.common.loss.LogisticLoss;
 import com.jdt.fedlearn.core.model.common.loss.Loss;
 import com.jdt.fedlearn.core.model.common.loss.SquareLoss;
 import com.jdt.fedlearn.core.model.common.loss.crossEntropy;
+import com.jdt.fedlearn.core.model.common.tree.InstancePartition;
 import com.jdt.fedlearn.core.model.common.tree.MixTreeNode;
 import com.jdt.fedlearn.core.model.serialize.MixGBSerializer;
 import com.jdt.fedlearn.core.parameter.MixGBParameter;
@@ -52,6 +53,7 @@ import com.jdt.fedlearn.core.util.Tool;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -74,15 +76,19 @@ public class MixGBModel implements Model {
      * 当前正在处理的结点
      */
     private MixTreeNode curTreeNode;
+    //节点分裂时划分样本用的位图，按数据集大小复用
+    private InstancePartition instancePartition;
     /**
      * 混合 XGB 使用的参数信息
      */
     private MixGBParameter mixParams;
     private MetricValue metricValue;
     /**
-     * common ID G H info
+     * common ID G H info, 升序的共同样本编号，二分查找得到 encG/encH 中的行号
      */
-    private Map<Integer, DistributedPaillierNative.signedByteArray[]> encGH;
+    private int[] encGHIds;
+    private DistributedPaillierNative.signedByteArray[] encG;
+    private DistributedPaillierNative.signedByteArray[] encH;
     private Map<Integer, DoubleTuple2> localGH;
     /**
      * 训练中的当前叶结点权重是否保存(根据本地 label 情况和叶结点上样本情况决定)
@@ -342,8 +348,11 @@ public class MixGBModel implements Model {
         int[] instId = req.getInstId();
         if (instId != null) {
             DistributedPaillierNative.signedByteArray[][] commonIdGH = req.getGh();
-            encGH = IntStream.range(0, instId.length).boxed().parallel()
-                    .collect(Collectors.toMap(i -> instId[i], i -> commonIdGH[i]));
+            //高32位为样本编号、低32位为原下标，排序后即按编号升序
+            long[] order = IntStream.range(0, instId.length).mapToLong(i -> ((long) instId[i] << 32) | i).sorted().toArray();
+            encGHIds = Arrays.stream(order).mapToInt(x -> (int) (x >> 32)).toArray();
+            encG = Arrays.stream(order).mapToObj(x -> commonIdGH[(int) x][0]).toArray(DistributedPaillierNative.signedByteArray[]::new);
+            encH = Arrays.stream(order).mapToObj(x -> commonIdGH[(int) x][1]).toArray(DistributedPaillierNative.signedByteArray[]::new);
             Arrays.stream(instId).forEach(id -> localGH.remove(id));
         }
         /* 获取 master 计算的全局 metric 值 */
@@ -384,7 +393,7 @@ public class MixGBModel implements Model {
                 .toArray();
         res.setFeaturesSet(targetFeatureNames);
         res.setFeatureValue(thresholds);
-        if (encGH == null) {
+        if (encGHIds == null) {
             curTreeNode.setTmpInstanceIdSpaceSet(curTreeNode.getInstanceIdSpaceSet());
         } else {
             /* for common features, only use local ids in horizontal split phase, remove all common ids */
@@ -478,7 +487,7 @@ public class MixGBModel implements Model {
     private DistributedPaillierNative.signedByteArray[] computeMixGHSum(Set<Integer> leftIds) {
         Set<Integer> rightIds = new HashSet<>(curTreeNode.getTmpInstanceIdSpaceSet());
         rightIds.removeAll(leftIds);
-        if (encGH == null || encGH.isEmpty()) {
+        if (encGHIds == null || encGHIds.length == 0) {
             /* which means this client is the active party in this turn */
             return computeEncLocalGHSum(leftIds, rightIds);
         }
@@ -490,16 +499,13 @@ public class MixGBModel implements Model {
         Set<Integer> commonRightIds = splitIdSetByCommon(rightIds, commonIdSet);
 
         DistributedPaillierNative.signedByteArray[] partialGH = computeEncLocalGHSum(leftIds, rightIds);
-        for (Integer leftId: commonLeftIds) {
-            DistributedPaillierNative.signedByteArray[] ghi = encGH.get(leftId);
-            partialGH[0] = pheKeys.add(ghi[0], partialGH[0], pheKeys.getPk());
-            partialGH[1] = pheKeys.add(ghi[1], partialGH[1], pheKeys.getPk());
-        }
-        for (Integer rightId: commonRightIds) {
-            DistributedPaillierNative.signedByteArray[] ghi = encGH.get(rightId);
-            partialGH[2] = pheKeys.add(ghi[0], partialGH[2], pheKeys.getPk());
-            partialGH[3] = pheKeys.add(ghi[1], partialGH[3], pheKeys.getPk());
-        }
+        int[][] groups = new int[][]{commonLeftIds.stream().mapToInt(Integer::intValue).toArray(),
+                commonRightIds.stream().mapToInt(Integer::intValue).toArray()};
+        DistributedPaillierNative.signedByteArray[][] commonGH = encCommonGroupSumGH(groups);
+        partialGH[0] = pheKeys.add(commonGH[0][0], partialGH[0], pheKeys.getPk());
+        partialGH[1] = pheKeys.add(commonGH[1][0], partialGH[1], pheKeys.getPk());
+        partialGH[2] = pheKeys.add(commonGH[0][1], partialGH[2], pheKeys.getPk());
+        partialGH[3] = pheKeys.add(commonGH[1][1], partialGH[3], pheKeys.getPk());
         return partialGH;
     }
 
@@ -558,7 +564,7 @@ public class MixGBModel implements Model {
                 .map(gh -> pheKeys.decryptPartial(gh, pheKeys.getSk()))
                 .toArray(DistributedPaillierNative.signedByteArray[][]::new);
         res.setGh(decFeatureSplitGH);
-        if (encGH == null) {
+        if (encGHIds == null) {
             /* 标记 active client */
             res.setBoolFlag(true);
         }
@@ -806,20 +812,16 @@ public class MixGBModel implements Model {
             List<Map.Entry<Double, List<Integer>>> sortedIndexGroupByValueMap,
             Set<Integer> missingValueInstIdSet) {
 
-        final DistributedPaillierNative.signedByteArray zero = pheKeys.encryption(0.0, pheKeys.getPk());
-        /* 计算相同取值的样本的梯度值和 */
+        /* 计算相同取值的样本的梯度值和，每个取值的 g、h 各一次批量求和 */
+        int[][] groups = sortedIndexGroupByValueMap.stream()
+                .map(e -> e.getValue().stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        DistributedPaillierNative.signedByteArray[][] groupGH = encCommonGroupSumGH(groups);
         List<Tuple2<Double, DistributedPaillierNative.signedByteArray[]>> sortedSameValueSumGHList =
-                sortedIndexGroupByValueMap.parallelStream()
-                .map(e -> {
-                    DistributedPaillierNative.signedByteArray[] tempGHlValue = new DistributedPaillierNative.signedByteArray[2];
-                    Arrays.fill(tempGHlValue, zero);
-                    for (int index : e.getValue()) {
-                        DistributedPaillierNative.signedByteArray[] idGH = encGH.get(index);
-                        tempGHlValue[0] = pheKeys.add(idGH[0], tempGHlValue[0], pheKeys.getPk());
-                        tempGHlValue[1] = pheKeys.add(idGH[1], tempGHlValue[1], pheKeys.getPk());
-                    }
-                    return new Tuple2<>(e.getKey(), tempGHlValue);
-                }).collect(Collectors.toList());
+                IntStream.range(0, groups.length)
+                .mapToObj(i -> new Tuple2<>(sortedIndexGroupByValueMap.get(i).getKey(),
+                        new DistributedPaillierNative.signedByteArray[]{groupGH[0][i], groupGH[1][i]}))
+                .collect(Collectors.toList());
 
         /* 获取特征的符合参数桶个数要求的分桶候选*/
         if (sortedIndexGroupByValueMap.size() > mixParams.getMaxBinNum()) {
@@ -852,24 +854,26 @@ public class MixGBModel implements Model {
             List<Tuple2<Double, DistributedPaillierNative.signedByteArray[]>> sortedSameValueSumGHList) {
 
         int uniqueSize = sortedIndexGroupByValueMap.size();
-        List<Tuple2<Double, DistributedPaillierNative.signedByteArray[]>> newSortedSameValueSumGHList = new ArrayList<>();
+        /* 先划分连续取值组成的桶，再对每个桶内的取值和批量求和 */
+        List<int[]> buckets = new ArrayList<>();
         int index = 0;
-        Tuple2<Double, DistributedPaillierNative.signedByteArray[]> ghTriple;
         while (index < uniqueSize) {
+            int start = index;
             int tmpBucketSize = sortedIndexGroupByValueMap.get(index).getValue().size();
-            ghTriple = sortedSameValueSumGHList.get(index);
-            DistributedPaillierNative.signedByteArray[] tempGHlValue = new DistributedPaillierNative.signedByteArray[2];
-            tempGHlValue[0] = ghTriple._2()[0];
-            tempGHlValue[1] = ghTriple._2()[1];
             index++;
             while (tmpBucketSize < binSize && index < uniqueSize) {
                 tmpBucketSize += sortedIndexGroupByValueMap.get(index).getValue().size();
-                ghTriple = sortedSameValueSumGHList.get(index);
-                tempGHlValue[0] = pheKeys.add(ghTriple._2()[0], tempGHlValue[0], pheKeys.getPk());
-                tempGHlValue[1] = pheKeys.add(ghTriple._2()[1], tempGHlValue[1], pheKeys.getPk());
                 index++;
             }
-            newSortedSameValueSumGHList.add(new Tuple2<>(sortedSameValueSumGHList.get(index - 1)._1(), tempGHlValue));
+            buckets.add(IntStream.range(start, index).toArray());
+        }
+        int[][] groups = buckets.toArray(new int[0][]);
+        DistributedPaillierNative.signedByteArray[][] groupGH = encGroupSumGH(groups, i -> sortedSameValueSumGHList.get(i)._2());
+        List<Tuple2<Double, DistributedPaillierNative.signedByteArray[]>> newSortedSameValueSumGHList = new ArrayList<>();
+        for (int i = 0; i < groups.length; i++) {
+            int last = groups[i][groups[i].length - 1];
+            newSortedSameValueSumGHList.add(new Tuple2<>(sortedSameValueSumGHList.get(last)._1(),
+                    new DistributedPaillierNative.signedByteArray[]{groupGH[0][i], groupGH[1][i]}));
         }
         return newSortedSameValueSumGHList;
     }
@@ -921,16 +925,37 @@ public class MixGBModel implements Model {
             Set<Integer> missingValueInstIdSet,
             List<Tuple2<Double, DistributedPaillierNative.signedByteArray[]>> sortedSameValueSumGHList) {
 
-        DistributedPaillierNative.signedByteArray[] missingValueGH = pheKeys.getAllZero(2);
-
-        for (int index : missingValueInstIdSet) {
-            DistributedPaillierNative.signedByteArray[] ghPair = encGH.get(index);
-            missingValueGH[0] = pheKeys.add(ghPair[0], missingValueGH[0], pheKeys.getPk());
-            missingValueGH[1] = pheKeys.add(ghPair[1], missingValueGH[1], pheKeys.getPk());
-        }
+        int[][] groups = new int[][]{missingValueInstIdSet.stream().mapToInt(Integer::intValue).toArray()};
+        DistributedPaillierNative.signedByteArray[][] groupGH = encCommonGroupSumGH(groups);
+        DistributedPaillierNative.signedByteArray[] missingValueGH = new DistributedPaillierNative.signedByteArray[]{groupGH[0][0], groupGH[1][0]};
         sortedSameValueSumGHList.add(new Tuple2<>(0.0, missingValueGH));
     }
 
+    /** 按组批量累加加密的 g h，每组的 g、h 各只做一次 native 求和
+     * @param groups 每组的编号
+     * @param ghOf 编号 -> 加密的 [g, h]
+     * @return [各组 g 之和, 各组 h 之和]，空组为0的加密
+     */
+    private DistributedPaillierNative.signedByteArray[][] encGroupSumGH(
+            int[][] groups, IntFunction<DistributedPaillierNative.signedByteArray[]> ghOf) {
+        DistributedPaillierNative.signedByteArray[] gSum = pheKeys.groupSum(groups, i -> ghOf.apply(i)[0], pheKeys.getPk());
+        DistributedPaillierNative.signedByteArray[] hSum = pheKeys.groupSum(groups, i -> ghOf.apply(i)[1], pheKeys.getPk());
+        return new DistributedPaillierNative.signedByteArray[][]{gSum, hSum};
+    }
+
+    /** 同 encGroupSumGH，组内为共同样本编号，密文直接引用 encG/encH，不做复制
+     * @param idGroups 每组的共同样本编号
+     * @return [各组 g 之和, 各组 h 之和]，空组为0的加密
+     */
+    private DistributedPaillierNative.signedByteArray[][] encCommonGroupSumGH(int[][] idGroups) {
+        int[][] rows = Arrays.stream(idGroups)
+                .map(ids -> Arrays.stream(ids).map(id -> Arrays.binarySearch(encGHIds, id)).toArray())
+                .toArray(int[][]::new);
+        DistributedPaillierNative.signedByteArray[] gSum = pheKeys.groupSum(rows, i -> encG[i], pheKeys.getPk());
+        DistributedPaillierNative.signedByteArray[] hSum = pheKeys.groupSum(rows, i -> encH[i], pheKeys.getPk());
+        return new DistributedPaillierNative.signedByteArray[][]{gSum, hSum};
+    }
+
     /** 在分桶 G H 列表的最后，加上缺少特征值的样本的 G H
      * @param missingValueInstIdSet 缺少特征值的样本集合
      * @param sortedSameValueSumGHList 按特征排序的分桶 G H 列表
@@ -959,7 +984,7 @@ public class MixGBModel implements Model {
         int useFeatureNum = trainData.getFeatureDim();
         List<Integer> tempList = IntStream.range(0, useFeatureNum).boxed().collect(Collectors.toCollection(ArrayList::new));
         /* 纵向被动方的平台不计算共同特征，由主动方计算 */
-        if (encGH != null) {
+        if (encGHIds != null) {
             tempList.removeAll(trainData.getCommonFea());
         }
         if (tempList.isEmpty()) {
@@ -1095,7 +1120,7 @@ public class MixGBModel implements Model {
         List<Tuple3<Integer, List<Map.Entry<Double, List<Integer>>>, Set<Integer>>> feaSplitCandidate = usefulFeatureSet.parallelStream().map(index ->
                 getFeaSplitCandidate(index, trainData)).filter(Objects::nonNull).collect(Collectors.toList());
         int binSize = Math.max(1, curTreeNode.getTmpInstanceIdSpaceSet().size() / mixParams.getMaxBinNum());
-        if (encGH == null) {
+        if (encGHIds == null) {
             /* active party compute LocalBestFeatureGain and record it temporarily */
             List<Tuple3<Integer, double[], double[][]>> featureBinGHList = featureBinGHList(binSize, feaSplitCandidate);
             verticalLocalBestFeature(featureBinGHList);
@@ -1317,9 +1342,15 @@ public class MixGBModel implements Model {
      */
     private BoostBodyRes verticalSplit(BoostBodyReq req, MixGBTrainData trainData) {
         /* 根据服务端发送IL，记录相关信息，进入下一个结点。 */
-        Set<Integer> leftSet = Arrays.stream(req.getInstId()).boxed().collect(Collectors.toSet());
-        Set<Integer> myLeftSet = new HashSet<>(curTreeNode.getInstanceIdSpaceSet());
-        myLeftSet.retainAll(leftSet);
+        if (instancePartition == null) {
+            instancePartition = new InstancePartition(trainData.getDatasetSize());
+        }
+        int[] leftIds = req.getInstId();
+        instancePartition.set(leftIds);
+        Set<Integer> myLeftSet = curTreeNode.getInstanceIdSpaceSet().stream()
+                .filter(instancePartition::contains)
+                .collect(Collectors.toSet());
+        instancePartition.clear(leftIds);
         curTreeNode.setSplitFeatureType(1);
         return trainSplit(trainData, myLeftSet);
     }
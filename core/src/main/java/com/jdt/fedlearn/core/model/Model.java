@@ -18,6 +18,7 @@ import com.jdt.fedlearn.core.entity.common.TrainInit;
 import com.jdt.fedlearn.core.entity.distributed.InitResult;
 import com.jdt.fedlearn.core.entity.distributed.SplitResult;
 import com.jdt.fedlearn.common.entity.core.feature.Features;
+import com.jdt.fedlearn.core.loader.common.ColumnarTable;
 import com.jdt.fedlearn.core.loader.common.InferenceData;
 import com.jdt.fedlearn.core.loader.common.TrainData;
 import com.jdt.fedlearn.core.parameter.HyperParameter;
@@ -45,6 +46,22 @@ public interface Model {
      */
     TrainData trainInit(String[][] rawData, String[] uids, int[] testIndex, HyperParameter parameter, Features features, Map<String, Object> others);
 
+    /**
+     * 以列式数据初始化，默认转为行式字符串表后复用 {@link #trainInit(String[][], String[], int[], HyperParameter, Features, Map)}，
+     * 支持列式加载的算法可覆盖此方法，避免构造字符串表
+     *
+     * @param table     列式原始数据
+     * @param uids      用户全量训练和验证id信息
+     * @param testIndex 验证集的id索引值
+     * @param parameter 从master传入的超参数
+     * @param features  特征
+     * @param others    其他参数
+     * @return 解析完成的训练数据
+     */
+    default TrainData trainInit(ColumnarTable table, String[] uids, int[] testIndex, HyperParameter parameter, Features features, Map<String, Object> others) {
+        return trainInit(table.toRows(), uids, testIndex, parameter, features, others);
+    }
+
     /**
      * 客户端训练函数,训练的中间过程作为类型T返回，最终结果是一个Model，支持序列化保存
      *
@@ -114,7 +114,9 @@ public class RandomForestModel implements Model {
     private Map<Integer, double[]> maskLeft = new HashMap<>();
     private String[] mess;
     private Map<Integer, TreeNodeRF> currentNodeMap = new ConcurrentHashMap<>();
-    private Map<Integer, Map<Integer, List<String>>> treeInfo = new HashMap<>();
+    //推理用的编译结果及其对应的模型字符串
+    private CompiledForest compiledForest;
+    private String compiledModelString;
     private List<String> expressions = new ArrayList<>();
 
     // 归一化相关，当使用差分隐私且是回归问题的时候，需要对label进行归一化， 固定加噪强度
@@ -1278,92 +1280,22 @@ public class RandomForestModel implements Model {
      * @return 序列化后的返回结果
      */
     public Message inferenceOneShot(int phase, Message jsonData) {
+        CompiledForest forest = compiledForest();
         if (phase == -1) {
-            Map<Integer, Map<Integer, String>> treeInfo = parseModel(modelString);
-            Map<Integer, Map<Integer, List<String>>> res = new ConcurrentHashMap<>();
-            IntStream.range(0, treeInfo.size()).parallel().forEach(id -> {
-                Integer treeId = id;
-                Map<Integer, List<String>> tmp = new HashMap<>();
-                Map<Integer, String> tree = treeInfo.get(treeId);
-                for (Map.Entry<Integer, String> nodeId : tree.entrySet()) {
-                    String[] s = nodeId.getValue().split(" ");
-                    List<String> vals = new ArrayList<>();
-                    if (s.length > 1) {
-                        // split
-                        int feature = Integer.parseInt(s[0]);
-                        double threshold = Double.parseDouble(s[1]);
-                        for (int i = 0; i < XTest.length; i++) {
-                            if (XTest[i][feature] < threshold) {
-                                vals.add("L");
-                            } else {
-                                vals.add("R");
-                            }
-                        }
-                    } else {
-                        // prediction
-                        for (int i = 0; i < XTest.length; i++) {
-                            vals.add(s[0]);
-                        }
-                    }
-                    tmp.put(nodeId.getKey(), vals);
-                }
-                res.put(treeId, tmp);
-            });
-            this.treeInfo = res;
             // check if is active
             if (modelString.contains("localModel")) {
-                // do local prediction
+                // 主动方本地节点在 phase -2 中直接用编译后的森林计算
                 double[] localPredict = null;
                 return new RandomForestInferMessage(inferenceUid, localPredict, "active", new HashMap<>());
-            } else {
-                return new RandomForestInferMessage(inferenceUid, null, "", res);
             }
+            Map<Integer, Map<Integer, List<String>>> res = new ConcurrentHashMap<>();
+            IntStream.range(0, forest.getNumTrees()).parallel()
+                    .forEach(treeId -> res.put(treeId, forest.directions(treeId, XTest)));
+            return new RandomForestInferMessage(inferenceUid, null, "", res);
         } else if (phase == -2) {
             if (modelString.contains("localModel")) {
                 RandomForestInferMessage req = (RandomForestInferMessage) jsonData;
-                String[] inferenceDataUid = req.getInferenceUid();
-                Map<Integer, Map<Integer, List<String>>> treeInfo = this.treeInfo;
-                Map<Integer, Map<Integer, List<String>>> treeInfoi = req.getTreeInfo();
-                for (Map.Entry<Integer, Map<Integer, List<String>>> treeId : treeInfoi.entrySet()) {
-                    if (treeInfo.containsKey(treeId.getKey())) {
-                        Map<Integer, List<String>> subTreeInfo = treeInfo.get(treeId.getKey());
-                        Map<Integer, List<String>> subClientMap = treeInfoi.get(treeId.getKey());
-                        subTreeInfo.putAll(subClientMap);
-                        treeInfo.put(treeId.getKey(), subTreeInfo);
-                    } else {
-                        treeInfo.put(treeId.getKey(), treeId.getValue());
-                    }
-                }
-
-                double[] inferenceRes = new double[inferenceDataUid.length];
-                Arrays.fill(inferenceRes, 0.);
-                for (Map.Entry<Integer, Map<Integer, List<String>>> treeId : treeInfo.entrySet()) {
-                    int[] nodeIds = new int[inferenceDataUid.length];
-                    int countNode = 0;
-                    Arrays.fill(nodeIds, 0);
-                    Map<Integer, List<String>> singleTreeInfo = treeInfo.get(treeId.getKey());
-                    while (countNode < nodeIds.length) {
-                        for (int i = 0; i < nodeIds.length; i++) {
-                            if (nodeIds[i] != -1) {
-                                String val = singleTreeInfo.get(nodeIds[i]).get(i);
-                                if ("L".equals(val)) {
-                                    nodeIds[i] = nodeIds[i] * 2 + 1;
-                                } else if ("R".equals(val)) {
-                                    nodeIds[i] = nodeIds[i] * 2 + 2;
-                                } else {
-                                    inferenceRes[i] = inferenceRes[i] + Double.parseDouble(val);
-                                    nodeIds[i] = -1;
-                                    countNode = countNode + 1;
-                                }
-                            }
-                        }
-                    }
-                }
-                // divide by numTrees
-                int numTrees = treeInfo.keySet().size();
-                for (int i = 0; i < inferenceRes.length; i++) {
-                    inferenceRes[i] = inferenceRes[i] / numTrees;
-                }
+                double[] inferenceRes = forest.predict(XTest, req.getTreeInfo());
                 return new RandomForestInferMessage(inferenceRes, "active");
             } else {
                 return new RandomForestInferMessage(null, "");
@@ -1373,6 +1305,19 @@ public class RandomForestModel implements Model {
         }
     }
 
+    /**
+     * 模型字符串变化时重新编译，同一模型只解析一次
+     *
+     * @return 编译后的森林
+     */
+    private CompiledForest compiledForest() {
+        if (compiledForest == null || compiledModelString != modelString) {
+            compiledForest = CompiledForest.compile(parseModel(modelString));
+            compiledModelString = modelString;
+        }
+        return compiledForest;
+    }
+
     /**
      * 解析模型
      *
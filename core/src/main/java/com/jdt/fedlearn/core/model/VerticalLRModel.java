@@ -15,6 +15,7 @@ package com.jdt.fedlearn.core.model;
 
 
 import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.EncryptedLinearAlgebra;
 import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
 import com.jdt.fedlearn.core.encryption.common.PublicKey;
 import com.jdt.fedlearn.core.encryption.differentialPrivacy.DifferentialPrivacyFactory;
@@ -198,46 +199,48 @@ public class VerticalLRModel implements Model {
     private Ciphertext[] computeSigmoidWxMinusY(VerticalLinearTrainData trainData, LinearP2Request linearP2Request,
                                                 ClientInfo thisClient, double[] localU, double[] label,
                                                 Ciphertext[] lossXi) {
-        //数组默认初始化为0
+        EncryptedLinearAlgebra algebra = new EncryptedLinearAlgebra(encryptionTool, pubKey);
+        int numBodies = linearP2Request.getBodies().size();
+        boolean hasLocalU = localU != null && localU.length > 0;
+        // 常量只加密一次，所有样本复用
+        Ciphertext minusOne = encryptionTool.encrypt(-1d, pubKey);
+        Ciphertext one = encryptionTool.encrypt(1d, pubKey);
         Ciphertext[] sigmoidWxMinusY = new Ciphertext[trainData.getDatasetSize()];
-        for (int i = 0; i < sigmoidWxMinusY.length; i++) {
-            sigmoidWxMinusY[i] = encryptionTool.encrypt(0, pubKey);
-        }
-        for (int j = 0; j < trainData.getDatasetSize(); j++) {
-            Ciphertext sumU = encryptionTool.encrypt(0, pubKey);
+        IntStream.range(0, trainData.getDatasetSize()).parallel().forEach(j -> {
+            Ciphertext sumU = null;
+            // adding up all local wx_i, i.e. wx_i^p
+            // localU.length>0: 这里对含有label的一方进行判断:若此方只有label(localU.length==0),则直接将其他方的localU 相加.
+            Ciphertext encryptedLocalU = hasLocalU && numBodies > 0 ? encryptionTool.encrypt(localU[j], pubKey) : null;
             for (LinearP1Response d : linearP2Request.getBodies()) {
                 String[][] u = d.getU();
-
-                // adding up all local wx_i, i.e. wx_i^p
-                // localU.length>0: 这里对含有label的一方进行判断:若此方只有label(localU.length==0),则直接将其他方的localU 相加.
-                if (localU != null && localU.length > 0) { // add lcoalU of this party
-                    Ciphertext tmp = encryptionTool.encrypt(localU[j], pubKey);
-                    sumU = encryptionTool.add(sumU, tmp, pubKey);
-                } else {
-                    if (u != null) {
-                        sumU = encryptionTool.add(sumU, encryptionTool.restoreCiphertext(u[j][1]), pubKey);
-                    }
+                Ciphertext term = null;
+                if (hasLocalU) { // add lcoalU of this party
+                    term = encryptedLocalU;
+                } else if (u != null) {
+                    term = encryptionTool.restoreCiphertext(u[j][1]);
+                }
+                if (term != null) {
+                    sumU = sumU == null ? term : encryptionTool.add(sumU, term, pubKey);
                 }
             }
+            if (sumU == null) {
+                sumU = algebra.zero();
+            }
             // compute sigmoid(wx) - y
             Ciphertext sigmoidWx = logisticLoss.sigmoidApproxEnc(sumU, pubKey);
-            Ciphertext minusLabel = encryptionTool.encrypt(-label[j], pubKey);
-            sigmoidWxMinusY[j] = encryptionTool.add(sigmoidWx, minusLabel, pubKey);
 
             // compute sigmoid(wx_i) when y==1 and (1 - sigmoid(wx_i)) when y==0
             // then we mockSend it to Master, decrypting, taking log and computing loss
             if (label[j] == 1) {
+                sigmoidWxMinusY[j] = encryptionTool.add(sigmoidWx, minusOne, pubKey);
                 lossXi[j] = sigmoidWx;
             } else if (label[j] == 0) {
-                lossXi[j] = encryptionTool.add(
-                        encryptionTool.encrypt(1d, pubKey),
-                        encryptionTool.multiply(sigmoidWx, -1, pubKey),
-                        pubKey
-                );
+                sigmoidWxMinusY[j] = sigmoidWx;
+                lossXi[j] = encryptionTool.subtract(one, sigmoidWx, pubKey);
             } else {
                 throw new UnsupportedOperationException("label is not 0 or 1 ! ");
             }
-        }
+        });
         return sigmoidWxMinusY;
     }
 
@@ -246,27 +249,29 @@ public class VerticalLRModel implements Model {
 //        LinearP3Response res = new LinearP3Response();
         LossGradients lossgradients = (LossGradients) data;
         String[] d = lossgradients.getGradient(); // sigmoid(wx)-y
-        // 计算 gradient //数组默认初始化为0
-        Ciphertext[] gradient0 = new Ciphertext[trainData.getFeatureDim()];
-        for (int i = 0; i < gradient0.length; i++) {
-            gradient0[i] = encryptionTool.encrypt(0, pubKey);
-        }
-        Ciphertext gradient1 = encryptionTool.encrypt(0, pubKey);
-
-        if (trainData.getDatasetSize() != 0 && trainData.getFeature().length != 0 && trainData.getFeature() != null) { // for client HAS ONLY LABEL, set gradient to 0
-            for (int j = 0; j < trainData.getDatasetSize(); j++) {
-                for (int k = 0; k < trainData.getFeature()[j].length; k++) {
-                    double tmp = trainData.getFeature()[j][k] / trainData.getDatasetSize(); // xi/|X|
-                    Ciphertext g = encryptionTool.multiply(encryptionTool.restoreCiphertext(d[j]), tmp, pubKey); // sigmoid(wx_i)-y_i * (x_i/|X|)
-                    gradient0[k] = encryptionTool.add(gradient0[k], g, pubKey);
-                }
-                gradient1 = encryptionTool.add(gradient1, encryptionTool.restoreCiphertext(d[j]), pubKey); // gradient1 is the gradient of W0 or b or the intercept.
-            }
-            gradient1 = encryptionTool.multiply(gradient1, 1.0 / trainData.getDatasetSize(), pubKey);
+        EncryptedLinearAlgebra algebra = new EncryptedLinearAlgebra(encryptionTool, pubKey);
+        Ciphertext[] gradient0;
+        Ciphertext gradient1;
+        if (trainData.getDatasetSize() != 0 && trainData.getFeature() != null && trainData.getFeature().length != 0) { // for client HAS ONLY LABEL, set gradient to 0
+            int size = trainData.getDatasetSize();
+            double[][] feature = trainData.getFeature();
+            // 每轮只解析一次密文
+            Ciphertext[] sigmoidWxMinusY = algebra.restore(Arrays.copyOf(d, size));
+            // xi/|X|
+            double[][] scaled = Arrays.stream(feature).parallel()
+                    .map(row -> Arrays.stream(row).map(x -> x / size).toArray()).toArray(double[][]::new);
+            // sum(sigmoid(wx_i)-y_i * (x_i/|X|))
+            gradient0 = algebra.transposeMultiply(sigmoidWxMinusY, scaled, trainData.getFeatureDim());
+            // gradient1 is the gradient of W0 or b or the intercept.
+            gradient1 = encryptionTool.multiply(algebra.sum(sigmoidWxMinusY), 1.0 / size, pubKey);
+        } else {
+            gradient0 = new Ciphertext[trainData.getFeatureDim()];
+            Arrays.fill(gradient0, algebra.zero());
+            gradient1 = algebra.zero();
         }
         Ciphertext[] gradients = Tool.arrayAppend(gradient0, gradient1);
         logger.info("gradients:" + Arrays.toString(gradients));
-        String[] gradientsS = IntStream.range(0, gradients.length).boxed().map(i -> gradients[i].serialize()).toArray(String[]::new);
+        String[] gradientsS = algebra.serialize(gradients);
         LossGradients res = new LossGradients(lossgradients.getClient(), lossgradients.getLoss(), gradientsS);
 //        res.setLoss(LossGradients.getLoss());
 //        res.setGradients(gradientsS);
@@ -0,0 +1,122 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.model.common.tree;
+
+import java.util.*;
+
+/**
+ * 基于 long[] 位图的样本划分，用于树节点分裂时判断样本属于左子节点还是右子节点，
+ * 替代在样本编号数组中线性查找，单次判断为 O(1)。
+ * 位图按数据集大小分配一次后重复使用，每次用完通过 {@link #clear(int[])} 只清除置位过的样本
+ */
+public class InstancePartition {
+    private long[] words;
+
+    public InstancePartition(int size) {
+        this.words = new long[wordIndex(Math.max(size, 1) - 1) + 1];
+    }
+
+    private static int wordIndex(int instance) {
+        return instance >>> 6;
+    }
+
+    //数据集变大时扩容，已有标记保持不变
+    private void ensure(int instance) {
+        int index = wordIndex(instance);
+        if (index >= words.length) {
+            words = Arrays.copyOf(words, Math.max(index + 1, words.length * 2));
+        }
+    }
+
+    public void set(int instance) {
+        ensure(instance);
+        words[wordIndex(instance)] |= 1L << instance;
+    }
+
+    public void set(int[] instances) {
+        for (int instance : instances) {
+            set(instance);
+        }
+    }
+
+    public boolean contains(int instance) {
+        int index = wordIndex(instance);
+        return index < words.length && (words[index] & (1L << instance)) != 0;
+    }
+
+    public void clear(int[] instances) {
+        for (int instance : instances) {
+            int index = wordIndex(instance);
+            if (index < words.length) {
+                words[index] &= ~(1L << instance);
+            }
+        }
+    }
+
+    /**
+     * @param instances 样本编号
+     * @return instances 中未被标记的样本，保持原有顺序
+     */
+    public int[] complement(int[] instances) {
+        int[] res = new int[instances.length];
+        int size = 0;
+        for (int instance : instances) {
+            if (!contains(instance)) {
+                res[size++] = instance;
+            }
+        }
+        return Arrays.copyOf(res, size);
+    }
+
+    /**
+     * 从父节点样本中去掉左子节点样本，得到右子节点样本，结果与 MathExt.diffSet2 一致
+     *
+     * @param parent 父节点样本
+     * @param left   左子节点样本
+     * @return 右子节点样本，保持父节点中的顺序
+     */
+    public int[] rightOf(int[] parent, int[] left) {
+        set(left);
+        try {
+            return complement(parent);
+        } finally {
+            clear(left);
+        }
+    }
+
+    /**
+     * 更新每个样本所在的树节点：非叶子节点上的样本移动到对应的左或右子节点。
+     * 同一层各节点的左子节点样本互不相交，因此所有左子节点共用一个位图
+     *
+     * @param correspondingTreeNode 下标为样本编号，值为样本当前所在节点
+     */
+    public void moveToChildren(TreeNode[] correspondingTreeNode) {
+        Set<TreeNode> parents = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TreeNode node : correspondingTreeNode) {
+            if (!node.isLeaf && parents.add(node)) {
+                set(node.leftChild.instanceSpace);
+            }
+        }
+        for (int i = 0; i < correspondingTreeNode.length; i++) {
+            TreeNode node = correspondingTreeNode[i];
+            if (node.isLeaf) {
+                continue;
+            }
+            correspondingTreeNode[i] = contains(i) ? node.leftChild : node.rightChild;
+        }
+        for (TreeNode parent : parents) {
+            clear(parent.leftChild.instanceSpace);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.model.common.tree.histogram;
+
+import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.CiphertextPacker;
+import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
+import com.jdt.fedlearn.core.encryption.common.PublicKey;
+import com.jdt.fedlearn.core.type.data.StringTuple2;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * 单个特征在某个树节点上的加密直方图，每个桶保存加密的g和、h和以及明文样本数。
+ * 样本数用于判断空桶，由父节点减去兄弟节点得到的直方图中，空桶的密文为0的加密而非null。
+ * g 和 h 由 {@link com.jdt.fedlearn.core.encryption.common.PlaintextPacker} 打包在同一个密文中时，
+ * 加密的 h 为 null，每个桶只保存并累加一个密文。
+ */
+public class EncryptedHistogram {
+    private final Ciphertext[] grad;
+    private final Ciphertext[] hess;
+    private final int[] count;
+
+    private EncryptedHistogram(Ciphertext[] grad, Ciphertext[] hess, int[] count) {
+        this.grad = grad;
+        this.hess = hess;
+        this.count = count;
+    }
+
+    /**
+     * 对节点样本做一次线性扫描，按桶累加加密的g和h
+     *
+     * @param bins           特征预分桶结果
+     * @param instanceSpace  节点样本空间
+     * @param encryptedGrad  样本编号 -> 加密的g，或打包在一起的 (g, h)
+     * @param encryptedHess  样本编号 -> 加密的h，g h 打包时为 null
+     * @param publicKey      公钥
+     * @param encryptionTool 加密工具
+     * @return 加密直方图
+     */
+    public static EncryptedHistogram build(FeatureBins bins, int[] instanceSpace,
+                                           Ciphertext[] encryptedGrad, Ciphertext[] encryptedHess,
+                                           PublicKey publicKey, EncryptionTool encryptionTool) {
+        Ciphertext[] binG = new Ciphertext[bins.getNumBins()];
+        Ciphertext[] binH = encryptedHess == null ? null : new Ciphertext[bins.getNumBins()];
+        int[] count = new int[bins.getNumBins()];
+        for (int ins : instanceSpace) {
+            int bin = bins.binOf(ins);
+            if (count[bin] == 0) {
+                binG[bin] = encryptedGrad[ins];
+                if (binH != null) {
+                    binH[bin] = encryptedHess[ins];
+                }
+            } else {
+                binG[bin] = encryptionTool.add(binG[bin], encryptedGrad[ins], publicKey);
+                if (binH != null) {
+                    binH[bin] = encryptionTool.add(binH[bin], encryptedHess[ins], publicKey);
+                }
+            }
+            count[bin]++;
+        }
+        return new EncryptedHistogram(binG, binH, count);
+    }
+
+    /**
+     * 同态减法得到兄弟节点的直方图，即 this - child，代价只与桶数有关
+     *
+     * @param child          子节点直方图，this 为其父节点直方图
+     * @param publicKey      公钥
+     * @param encryptionTool 加密工具
+     * @return 兄弟节点直方图
+     */
+    public EncryptedHistogram subtract(EncryptedHistogram child, PublicKey publicKey, EncryptionTool encryptionTool) {
+        Ciphertext[] binG = new Ciphertext[count.length];
+        Ciphertext[] binH = hess == null ? null : new Ciphertext[count.length];
+        int[] binCount = new int[count.length];
+        for (int bin = 0; bin < count.length; bin++) {
+            binCount[bin] = count[bin] - child.count[bin];
+            if (binCount[bin] == 0) {
+                continue;
+            }
+            if (child.count[bin] == 0) {
+                binG[bin] = grad[bin];
+                if (binH != null) {
+                    binH[bin] = hess[bin];
+                }
+            } else {
+                binG[bin] = encryptionTool.subtract(grad[bin], child.grad[bin], publicKey);
+                if (binH != null) {
+                    binH[bin] = encryptionTool.subtract(hess[bin], child.hess[bin], publicKey);
+                }
+            }
+        }
+        return new EncryptedHistogram(binG, binH, binCount);
+    }
+
+    /**
+     * @return 非空桶编号，升序，下标即分裂点序号
+     */
+    public int[] occupiedBins() {
+        return IntStream.range(0, count.length).filter(bin -> count[bin] > 0).toArray();
+    }
+
+    /**
+     * @param bins           需要输出的桶编号
+     * @param publicKey      公钥
+     * @param encryptionTool 加密工具
+     * @return 每个桶 (g和, h和) 交替排列后的二进制打包结果，g h 打包时每个桶一个密文
+     */
+    public byte[] pack(int[] bins, PublicKey publicKey, EncryptionTool encryptionTool) {
+        if (hess == null) {
+            Ciphertext[] packed = Arrays.stream(bins).mapToObj(bin -> grad[bin]).toArray(Ciphertext[]::new);
+            return CiphertextPacker.pack(packed, publicKey, encryptionTool);
+        }
+        Ciphertext[] pairs = new Ciphertext[2 * bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            pairs[2 * i] = grad[bins[i]];
+            pairs[2 * i + 1] = hess[bins[i]];
+        }
+        return CiphertextPacker.pack(pairs, publicKey, encryptionTool);
+    }
+
+    /**
+     * @param bins 需要输出的桶编号
+     * @return 每个桶序列化后的 (g和, h和)，g h 打包时第二项为 null
+     */
+    public StringTuple2[] serialize(int[] bins) {
+        return Arrays.stream(bins)
+                .mapToObj(bin -> new StringTuple2(grad[bin].serialize(), hess == null ? null : hess[bin].serialize()))
+                .toArray(StringTuple2[]::new);
+    }
+}
@@ -0,0 +1,126 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.model.common.tree.histogram;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 单个特征的预分桶结果，训练初始化时对整列计算一次，之后每个树节点只需线性扫描样本的桶编号。
+ * 分桶规则与 {@link com.jdt.fedlearn.core.util.Tool#split2bucket2} 一致：相同取值落在同一个桶，
+ * 取值个数不超过 numBin 时每个取值一个桶，否则按样本数等频分桶。
+ * 桶数不超过256时桶编号用byte存储，不超过65536时用short存储，否则用int存储。
+ */
+public class FeatureBins implements Serializable {
+    private static final int BYTE_BIN_LIMIT = 1 << 8;
+    private static final int SHORT_BIN_LIMIT = 1 << 16;
+
+    private final byte[] byteBins;
+    private final short[] shortBins;
+    private final int[] intBins;
+    //每个桶的分裂值，即桶内特征最大值，严格升序
+    private final double[] splitValues;
+
+    public FeatureBins(double[] column, int numBin) {
+        this.splitValues = computeSplitValues(column, numBin);
+        if (splitValues.length <= BYTE_BIN_LIMIT) {
+            byteBins = new byte[column.length];
+            shortBins = null;
+            intBins = null;
+            for (int i = 0; i < column.length; i++) {
+                byteBins[i] = (byte) locate(column[i]);
+            }
+        } else if (splitValues.length <= SHORT_BIN_LIMIT) {
+            byteBins = null;
+            shortBins = new short[column.length];
+            intBins = null;
+            for (int i = 0; i < column.length; i++) {
+                shortBins[i] = (short) locate(column[i]);
+            }
+        } else {
+            byteBins = null;
+            shortBins = null;
+            intBins = new int[column.length];
+            for (int i = 0; i < column.length; i++) {
+                intBins[i] = locate(column[i]);
+            }
+        }
+    }
+
+    private static double[] computeSplitValues(double[] column, int numBin) {
+        int n = column.length;
+        double[] sorted = Arrays.copyOf(column, n);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < n; i = nextDistinct(sorted, i)) {
+            distinct++;
+        }
+        double[] bounds = new double[distinct];
+        int numBounds = 0;
+        if (distinct <= numBin) {
+            for (int i = 0; i < n; i = nextDistinct(sorted, i)) {
+                bounds[numBounds++] = sorted[i];
+            }
+        } else {
+            int size = n / numBin;
+            int start = 0;
+            int end = 0;
+            while (start < n) {
+                while (end < n && end - start < size) {
+                    end = nextDistinct(sorted, end);
+                }
+                bounds[numBounds++] = sorted[end - 1];
+                start = end;
+            }
+        }
+        return Arrays.copyOf(bounds, numBounds);
+    }
+
+    //sorted 中第一个与 sorted[i] 不同的位置
+    private static int nextDistinct(double[] sorted, int i) {
+        int j = i + 1;
+        while (j < sorted.length && Double.compare(sorted[j], sorted[i]) == 0) {
+            j++;
+        }
+        return j;
+    }
+
+    //第一个分裂值不小于 value 的桶
+    private int locate(double value) {
+        int index = Arrays.binarySearch(splitValues, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @param instance 样本编号
+     * @return 样本所在的桶编号
+     */
+    public int binOf(int instance) {
+        if (byteBins != null) {
+            return byteBins[instance] & 0xFF;
+        }
+        if (shortBins != null) {
+            return shortBins[instance] & 0xFFFF;
+        }
+        return intBins[instance];
+    }
+
+    public int getNumBins() {
+        return splitValues.length;
+    }
+
+    public double getSplitValue(int bin) {
+        return splitValues[bin];
+    }
+}
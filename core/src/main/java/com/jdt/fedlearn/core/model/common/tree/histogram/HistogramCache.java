@@ -0,0 +1,157 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.model.common.tree.histogram;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 当前树各节点的加密直方图缓存，以 {@link com.jdt.fedlearn.core.model.common.tree.TreeNode#index} 为key。
+ * 节点编号规则与 TreeNode 一致：根节点为1，左子节点为 3 * index - 1，右子节点为 3 * index + 1，
+ * nan子节点为 3 * index。
+ * 处理某个左/右子节点时，只显式计算两个子节点中样本较少的一个，另一个由父节点直方图相减得到并缓存，
+ * 兄弟节点到来时直接取用；nan子节点没有唯一的兄弟节点，不参与相减。
+ * 树按层生长，处理某层节点时会清除不再可能被用到的上层缓存；每棵新树开始时清空。
+ */
+public class HistogramCache {
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 缓存节点自身的直方图，供其子节点相减使用
+     */
+    public void put(int nodeIndex, int[] instanceSpace, EncryptedHistogram[] histograms) {
+        entries.put(nodeIndex, new Entry(instanceSpace, histograms, false));
+    }
+
+    /**
+     * 缓存由父节点相减得到的兄弟节点直方图，供该兄弟节点到来时取用
+     */
+    public void putSibling(int nodeIndex, int[] instanceSpace, EncryptedHistogram[] histograms) {
+        entries.put(nodeIndex, new Entry(instanceSpace, histograms, true));
+    }
+
+    /**
+     * 处理 nodeIndex 所在层时，清除不再可能被用到的缓存：
+     * 深度小于当前层的兄弟节点缓存（兄弟节点未被请求，如已成为叶节点），以及深度小于上一层的父节点缓存
+     * （其子节点均未被请求）。
+     *
+     * @param nodeIndex 当前处理的节点编号
+     */
+    public void evictBefore(int nodeIndex) {
+        int depth = depthOf(nodeIndex);
+        entries.entrySet().removeIf(e -> {
+            int entryDepth = depthOf(e.getKey());
+            return e.getValue().sibling ? entryDepth < depth : entryDepth < depth - 1;
+        });
+    }
+
+    /**
+     * 取出并移除节点缓存，每个节点的缓存只会被使用一次
+     *
+     * @param nodeIndex 节点编号
+     * @return 节点缓存，不存在时返回null
+     */
+    public Entry remove(int nodeIndex) {
+        return entries.remove(nodeIndex);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param nodeIndex 节点编号
+     * @return 父节点编号，根节点返回0
+     */
+    public static int parentIndex(int nodeIndex) {
+        if (nodeIndex <= 1) {
+            return 0;
+        }
+        return (nodeIndex + 1) / 3;
+    }
+
+    /**
+     * @param nodeIndex 节点编号
+     * @return 是否为nan子节点
+     */
+    public static boolean isNanChild(int nodeIndex) {
+        return nodeIndex > 1 && nodeIndex % 3 == 0;
+    }
+
+    /**
+     * @param nodeIndex 非根节点编号
+     * @return 左/右子节点的兄弟节点编号，nan子节点返回0
+     */
+    public static int siblingIndex(int nodeIndex) {
+        if (isNanChild(nodeIndex)) {
+            return 0;
+        }
+        return nodeIndex % 3 == 2 ? nodeIndex + 2 : nodeIndex - 2;
+    }
+
+    /**
+     * @param nodeIndex 节点编号
+     * @return 节点深度，根节点深度为1
+     */
+    public static int depthOf(int nodeIndex) {
+        int depth = 1;
+        for (int i = nodeIndex; i > 1; i = parentIndex(i)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    public static class Entry {
+        private final int[] instanceSpace;
+        private final EncryptedHistogram[] histograms;
+        private final boolean sibling;
+
+        private Entry(int[] instanceSpace, EncryptedHistogram[] histograms, boolean sibling) {
+            this.instanceSpace = instanceSpace;
+            this.histograms = histograms;
+            this.sibling = sibling;
+        }
+
+        /**
+         * 父节点存在nan子节点时，相减得到的样本空间与兄弟节点实际样本空间不同，此时缓存不可用
+         *
+         * @param space 节点实际样本空间
+         * @return 缓存的样本空间是否与之相同
+         */
+        public boolean sameSpace(int[] space) {
+            if (space.length != instanceSpace.length) {
+                return false;
+            }
+            int[] a = instanceSpace.clone();
+            int[] b = space.clone();
+            Arrays.sort(a);
+            Arrays.sort(b);
+            return Arrays.equals(a, b);
+        }
+
+        public int[] getInstanceSpace() {
+            return instanceSpace;
+        }
+
+        //下标为特征编号减1
+        public EncryptedHistogram[] getHistograms() {
+            return histograms;
+        }
+    }
+}
@@ -15,6 +15,8 @@ package com.jdt.fedlearn.core.psi;
 
 import com.jdt.fedlearn.core.psi.diffieHellman.DiffieHellmanMatch;
 import com.jdt.fedlearn.core.psi.diffieHellman.DiffieHellmanMatchClient;
+import com.jdt.fedlearn.core.psi.ecdh.EcdhMatch;
+import com.jdt.fedlearn.core.psi.ecdh.EcdhMatchClient;
 import com.jdt.fedlearn.core.psi.empty.EmptyMatch;
 import com.jdt.fedlearn.core.psi.empty.EmptyMatchClient;
 import com.jdt.fedlearn.core.psi.freedman.FreedmanMatch;
@@ -40,6 +42,9 @@ public class CommonPrepare {
             case DH:{
                 return new DiffieHellmanMatch();
             }
+            case ECDH:{
+                return new EcdhMatch();
+            }
             //todo 优化freedman算法支持
 //            case FREEDMAN:{
 //                return new FreedmanMatch();
@@ -64,6 +69,9 @@ public class CommonPrepare {
             case DH:{
                 return new DiffieHellmanMatchClient();
             }
+            case ECDH:{
+                return new EcdhMatchClient();
+            }
             //todo 优化freedman算法支持
 //            case FREEDMAN:{
 //                return new FreedmanMatchClient();
@@ -0,0 +1,115 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.psi;
+
+/**
+ * 字符串数组的开放寻址哈希索引，求交时 O(1) 查找元素所在下标，代替排序归并和逐个线性扫描。
+ * 相同元素只占一个槽位，记录第一次出现的下标和出现次数；null 元素不建索引
+ */
+public class HashIndex {
+    private final String[] keys;
+    //槽位对应元素第一次出现的下标
+    private final int[] first;
+    //槽位对应元素出现的次数
+    private final int[] counts;
+    private final int mask;
+    private int size;
+
+    public HashIndex(String[] elements) {
+        int capacity = 2;
+        while (capacity < elements.length * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new String[capacity];
+        this.first = new int[capacity];
+        this.counts = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < elements.length; i++) {
+            String element = elements[i];
+            if (element == null) {
+                continue;
+            }
+            int slot = probe(element);
+            if (keys[slot] == null) {
+                keys[slot] = element;
+                first[slot] = i;
+                size++;
+            }
+            counts[slot]++;
+        }
+    }
+
+    //线性探测，返回元素所在槽位或第一个空槽位
+    private int probe(String element) {
+        int slot = spread(element.hashCode()) & mask;
+        while (keys[slot] != null && !keys[slot].equals(element)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * @param element 待查找元素
+     * @return 元素所在槽位，不存在时返回 -1
+     */
+    public int slotOf(String element) {
+        if (element == null) {
+            return -1;
+        }
+        int slot = probe(element);
+        return keys[slot] == null ? -1 : slot;
+    }
+
+    /**
+     * @param element 待查找元素
+     * @return 元素第一次出现的下标，不存在时返回 -1
+     */
+    public int indexOf(String element) {
+        int slot = slotOf(element);
+        return slot < 0 ? -1 : first[slot];
+    }
+
+    public boolean contains(String element) {
+        return slotOf(element) >= 0;
+    }
+
+    public int indexAt(int slot) {
+        return first[slot];
+    }
+
+    public int countAt(int slot) {
+        return counts[slot];
+    }
+
+    /**
+     * @return 槽位数，可用于按槽位分配辅助数组
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return 不同元素个数
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -51,14 +51,29 @@ import java.util.stream.Collectors;
  * @author lijingxi
  */
 public class DiffieHellmanMatch implements Prepare {
+    private final MappingType mappingType;
     private List<ClientInfo> clientInfos;
     private ClientInfo activeClient;
     private boolean isContinue;
-    private final BigInteger n = DiffieHellman.generateG();
-    private final BigInteger g = DiffieHellman.generateG();
+    private final BigInteger n;
+    private final BigInteger g;
     private int p;
     private int matchRes;
 
+    public DiffieHellmanMatch() {
+        this(MappingType.DH, true);
+    }
+
+    /**
+     * @param mappingType     流程相同、client 端加密方式不同的对齐类型
+     * @param groupParameters 是否生成并下发 g 和 n；椭圆曲线的群参数固定，不需要
+     */
+    protected DiffieHellmanMatch(MappingType mappingType, boolean groupParameters) {
+        this.mappingType = mappingType;
+        this.n = groupParameters ? DiffieHellman.generateG() : null;
+        this.g = groupParameters ? DiffieHellman.generateG() : null;
+    }
+
     public ClientInfo getActiveClient() {
         return activeClient;
     }
@@ -91,11 +106,14 @@ public class DiffieHellmanMatch implements Prepare {
         List<CommonRequest> requests = new ArrayList<>();
         //随机选择一个client作为active client
         activeClient = Tool.randomChoose(clientInfos);
+        //主动方以 others 非空区分，不需要 g、n 时发送空的参数表
         Map<String, Object> others1 = new HashMap<>();
-        others1.put("n", n);
-        others1.put("g", g);
-        MatchInit initActive = new MatchInit(MappingType.DH, "uid", others1);
-        MatchInit initPassive = new MatchInit(MappingType.DH, "uid", null);
+        if (g != null) {
+            others1.put("n", n);
+            others1.put("g", g);
+        }
+        MatchInit initActive = new MatchInit(mappingType, "uid", others1);
+        MatchInit initPassive = new MatchInit(mappingType, "uid", null);
         for (ClientInfo client : clientInfos) {
             if (client == activeClient) {
                 CommonRequest request = new CommonRequest(client, initActive);
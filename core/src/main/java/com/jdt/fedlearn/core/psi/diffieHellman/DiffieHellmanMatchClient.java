@@ -20,8 +20,8 @@ import com.jdt.fedlearn.core.entity.base.EmptyMessage;
 import com.jdt.fedlearn.core.exception.WrongValueException;
 import com.jdt.fedlearn.core.entity.psi.*;
 
+import com.jdt.fedlearn.core.psi.HashIndex;
 import com.jdt.fedlearn.core.psi.PrepareClient;
-import com.jdt.fedlearn.core.psi.md5.Md5Match;
 
 import java.math.BigInteger;
 import java.util.*;
@@ -80,7 +80,7 @@ public class DiffieHellmanMatchClient implements PrepareClient {
         if (others != null) {
             g = (BigInteger) others.get("g");
             n = (BigInteger) others.get("n");
-            String[] res = Arrays.stream(uid).map(x -> DiffieHellman.trans1(x, g, n, random)).toArray(String[]::new);
+            String[] res = encryptUid(uid, g, n);
             return new MatchInitRes(null, res);
         } else {
             return EmptyMessage.message();
@@ -110,9 +110,9 @@ public class DiffieHellmanMatchClient implements PrepareClient {
             BigInteger g = req2.getG();
             BigInteger n = req2.getN();
             // active方和本地各加密一次的active方的uid
-            String[] doubleCipherUid = Arrays.stream(cipherUid).map(x -> DiffieHellman.trans2(x, g, n, random)).toArray(String[]::new);
+            String[] doubleCipherUid = encryptCipher(cipherUid, g, n);
             // 本地加密一次的本地的uid
-            String[] localCipherUid = Arrays.stream(uid).map(x -> DiffieHellman.trans1(x, g, n, random)).toArray(String[]::new);
+            String[] localCipherUid = encryptUid(uid, g, n);
             return new DhMatchRes1(localCipherUid, doubleCipherUid);
         } else {
             return EmptyMessage.message();
@@ -128,38 +128,33 @@ public class DiffieHellmanMatchClient implements PrepareClient {
             // 只在各个本地加密过的uid，再经过active方加密一次
             Map<ClientInfo, String[]> clientCipherMap = req.getCipherUid();
             Map<ClientInfo, String[]> clientDoubleCipher = new HashMap<>();
-            // 两两的intersection
-            Map<ClientInfo, String[]> intersectionMap = new HashMap<>();
+            // 两两的intersection，用 active 方 uid 的下标表示
+            Map<ClientInfo, BitSet> intersectionMap = new HashMap<>();
             for (Map.Entry<ClientInfo, String[]> clientEntry : clientCipherMap.entrySet()) {
                 //当前处理client
                 ClientInfo clientInfo = clientEntry.getKey();
                 // active方和当前client对应的二次加密activeID
                 String[] activeDoubleCipher = activeUidMap.get(clientInfo);
-                String[] activeDoubleCipherCopy = activeDoubleCipher.clone();
                 // 本地加密
                 String[] clientCipher = clientEntry.getValue();
                 // 本地和active均加密
-                String[] doubleCipher = new String[clientCipher.length];
-                IntStream.range(0, doubleCipher.length).forEach(i -> doubleCipher[i]=DiffieHellman.trans2(clientCipher[i], req.getG(), req.getN(), random));
-                String[] doubleCipherCopy = doubleCipher.clone();
-                clientDoubleCipher.put(clientInfo, doubleCipherCopy);
-                String[] intersection = Md5Match.mix(doubleCipher, activeDoubleCipherCopy);
-                intersectionMap.put(clientInfo, intersection);
+                String[] doubleCipher = encryptCipher(clientCipher, req.getG(), req.getN());
+                clientDoubleCipher.put(clientInfo, doubleCipher);
+                intersectionMap.put(clientInfo, intersectIndex(activeDoubleCipher, doubleCipher));
             }
-            String[] finalIntersection = new String[]{};
-            for (Map.Entry<ClientInfo, String[]> entry: intersectionMap.entrySet()) {
-                ClientInfo clientInfo = entry.getKey();
-                String[] intersection = entry.getValue();
-                String[] doubleCipher = activeUidMap.get(clientInfo);
-                // index in the form of String
-                String[] interTmp = Arrays.stream(intersection).map(i -> String.valueOf(getIndexString(doubleCipher, i))).toArray(String[]::new);
-                finalIntersection = Md5Match.mix(finalIntersection, interTmp);
+            BitSet finalIntersection = null;
+            for (BitSet intersection : intersectionMap.values()) {
+                if (finalIntersection == null) {
+                    finalIntersection = (BitSet) intersection.clone();
+                } else {
+                    finalIntersection.and(intersection);
+                }
             }
-            String[] finalIntersection1 = finalIntersection;
+            int[] finalIndex = finalIntersection == null ? new int[0] : finalIntersection.stream().toArray();
             Map<ClientInfo, String[]> finalInterMap = activeUidMap.entrySet().stream()
-                    .collect(Collectors.toMap(Map.Entry::getKey, e -> getClientIntersection(finalIntersection1, e.getValue())));
+                    .collect(Collectors.toMap(Map.Entry::getKey, e -> getClientIntersection(finalIndex, e.getValue())));
             // active方直接将commonId放进全局变量缓存
-            commonIds = Arrays.stream(finalIntersection).map(s -> uid[Integer.parseInt(s)]).toArray(String[]::new);
+            commonIds = Arrays.stream(finalIndex).mapToObj(i -> uid[i]).toArray(String[]::new);
             return new DhMatchRes2(finalInterMap, clientDoubleCipher);
         } else {
             return EmptyMessage.message();
@@ -167,6 +162,20 @@ public class DiffieHellmanMatchClient implements PrepareClient {
 
     }
 
+    /**
+     * 本方 uid 的一次加密
+     */
+    protected String[] encryptUid(String[] uid, BigInteger g, BigInteger n) {
+        return DiffieHellman.trans1(uid, g, n, random);
+    }
+
+    /**
+     * 其他方已加密 uid 的二次加密
+     */
+    protected String[] encryptCipher(String[] cipherUid, BigInteger g, BigInteger n) {
+        return DiffieHellman.trans2(cipherUid, g, n, random);
+    }
+
     private Message phase3(Message parameterData, String[] uid) {
         if (!(parameterData instanceof MatchTransit)) {
             return EmptyMessage.message();
@@ -187,16 +196,25 @@ public class DiffieHellmanMatchClient implements PrepareClient {
         return EmptyMessage.message();
     }
 
-    private String[] getClientIntersection(String[] indexString, String[] activeDoubleUid) {
-        return Arrays.stream(indexString).map(s -> activeDoubleUid[Integer.parseInt(s)]).toArray(String[]::new);
+    private String[] getClientIntersection(int[] index, String[] activeDoubleUid) {
+        return Arrays.stream(index).mapToObj(i -> activeDoubleUid[i]).toArray(String[]::new);
     }
 
-    private String getIndexString(String[] array, String element) {
-        List<String> stringIndex = IntStream.range(0, array.length).filter(i -> array[i].equals(element)).mapToObj(String::valueOf).collect(Collectors.toList());
-        if (stringIndex.size() != 1) {
-            throw new UnsupportedOperationException("element should appear in double Cipher for one time, not " + stringIndex.size());
+    // active方二次加密uid中同时出现在 doubleCipher 里的下标
+    private BitSet intersectIndex(String[] activeDoubleCipher, String[] doubleCipher) {
+        HashIndex activeIndex = new HashIndex(activeDoubleCipher);
+        BitSet res = new BitSet(activeDoubleCipher.length);
+        for (String cipher : doubleCipher) {
+            int slot = activeIndex.slotOf(cipher);
+            if (slot < 0) {
+                continue;
+            }
+            if (activeIndex.countAt(slot) != 1) {
+                throw new UnsupportedOperationException("element should appear in double Cipher for one time, not " + activeIndex.countAt(slot));
+            }
+            res.set(activeIndex.indexAt(slot));
         }
-        return stringIndex.get(0);
+        return res;
     }
 
 }
@@ -0,0 +1,28 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.psi.ecdh;
+
+import com.jdt.fedlearn.core.psi.diffieHellman.DiffieHellmanMatch;
+import com.jdt.fedlearn.core.type.MappingType;
+
+/**
+ * 基于椭圆曲线的 Diffie-Hellman id对齐，master 端流程与 {@link DiffieHellmanMatch} 一致，
+ * 但不生成和下发 g、n；client 端的加密换成椭圆曲线点乘，见 {@link EcdhMatchClient}
+ */
+public class EcdhMatch extends DiffieHellmanMatch {
+
+    public EcdhMatch() {
+        super(MappingType.ECDH, false);
+    }
+}
@@ -0,0 +1,37 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.core.psi.ecdh;
+
+import com.jdt.fedlearn.core.encryption.EcDiffieHellman;
+import com.jdt.fedlearn.core.psi.diffieHellman.DiffieHellmanMatchClient;
+
+import java.math.BigInteger;
+
+/**
+ * 基于椭圆曲线 P-256 的 Diffie-Hellman id对齐 client 端，各阶段处理与 {@link DiffieHellmanMatchClient} 一致，
+ * uid 映射到曲线上的点后乘以本方私钥，传输 32 字节的点编码；master 不下发 g 和 n，参数中均为 null
+ */
+public class EcdhMatchClient extends DiffieHellmanMatchClient {
+    private final BigInteger key = EcDiffieHellman.randomScalar();
+
+    @Override
+    protected String[] encryptUid(String[] uid, BigInteger g, BigInteger n) {
+        return EcDiffieHellman.trans1(uid, key);
+    }
+
+    @Override
+    protected String[] encryptCipher(String[] cipherUid, BigInteger g, BigInteger n) {
+        return EcDiffieHellman.trans2(cipherUid, key);
+    }
+}
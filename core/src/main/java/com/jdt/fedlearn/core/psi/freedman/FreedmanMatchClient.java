@@ -23,11 +23,11 @@ import com.jdt.fedlearn.core.entity.base.EmptyMessage;
 import com.jdt.fedlearn.common.entity.core.Message;
 import com.jdt.fedlearn.core.entity.psi.*;
 import com.jdt.fedlearn.core.math.MathExt;
+import com.jdt.fedlearn.core.psi.HashIndex;
 import com.jdt.fedlearn.core.psi.PrepareClient;
 import com.jdt.fedlearn.core.psi.md5.Md5Match;
 import com.jdt.fedlearn.core.type.FreedmanType;
 import com.jdt.fedlearn.core.util.LagrangeInterpolation;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -186,12 +186,12 @@ public class FreedmanMatchClient implements PrepareClient {
             decodedPassiveMap.put(entry.getKey(), passiveResDe);
         }
         commonIds = Arrays.stream(intersection).parallel().map(s -> s.split("\\.")[0]).toArray(String[]::new);
-        String[] finalIntersection = intersection;
+        HashIndex finalIntersection = new HashIndex(intersection);
         // 获得每个客户端的index
         for (Map.Entry<ClientInfo, double[]> entry : decodedPassiveMap.entrySet()) {
             ClientInfo clientInfo = entry.getKey();
             double[] decodedUid = entry.getValue();
-            int[] index = IntStream.range(0, decodedUid.length).filter(i -> ArrayUtils.contains(finalIntersection, String.valueOf(decodedUid[i]))).toArray();
+            int[] index = IntStream.range(0, decodedUid.length).filter(i -> finalIntersection.contains(String.valueOf(decodedUid[i]))).toArray();
             indexResMap.put(clientInfo, index);
         }
         return new FreedmanPassiveIdxMap(indexResMap);
@@ -19,6 +19,7 @@ import com.jdt.fedlearn.core.entity.common.CommonResponse;
 import com.jdt.fedlearn.core.entity.psi.MatchInit;
 import com.jdt.fedlearn.core.entity.psi.MatchInitRes;
 import com.jdt.fedlearn.core.entity.psi.MatchTransit;
+import com.jdt.fedlearn.core.psi.HashIndex;
 import com.jdt.fedlearn.core.psi.MatchResult;
 import com.jdt.fedlearn.core.psi.Prepare;
 import com.jdt.fedlearn.core.type.MappingType;
@@ -114,35 +115,23 @@ public class Md5Match implements Prepare {
             mixedList = uidList;
             return mixedList;
         }
-        // 将两个列表进行排序后进行匹配，找到共同的uid加入类别列表并返回
-        Collections.sort(mixedList);
-        Collections.sort(uidList);
+        // 对较小的列表建哈希索引，遍历另一个列表查找，重复元素按出现次数匹配；结果排序后返回，不修改输入列表
+        List<String> small = mixedList.size() <= uidList.size() ? mixedList : uidList;
+        List<String> large = small == mixedList ? uidList : mixedList;
+        HashIndex index = new HashIndex(small.toArray(new String[0]));
+        int[] matched = new int[index.capacity()];
         List<String> res = new ArrayList<>();
-        int i = 0, j = 0;
-        String m = "";
-        String u = "";
-
-        while (i < mixedList.size() && j < uidList.size()) {
-            m = mixedList.get(i);
-            u = uidList.get(j);
-            if (m == null) {
-                i++;
+        for (String u : large) {
+            int slot = index.slotOf(u);
+            if (slot < 0) {
                 continue;
             }
-            if (u == null) {
-                j++;
-                continue;
-            }
-            if (m.equals(u)) {
-                res.add(m);
-                i++;
-                j++;
-            } else if (m.compareTo(u) < 0) {
-                i++;
-            } else {
-                j++;
+            if (matched[slot] < index.countAt(slot)) {
+                matched[slot]++;
+                res.add(u);
             }
         }
+        Collections.sort(res);
         return res;
     }
 
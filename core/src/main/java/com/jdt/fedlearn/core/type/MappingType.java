@@ -25,7 +25,8 @@ public enum MappingType {
     RSA("RSA"),
     DH("DH"),
     EMPTY("EMPTY"),
-    FREEDMAN("FREEDMAN");
+    FREEDMAN("FREEDMAN"),
+    ECDH("ECDH");
 
 
     private final String type;
@@ -23,7 +23,7 @@ import com.jdt.fedlearn.core.entity.common.CommonRequest;
 import com.jdt.fedlearn.core.entity.common.CommonResponse;
 import com.jdt.fedlearn.core.type.MetricType;
 import com.jdt.fedlearn.core.type.data.Tuple2;
-import com.jdt.fedlearn.tools.ExprAnalysis;
+import com.jdt.fedlearn.tools.CompiledExpr;
 
 import java.text.DecimalFormat;
 import java.util.*;
@@ -557,11 +557,9 @@ public class Tool {
         }
     }
     public static String checkExpression(String expression, List<String> featuresName) {
-        ExprAnalysis exprAnalysis = new ExprAnalysis();
-        String token = null;
-        String res = "success";
+        CompiledExpr compiled;
         try {
-            token = exprAnalysis.init(expression, featuresName);
+            compiled = CompiledExpr.compile(expression, featuresName);
         } catch (Exception e) {
             System.out.println("antlr init error" + e.getMessage());
             throw e;
@@ -569,7 +567,7 @@ public class Tool {
         double[] arr = new double[featuresName.size()];
         Arrays.fill(arr, 1.0);
         try {
-            exprAnalysis.expression(token, arr, featuresName);
+            compiled.evaluate(arr);
         } catch (Exception e) {
             System.out.println("antlr init error:" + e.getMessage());
             throw e;
@@ -452,6 +452,51 @@ public class TestFederatedGB {
         // todo assert
     }
 
+    @Test
+    public void inference2Batch() {
+        List<ClientInfo> clientInfos = StructureGenerate.threeClients();
+        FgbParameter parameter = new FgbParameter.Builder(2, new MetricType[]{MetricType.RMSE}, ObjectiveType.regSquare).build();
+        int[] idIndexArray = {0, 1, 2};
+        String[] originIdArray = {"a", "b", "c"};
+        FederatedGB federatedGB = new FederatedGB(parameter, null, new double[][]{}, false, -1, 1,
+                0.0, new ArrayList<>(), idIndexArray, clientInfos, originIdArray);
+        // tree1: root 在 client0，右子节点在 client1；tree2: 只有根节点
+        TreeNode root1 = new TreeNode(1, 1, clientInfos.get(0), 1, 0.0);
+        TreeNode right = new TreeNode(3, 2, clientInfos.get(1), 3, 0.0);
+        root1.leftChild = new TreeNode(2, 1.0);
+        root1.rightChild = right;
+        right.leftChild = new TreeNode(6, 2.0);
+        right.rightChild = new TreeNode(7, 3.0);
+        List<Tree> trainTree = new ArrayList<>();
+        trainTree.add(new Tree(root1));
+        trainTree.add(new Tree(new TreeNode(1, 0.5)));
+        List<CommonResponse> responses = new ArrayList<>();
+        responses.add(new CommonResponse(clientInfos.get(0), new BoostN1Res(trainTree, 0.5, new ArrayList<>())));
+
+        List<CommonRequest> requests = federatedGB.inferenceControl(responses);
+        Assert.assertEquals(requests.size(), 2);
+        Map<String, int[]> recordIds = new HashMap<>();
+        for (CommonRequest request : requests) {
+            Assert.assertEquals(request.getPhase(), -2);
+            recordIds.put(request.getClient().getUniqueId(), ((BoostN2Req) request.getBody()).getRecordIds());
+        }
+        Assert.assertEquals(recordIds.get(clientInfos.get(0).getUniqueId()), new int[]{1});
+        Assert.assertEquals(recordIds.get(clientInfos.get(1).getUniqueId()), new int[]{3});
+
+        // 样本1、2在根节点走右子树，样本2在右子节点继续走右子树
+        List<CommonResponse> responses2 = new ArrayList<>();
+        responses2.add(new CommonResponse(clientInfos.get(0), new BoostN2Res(new int[]{1}, 3, new long[]{0b110L})));
+        responses2.add(new CommonResponse(clientInfos.get(1), new BoostN2Res(new int[]{3}, 3, new long[]{0b100L})));
+        Assert.assertNull(federatedGB.inferenceControl(responses2));
+        Assert.assertFalse(federatedGB.isInferenceContinue());
+
+        double[][] res = federatedGB.postInferenceControl(responses2).getPredicts();
+        Assert.assertEquals(res.length, 3);
+        Assert.assertEquals(res[0][0], 1.5 * 0.3 + 0.5, 1e-9);
+        Assert.assertEquals(res[1][0], 2.5 * 0.3 + 0.5, 1e-9);
+        Assert.assertEquals(res[2][0], 3.5 * 0.3 + 0.5, 1e-9);
+    }
+
     @Test
     public void postInferenceControl() {
         List<ClientInfo> clientInfos = StructureGenerate.threeClients();
@@ -0,0 +1,76 @@
+package com.jdt.fedlearn.core.encryption.LibGMP;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+public class TestGMPBatch {
+    private static final Random random = new Random(7);
+    private static final BigInteger mod = BigInteger.probablePrime(512, random).multiply(BigInteger.probablePrime(512, random));
+
+    private static BigInteger[] randoms(int size, int bits) {
+        BigInteger[] res = new BigInteger[size];
+        for (int i = 0; i < size; i++) {
+            res[i] = new BigInteger(bits, random);
+        }
+        return res;
+    }
+
+    @Test
+    public void modPowSharedExp() {
+        //跨越多个块，并包含0、负数和大于模数的底数
+        BigInteger[] bases = randoms(1000, 1100);
+        bases[0] = BigInteger.ZERO;
+        bases[1] = bases[1].negate();
+        BigInteger exp = new BigInteger(512, random);
+        BigInteger[] res = GMP.modPowBatchSecure(bases, exp, mod);
+        for (int i = 0; i < bases.length; i++) {
+            Assert.assertEquals(res[i], bases[i].modPow(exp, mod));
+        }
+        Assert.assertEquals(GMP.modPowBatchSecure(bases, BigInteger.ZERO, mod)[2], BigInteger.ONE);
+        Assert.assertEquals(GMP.modPowBatchSecure(new BigInteger[0], exp, mod).length, 0);
+    }
+
+    @Test
+    public void modPowExps() {
+        BigInteger[] bases = randoms(300, 1000);
+        BigInteger[] exps = randoms(300, 256);
+        exps[3] = exps[3].negate();
+        exps[4] = BigInteger.ZERO;
+        BigInteger[] res = GMP.modPowBatchSecure(bases, exps, mod);
+        for (int i = 0; i < bases.length; i++) {
+            Assert.assertEquals(res[i], bases[i].modPow(exps[i], mod));
+        }
+        //偶数模数只能用 insecure 版本
+        BigInteger evenMod = mod.shiftLeft(1);
+        exps[3] = exps[3].negate();
+        BigInteger[] evenRes = GMP.modPowBatchInsecure(bases, exps, evenMod);
+        for (int i = 0; i < bases.length; i++) {
+            Assert.assertEquals(evenRes[i], bases[i].modPow(exps[i], evenMod));
+        }
+    }
+
+    @Test
+    public void mulMod() {
+        BigInteger[] a = randoms(700, 1024);
+        BigInteger[] b = randoms(700, 2048);
+        a[5] = a[5].negate();
+        b[6] = BigInteger.ZERO;
+        BigInteger[] res = GMP.mulModBatch(a, b, mod);
+        for (int i = 0; i < a.length; i++) {
+            Assert.assertEquals(res[i], a[i].multiply(b[i]).mod(mod));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void secureRejectsEvenModulus() {
+        GMP.modPowBatchSecure(randoms(2, 10), BigInteger.TEN, mod.shiftLeft(1));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void lengthNotMatch() {
+        GMP.mulModBatch(randoms(2, 10), randoms(3, 10), mod);
+    }
+}
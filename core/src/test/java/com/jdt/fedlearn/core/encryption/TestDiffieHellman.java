@@ -1,6 +1,8 @@
 package com.jdt.fedlearn.core.encryption;
 
 import com.jdt.fedlearn.core.util.HashUtil;
+import org.testng.Assert;
+import org.testng.annotations.Test;
 
 import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
@@ -35,4 +37,25 @@ public class TestDiffieHellman {
         DiffieHellman.trans(uid1, g, n, new BigInteger("100"), new BigInteger("99"));
         DiffieHellman.trans(uid1, g, n, new BigInteger("99"), new BigInteger("100"));
     }
+
+    @Test
+    public void batchSameAsSingle() {
+        BigInteger g = DiffieHellman.generateG();
+        BigInteger n = DiffieHellman.generateG(256);
+        BigInteger randomA = new BigInteger(128, new Random());
+        BigInteger randomB = new BigInteger(128, new Random());
+        String[] uids = new String[1000];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = "uid" + i;
+        }
+        String[] cipher = DiffieHellman.trans1(uids, g, n, randomA);
+        String[] doubleCipher = DiffieHellman.trans2(cipher, g, n, randomB);
+        for (int i = 0; i < uids.length; i++) {
+            Assert.assertEquals(cipher[i], DiffieHellman.trans1(uids[i], g, n, randomA));
+            Assert.assertEquals(doubleCipher[i], DiffieHellman.trans2(cipher[i], g, n, randomB));
+        }
+        // 交换加密顺序结果一致
+        String[] reversed = DiffieHellman.trans2(DiffieHellman.trans1(uids, g, n, randomB), g, n, randomA);
+        Assert.assertEquals(reversed, doubleCipher);
+    }
 }
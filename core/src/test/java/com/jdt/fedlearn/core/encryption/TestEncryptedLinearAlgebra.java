@@ -0,0 +1,52 @@
+package com.jdt.fedlearn.core.encryption;
+
+import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.EncryptedLinearAlgebra;
+import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
+import com.jdt.fedlearn.core.encryption.common.PrivateKey;
+import com.jdt.fedlearn.core.encryption.common.PublicKey;
+import com.jdt.fedlearn.core.encryption.javallier.JavallierTool;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class TestEncryptedLinearAlgebra {
+    EncryptionTool encryptionTool = new JavallierTool();
+    PrivateKey priKey = encryptionTool.keyGenerate(1024, 64);
+    PublicKey pubKey = priKey.generatePublicKey();
+
+    @Test
+    public void transposeMultiply() {
+        Random random = new Random(1);
+        int rows = 50;
+        int cols = 3;
+        double[] vector = new double[rows];
+        double[][] matrix = new double[rows][cols];
+        double[] target = new double[cols];
+        for (int j = 0; j < rows; j++) {
+            vector[j] = random.nextDouble() - 0.5;
+            for (int k = 0; k < cols; k++) {
+                //第2列全为0
+                matrix[j][k] = k == 1 ? 0 : random.nextDouble();
+                target[k] += vector[j] * matrix[j][k];
+            }
+        }
+        EncryptedLinearAlgebra algebra = new EncryptedLinearAlgebra(encryptionTool, pubKey);
+        Ciphertext[] encrypted = algebra.restore(algebra.serialize(algebra.encrypt(vector)));
+        Ciphertext[] res = algebra.transposeMultiply(encrypted, matrix, cols);
+        Assert.assertEquals(res.length, cols);
+        for (int k = 0; k < cols; k++) {
+            Assert.assertEquals(encryptionTool.decrypt(res[k], priKey), target[k], 1e-8);
+        }
+    }
+
+    @Test
+    public void sum() {
+        double[] values = new double[]{1.5, -2.25, 3, 0.125};
+        EncryptedLinearAlgebra algebra = new EncryptedLinearAlgebra(encryptionTool, pubKey);
+        Assert.assertEquals(encryptionTool.decrypt(algebra.sum(algebra.encrypt(values)), priKey), 2.375, 1e-10);
+        Assert.assertEquals(encryptionTool.decrypt(algebra.sum(new Ciphertext[0]), priKey), 0.0);
+        Assert.assertSame(algebra.zero(), algebra.zero());
+    }
+}
@@ -1,6 +1,7 @@
 package com.jdt.fedlearn.core.encryption;
 
 import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.CiphertextPacker;
 import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
 import com.jdt.fedlearn.core.encryption.common.PrivateKey;
 import com.jdt.fedlearn.core.encryption.common.PublicKey;
@@ -115,4 +116,18 @@ public class TestFake {
         double deNum = encryptionTool.decrypt(strCiphertext, priKey);
         Assert.assertEquals(num1, deNum);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void packCiphertext() {
+        double[] values = new double[]{3.1415, -2.568, 0};
+        Ciphertext[] ciphertexts = new Ciphertext[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ciphertexts[i] = encryptionTool.encrypt(values[i], pubKey);
+        }
+        byte[] packed = CiphertextPacker.pack(ciphertexts, pubKey, encryptionTool);
+        Ciphertext[] restored = CiphertextPacker.unpack(packed, pubKey, encryptionTool);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(encryptionTool.decrypt(restored[i], priKey), values[i]);
+        }
+    }
+}
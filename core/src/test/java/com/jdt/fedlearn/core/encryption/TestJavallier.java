@@ -1,9 +1,11 @@
 package com.jdt.fedlearn.core.encryption;
 
 import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.CiphertextPacker;
 import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
 import com.jdt.fedlearn.core.encryption.common.PrivateKey;
 import com.jdt.fedlearn.core.encryption.common.PublicKey;
+import com.jdt.fedlearn.core.encryption.javallier.JavallierPubKey;
 import com.jdt.fedlearn.core.encryption.javallier.JavallierTool;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -133,4 +135,56 @@ public class TestJavallier {
         double res = (a * b) + c;
         Assert.assertEquals(res, deRes, 1e-3);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void packCiphertext() {
+        double[] values = new double[]{60.5121, -3.25, 0, 1e-8, -123456.789};
+        Ciphertext[] ciphertexts = new Ciphertext[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ciphertexts[i] = encryptionTool.encrypt(values[i], pubKey);
+        }
+        byte[] packed = CiphertextPacker.pack(ciphertexts, pubKey, encryptionTool);
+        //个数1字节，每个密文为定长值加1到5字节的指数
+        int width = ((JavallierPubKey) pubKey).ciphertextByteLength();
+        Assert.assertTrue(packed.length >= 1 + values.length * (width + 1));
+        Assert.assertTrue(packed.length <= 1 + values.length * (width + 5));
+        Ciphertext[] restored = CiphertextPacker.unpack(packed, pubKey, encryptionTool);
+        Assert.assertEquals(restored.length, values.length);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(encryptionTool.decrypt(restored[i], priKey), values[i], 1e-10);
+        }
+    }
+
+    @Test
+    public void subtract() {
+        Ciphertext em1 = encryptionTool.encrypt(60.5121, pubKey);
+        Ciphertext em2 = encryptionTool.encrypt(20.25, pubKey);
+        Ciphertext diff = encryptionTool.subtract(em1, em2, pubKey);
+        Assert.assertEquals(encryptionTool.decrypt(diff, priKey), 40.2621, 1e-10);
+    }
+
+    @Test
+    public void obfuscatorPool() {
+        JavallierPubKey publicKey = (JavallierPubKey) pubKey;
+        Assert.assertSame(priKey.generatePublicKey(), pubKey);
+        Assert.assertSame(publicKey.getSignedContext(), publicKey.getSignedContext());
+        Assert.assertSame(publicKey.getObfuscatorPool(), publicKey.getObfuscatorPool());
+        //默认不混淆，相同明文的密文相同
+        Assert.assertEquals(encryptionTool.encrypt(60.5121, pubKey).serialize(), encryptionTool.encrypt(60.5121, pubKey).serialize());
+    }
+
+    @Test
+    public void obfuscatedEncrypt() {
+        EncryptionTool tool = new JavallierTool(false);
+        PrivateKey privateKey = tool.keyGenerate(1024, 64);
+        //混淆模式随密钥序列化传递
+        PublicKey publicKey = tool.restorePublicKey(privateKey.generatePublicKey().serialize());
+        Ciphertext c1 = tool.encrypt(60.5121, publicKey);
+        Ciphertext c2 = tool.encrypt(60.5121, publicKey);
+        Assert.assertNotEquals(c1.serialize(), c2.serialize());
+        Assert.assertEquals(tool.decrypt(c1, privateKey), 60.5121, 1e-10);
+        Assert.assertEquals(tool.decrypt(c2, privateKey), 60.5121, 1e-10);
+        Ciphertext sum = tool.add(c1, tool.encrypt(-0.5121, publicKey), publicKey);
+        Assert.assertEquals(tool.decrypt(sum, privateKey), 60.0, 1e-10);
+    }
+}
@@ -0,0 +1,106 @@
+package com.jdt.fedlearn.core.encryption;
+
+import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
+import com.jdt.fedlearn.core.encryption.common.PlaintextPacker;
+import com.jdt.fedlearn.core.encryption.common.PrivateKey;
+import com.jdt.fedlearn.core.encryption.common.PublicKey;
+import com.jdt.fedlearn.core.encryption.fake.FakeTool;
+import com.jdt.fedlearn.core.encryption.javallier.JavallierTool;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+public class TestPlaintextPacker {
+    EncryptionTool encryptionTool = new JavallierTool();
+    PrivateKey priKey = encryptionTool.keyGenerate(1024, 64);
+    PublicKey pubKey = priKey.generatePublicKey();
+
+    @Test
+    public void encodeDecode() {
+        PlaintextPacker packer = new PlaintextPacker(2.0, 100, 1022);
+        Assert.assertEquals(packer.getSlots(), 1022 / packer.getSlotBits());
+        double[] values = new double[]{-1.5, 0.25, 2.0, -2.0, 0, 1e-9};
+        double[] res = packer.decode(packer.encode(values), values.length);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(res[i], values[i], 1e-15);
+        }
+    }
+
+    @Test
+    public void slotSumNoOverflow() {
+        int n = 1000;
+        PlaintextPacker packer = new PlaintextPacker(1.0, n, 1022);
+        BigInteger sum = BigInteger.ZERO;
+        double[] target = new double[3];
+        for (int i = 0; i < n; i++) {
+            //槽位取到上下界，验证保护位足够
+            double[] values = new double[]{-1.0, 1.0, i % 2 == 0 ? 0.3 : -0.7};
+            sum = sum.add(packer.encode(values));
+            for (int j = 0; j < values.length; j++) {
+                target[j] += values[j];
+            }
+        }
+        double[] res = packer.decode(sum, 3);
+        for (int j = 0; j < target.length; j++) {
+            Assert.assertEquals(res[j], target[j], 1e-9);
+        }
+    }
+
+    @Test
+    public void homomorphicAddAndSubtract() {
+        Random random = new Random(7);
+        PlaintextPacker packer = new PlaintextPacker(1.0, 10, encryptionTool.plaintextBits(pubKey));
+        double[] a = new double[packer.getSlots() + 3];
+        double[] b = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = 2 * random.nextDouble() - 1;
+            b[i] = 2 * random.nextDouble() - 1;
+        }
+        Ciphertext[] encA = packer.encrypt(a, pubKey, encryptionTool);
+        Ciphertext[] encB = packer.encrypt(b, pubKey, encryptionTool);
+        Assert.assertEquals(encA.length, 2);
+        Ciphertext[] sum = new Ciphertext[encA.length];
+        Ciphertext[] diff = new Ciphertext[encA.length];
+        for (int i = 0; i < encA.length; i++) {
+            sum[i] = encryptionTool.add(encA[i], encB[i], pubKey);
+            diff[i] = encryptionTool.subtract(encA[i], encB[i], pubKey);
+        }
+        double[] sumRes = packer.decrypt(sum, a.length, priKey, encryptionTool);
+        double[] diffRes = packer.decrypt(diff, a.length, priKey, encryptionTool);
+        for (int i = 0; i < a.length; i++) {
+            Assert.assertEquals(sumRes[i], a[i] + b[i], 1e-12);
+            Assert.assertEquals(diffRes[i], a[i] - b[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void obfuscatedPacking() {
+        EncryptionTool tool = new JavallierTool(false);
+        PrivateKey privateKey = tool.keyGenerate(1024, 64);
+        PublicKey publicKey = privateKey.generatePublicKey();
+        PlaintextPacker packer = new PlaintextPacker(1.0, 10, tool.plaintextBits(publicKey));
+        double[] values = new double[]{0.5, -0.25, 1.0};
+        Ciphertext[] c1 = packer.encrypt(values, publicKey, tool);
+        Ciphertext[] c2 = packer.encrypt(values, publicKey, tool);
+        Assert.assertNotEquals(c1[0].serialize(), c2[0].serialize());
+        Ciphertext[] sum = new Ciphertext[]{tool.add(c1[0], c2[0], publicKey)};
+        double[] res = packer.decrypt(sum, values.length, privateKey, tool);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(res[i], 2 * values[i], 1e-12);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void outOfBound() {
+        new PlaintextPacker(1.0, 10, 1022).encode(1.5);
+    }
+
+    @Test
+    public void unsupportedTool() {
+        EncryptionTool fakeTool = new FakeTool();
+        Assert.assertEquals(fakeTool.plaintextBits(fakeTool.keyGenerate(1024, 64).generatePublicKey()), 0);
+    }
+}
@@ -0,0 +1,27 @@
+package com.jdt.fedlearn.core.encryption.distributedPaillier;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static com.jdt.fedlearn.core.encryption.distributedPaillier.DistributedPaillierNative.signedByteArray;
+
+public class TestHomoEncryptionUtil {
+    //fake 模式不依赖 native 库，只验证分组求和的语义
+    HomoEncryptionUtil key = new HomoEncryptionUtil(3, 1024, true);
+
+    @Test
+    public void sum() {
+        signedByteArray[] data = key.encryption(new double[]{1.5, -2.0, 4.0}, key.getPk());
+        Assert.assertEquals(HomoEncryptionUtil.toDouble(key.sum(data, key.getPk())), 3.5, 1e-12);
+        Assert.assertEquals(HomoEncryptionUtil.toDouble(key.sum(new signedByteArray[0], key.getPk())), 0.0);
+    }
+
+    @Test
+    public void groupSum() {
+        double[] plain = new double[]{1.0, 2.0, 3.0, 4.0, 5.0};
+        signedByteArray[] data = key.encryption(plain, key.getPk());
+        int[][] groups = new int[][]{{0, 4}, {}, {1, 2, 3}, {2}};
+        signedByteArray[] res = key.groupSum(groups, i -> data[i], key.getPk());
+        Assert.assertEquals(HomoEncryptionUtil.toDoubleLst(res), new double[]{6.0, 0.0, 9.0, 3.0});
+    }
+}
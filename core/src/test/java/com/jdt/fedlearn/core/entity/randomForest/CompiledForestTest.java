@@ -0,0 +1,50 @@
+package com.jdt.fedlearn.core.entity.randomForest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public class CompiledForestTest {
+
+    // tree0: 节点0 按特征0 切分，左叶子1.0，右子节点2 由其他方持有，其子节点5、6为叶子
+    // tree1: 只有叶子 3.0
+    private static CompiledForest activeForest() {
+        Map<Integer, Map<Integer, String>> treeInfo = new HashMap<>();
+        Map<Integer, String> tree0 = new HashMap<>();
+        tree0.put(0, "0 5.0");
+        tree0.put(1, "1.0");
+        tree0.put(5, "2.0");
+        tree0.put(6, "4.0");
+        treeInfo.put(0, tree0);
+        treeInfo.put(1, Collections.singletonMap(0, "3.0"));
+        return CompiledForest.compile(treeInfo);
+    }
+
+    @Test
+    public void directions() {
+        double[][] x = new double[][]{{1.0, 9.0}, {6.0, 0.0}};
+        Map<Integer, List<String>> res = activeForest().directions(0, x);
+        Assert.assertEquals(res.get(0), Arrays.asList("L", "R"));
+        Assert.assertEquals(res.get(1), Arrays.asList("1.0", "1.0"));
+        Assert.assertEquals(res.size(), 4);
+    }
+
+    @Test
+    public void predictWithRemote() {
+        double[][] x = new double[][]{{1.0, 9.0}, {6.0, 0.0}};
+        Map<Integer, List<String>> remoteTree0 = new HashMap<>();
+        remoteTree0.put(2, Arrays.asList("L", "R"));
+        Map<Integer, Map<Integer, List<String>>> remote = new HashMap<>();
+        remote.put(0, remoteTree0);
+        double[] res = activeForest().predict(x, remote);
+        // 样本0: tree0 -> 1.0, tree1 -> 3.0；样本1: tree0 -> 节点2 -> R -> 节点6 -> 4.0
+        Assert.assertEquals(res[0], 2.0, 1e-9);
+        Assert.assertEquals(res[1], 3.5, 1e-9);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void missingNode() {
+        activeForest().predict(new double[][]{{6.0, 0.0}}, null);
+    }
+}
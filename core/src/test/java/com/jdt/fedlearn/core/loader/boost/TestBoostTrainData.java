@@ -2,6 +2,7 @@ package com.jdt.fedlearn.core.loader.boost;
 
 import com.jdt.fedlearn.common.entity.core.feature.Features;
 import com.jdt.fedlearn.core.fake.StructureGenerate;
+import com.jdt.fedlearn.core.loader.common.ColumnarTable;
 import com.jdt.fedlearn.core.model.common.tree.sampling.ColSampler;
 import com.jdt.fedlearn.core.type.data.Tuple3;
 import org.testng.Assert;
@@ -46,6 +47,53 @@ public class TestBoostTrainData {
 
     }
 
+    @Test
+    public void constructFromColumnar() {
+        Tuple3<String[][], String[], Features> compoundInput = StructureGenerate.trainInputStd();
+        String[][] input = compoundInput._1().get();
+        String[] idMap = compoundInput._2().get();
+        Features features = compoundInput._3().get();
+        String[][] copy = Arrays.stream(input).map(String[]::clone).toArray(String[][]::new);
+        ColumnarTable table = new ColumnarTable() {
+            public String[] getHeader() {
+                return copy[0];
+            }
+
+            public int numRows() {
+                return copy.length - 1;
+            }
+
+            public String getUid(int row) {
+                return copy[row + 1][0];
+            }
+
+            public double get(int col, int row) {
+                return Double.parseDouble(copy[row + 1][col]);
+            }
+        };
+
+        BoostTrainData columnar = new BoostTrainData(table, idMap, features, new ArrayList<>());
+        BoostTrainData rows = new BoostTrainData(input, idMap, features, new ArrayList<>());
+        Assert.assertEquals(columnar.getUid(), rows.getUid());
+        Assert.assertEquals(columnar.getFeatureName(), rows.getFeatureName());
+        Assert.assertEquals(columnar.getFeatureDim(), rows.getFeatureDim());
+        Assert.assertEquals(columnar.getDatasetSize(), rows.getDatasetSize());
+        Assert.assertEquals(columnar.getFullInstance(), rows.getFullInstance());
+        Assert.assertEquals(columnar.getLabel(), rows.getLabel());
+        Assert.assertEquals(columnar.getSample(), rows.getSample());
+    }
+
+    @Test
+    public void getFeatureBins() {
+        BoostTrainData boostTrainData = StructureGenerate.getBoostTrainData();
+        boostTrainData.binning(33);
+        double[][] res = boostTrainData.getFeature(new int[]{0, 1, 2}, 1);
+        for (double[] line : res) {
+            int bin = boostTrainData.getFeatureBins(1).binOf((int) line[0]);
+            Assert.assertEquals(boostTrainData.getFeatureBins(1).getSplitValue(bin), line[1]);
+        }
+    }
+
     @Test
     public void getSample(){
         BoostTrainData boostTrainData = StructureGenerate.getBoostTrainData();
@@ -0,0 +1,68 @@
+package com.jdt.fedlearn.core.math;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class TestBlockedMatrix {
+
+    private static double[][] random(int rows, int cols, Random random) {
+        double[][] res = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                res[i][j] = random.nextGaussian();
+            }
+        }
+        return res;
+    }
+
+    @Test
+    public void multiplySameAsNaive() {
+        Random random = new Random(5);
+        //跨越行块、内积块和列块边界
+        int m = 130;
+        int k = 300;
+        int n = 520;
+        double[][] a = random(m, k, random);
+        double[][] b = random(k, n, random);
+        double[][] target = MathExt.matrixMul(a, b);
+        double[] res = BlockedMatrix.multiply(BlockedMatrix.flatten(a), k, BlockedMatrix.flatten(b), m, k, n);
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                Assert.assertEquals(res[i * n + j], target[i][j], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void multiplyWithStride() {
+        double[] a = new double[]{1, 2, 3, 4, 5, 6};
+        double[] b = new double[]{1, 1, 2, 2, 1, 0, 0, 1};
+        //只使用 a 每行的前两列
+        double[] res = BlockedMatrix.multiply(a, 3, b, 2, 2, 4);
+        Assert.assertEquals(res, new double[]{3, 1, 2, 4, 9, 4, 8, 13});
+    }
+
+    @Test
+    public void randomFourierFeatures() {
+        Random random = new Random(9);
+        int m = 70;
+        int k = 10;
+        int n = 300;
+        double[][] x = random(m, k, random);
+        double[][] w = random(k, n, random);
+        double[] bias = new double[n];
+        for (int j = 0; j < n; j++) {
+            bias[j] = random.nextDouble() * 2 * Math.PI;
+        }
+        double scale = Math.sqrt(2.) / Math.sqrt(n);
+        double[][] product = MathExt.matrixMul(x, w);
+        double[] res = BlockedMatrix.randomFourierFeatures(BlockedMatrix.flatten(x), k, BlockedMatrix.flatten(w), bias, scale, m, k, n);
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                Assert.assertEquals(res[i * n + j], scale * Math.cos(product[i][j] + bias[j]), 0.0);
+            }
+        }
+    }
+}
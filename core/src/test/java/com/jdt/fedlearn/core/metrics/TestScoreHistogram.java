@@ -0,0 +1,122 @@
+package com.jdt.fedlearn.core.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class TestScoreHistogram {
+
+    //逐对比较的 auc，相同预测值计一半
+    private static double pairwiseAuc(double[] pred, double[] label) {
+        double area = 0;
+        double pairs = 0;
+        for (int i = 0; i < pred.length; i++) {
+            for (int j = 0; j < pred.length; j++) {
+                if (label[i] == 1 && label[j] != 1) {
+                    pairs++;
+                    if (pred[i] > pred[j]) {
+                        area += 1;
+                    } else if (pred[i] == pred[j]) {
+                        area += 0.5;
+                    }
+                }
+            }
+        }
+        return area / pairs;
+    }
+
+    @Test
+    public void distinctBinsSameAsExact() {
+        double[] labels = new double[]{1, 0, 1, 1, 0, 1, 0};
+        double[] preds = new double[]{0.9, 0.8, 0.7, 0.5, 0.5, 0.4, 0.3};
+        ScoreHistogram histogram = new ScoreHistogram(10, 0, 1);
+        histogram.add(preds, labels);
+        Assert.assertEquals(histogram.auc(), 0.625, 1e-9);
+        Assert.assertEquals(histogram.auc(), Metric.auc(preds, labels), 1e-9);
+        Assert.assertEquals(histogram.getTotalPositive(), 4.0);
+        Assert.assertEquals(histogram.getTotalNegative(), 3.0);
+    }
+
+    @Test
+    public void ks() {
+        double[] labels = new double[]{1, 1, 1, 1, 1, 0, 0, 0, 0, 0};
+        double[] preds = new double[]{0.1, 0.8, 0.7, 0.6, 0.5, 0.4, 0.3, 0.2, 0.15, 0};
+        ScoreHistogram histogram = new ScoreHistogram(100, 0, 1);
+        histogram.add(preds, labels);
+        Assert.assertEquals(histogram.ks(), 0.8, 1e-9);
+        Assert.assertEquals(Metric.KS(preds, labels), 0.8, 1e-9);
+        Assert.assertEquals(histogram.ksErrorBound(), 0.2, 1e-9);
+    }
+
+    @Test
+    public void gainAndLift() {
+        double[] labels = new double[]{1, 0, 1, 0};
+        double[] preds = new double[]{0.9, 0.6, 0.4, 0.1};
+        ScoreHistogram histogram = new ScoreHistogram(4, 0, 1);
+        histogram.add(preds, labels);
+        double[] gain = histogram.gain();
+        double[] target = new double[]{0.5, 0.5, 1.0, 1.0};
+        for (int i = 0; i < target.length; i++) {
+            Assert.assertEquals(gain[i], target[i], 1e-9);
+        }
+        double[] lift = histogram.lift();
+        Assert.assertEquals(lift[0], 2.0, 1e-9);
+        Assert.assertEquals(lift[3], 1.0, 1e-9);
+    }
+
+    @Test
+    public void mergeSameAsWhole() {
+        Random random = new Random(3);
+        double[] preds = new double[1000];
+        double[] labels = new double[1000];
+        for (int i = 0; i < preds.length; i++) {
+            labels[i] = random.nextInt(2);
+            preds[i] = Math.min(1, Math.max(0, labels[i] * 0.3 + random.nextDouble() * 0.7));
+        }
+        ScoreHistogram whole = new ScoreHistogram(64, 0, 1);
+        whole.add(preds, labels);
+        ScoreHistogram left = new ScoreHistogram(64, 0, 1);
+        ScoreHistogram right = new ScoreHistogram(64, 0, 1);
+        for (int i = 0; i < preds.length; i++) {
+            (i % 2 == 0 ? left : right).add(preds[i], labels[i]);
+        }
+        left.merge(right);
+        Assert.assertEquals(left.auc(), whole.auc(), 1e-12);
+        Assert.assertEquals(left.ks(), whole.ks(), 1e-12);
+        double exact = pairwiseAuc(preds, labels);
+        Assert.assertTrue(Math.abs(whole.auc() - exact) <= whole.aucErrorBound() + 1e-12);
+        Assert.assertEquals(Metric.auc(preds, labels), exact, 1e-9);
+    }
+
+    @Test
+    public void exactAucWithTies() {
+        double[] labels = new double[]{1, 0, 1, 0, 0, 1, 1, 0};
+        double[] preds = new double[]{0.5, 0.5, 0.2, 0.2, 0.9, 0.9, 0.1, 0.3};
+        Assert.assertEquals(Metric.auc(preds, labels), pairwiseAuc(preds, labels), 1e-9);
+    }
+
+    @Test
+    public void largeInputWithinTolerance() {
+        Random random = new Random(11);
+        int n = 1 << 17;
+        double[] preds = new double[n];
+        double[] labels = new double[n];
+        int nPos = 0;
+        for (int i = 0; i < n; i++) {
+            labels[i] = random.nextDouble() < 0.3 ? 1 : 0;
+            nPos += (int) labels[i];
+            preds[i] = 1 / (1 + Math.exp(-(random.nextGaussian() + labels[i])));
+        }
+        ScoreHistogram histogram = ScoreHistogram.of(preds, labels, 1 << 16);
+        Assert.assertTrue(histogram.aucErrorBound() <= 1e-4);
+        Assert.assertEquals(histogram.getTotalPositive(), (double) nPos);
+        Assert.assertEquals(Metric.auc(preds, labels), histogram.auc(), 1e-12);
+        Assert.assertTrue(Metric.KS(preds, labels) > 0.3);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void mergeMismatch() {
+        new ScoreHistogram(10, 0, 1).merge(new ScoreHistogram(20, 0, 1));
+    }
+}
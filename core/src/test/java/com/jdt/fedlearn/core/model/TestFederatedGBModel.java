@@ -2,6 +2,7 @@ package com.jdt.fedlearn.core.model;
 
 import com.jdt.fedlearn.common.entity.core.type.AlgorithmType;
 import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.CiphertextPacker;
 import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
 import com.jdt.fedlearn.core.encryption.common.PrivateKey;
 import com.jdt.fedlearn.core.encryption.common.PublicKey;
@@ -16,6 +17,7 @@ import com.jdt.fedlearn.common.entity.core.feature.Features;
 import com.jdt.fedlearn.core.exception.NotImplementedException;
 import com.jdt.fedlearn.core.fake.StructureGenerate;
 import com.jdt.fedlearn.core.loader.boost.BoostTrainData;
+import com.jdt.fedlearn.core.loader.common.CommonInferenceData;
 import com.jdt.fedlearn.core.loader.common.CommonLoad;
 import com.jdt.fedlearn.core.loader.common.InferenceData;
 import com.jdt.fedlearn.core.model.common.loss.LogisticLoss;
@@ -393,7 +395,7 @@ public class TestFederatedGBModel {
         Assert.assertEquals(res.getNewTree(), true);
         Assert.assertEquals(res.getInstanceSpace().length, 3);
         Assert.assertNotNull(res.getPubKey());
-        Assert.assertNotNull(res.getGh());
+        Assert.assertNotNull(res.getPackedGh());
         // TODO 补充解密后g,h相同
     }
 
@@ -457,12 +459,21 @@ public class TestFederatedGBModel {
         Assert.assertEquals(flgh[1].getClient(), client);
         Assert.assertEquals(flgh[0].getFeature(), "1");
         Assert.assertEquals(flgh[1].getFeature(), "2");
-        Assert.assertEquals(flgh[0].getGhLeft(), new StringTuple2[]{new StringTuple2("10.0", "6.0"),
+        Assert.assertEquals(unpackGhLeft(flgh[0], encryptionTool, privateKey), new StringTuple2[]{new StringTuple2("10.0", "6.0"),
                 new StringTuple2("18.0", "5.0"), new StringTuple2("8.0", "5.0")});
-        Assert.assertEquals(flgh[1].getGhLeft(), new StringTuple2[]{new StringTuple2("8.0", "5.0"),
+        Assert.assertEquals(unpackGhLeft(flgh[1], encryptionTool, privateKey), new StringTuple2[]{new StringTuple2("8.0", "5.0"),
                 new StringTuple2("10.0", "6.0"), new StringTuple2("18.0", "5.0")});
     }
 
+    private static StringTuple2[] unpackGhLeft(FeatureLeftGH featureLeftGH, EncryptionTool encryptionTool, PrivateKey privateKey) {
+        Ciphertext[] ciphertexts = CiphertextPacker.unpack(featureLeftGH.getPackedGhLeft(), privateKey.generatePublicKey(), encryptionTool);
+        StringTuple2[] res = new StringTuple2[ciphertexts.length / 2];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = new StringTuple2(ciphertexts[2 * i].serialize(), ciphertexts[2 * i + 1].serialize());
+        }
+        return res;
+    }
+
     @Test
     public void train2_3() {
         /**
@@ -990,6 +1001,31 @@ public class TestFederatedGBModel {
     }
 
 
+    @Test
+    public void inferenceBatch() {
+        // 70 个样本，跨越两个 long
+        String[][] data = new String[71][];
+        data[0] = new String[]{"uid", "x"};
+        for (int i = 1; i < data.length; i++) {
+            data[i] = new String[]{"u" + i, String.valueOf(i - 1)};
+        }
+        CommonInferenceData inferenceData = new CommonInferenceData(data, "uid", new String[0]);
+        List<QueryEntry> queryTable = new ArrayList<>();
+        queryTable.add(new QueryEntry(1, 1, 10.0));
+        queryTable.add(new QueryEntry(2, 1, 65.0));
+        FederatedGBModel model = new FederatedGBModel(new ArrayList<>(), new Loss(), 0.0, 0.3, queryTable, new ArrayList<>());
+
+        Message msg = model.inference(-2, new BoostN2Req(new int[]{2, 1}), inferenceData);
+        BoostN2Res res = (BoostN2Res) msg;
+        Assert.assertEquals(res.getRecordIds(), new int[]{2, 1});
+        Assert.assertEquals(res.getNumRows(), 70);
+        Assert.assertEquals(res.getRightBits().length, 4);
+        for (int row = 0; row < 70; row++) {
+            Assert.assertEquals(res.isRight(0, row), row > 65);
+            Assert.assertEquals(res.isRight(1, row), row > 10);
+        }
+    }
+
     @Test
     public void serialize() {
         FederatedGBModel model = new FederatedGBModel();
@@ -0,0 +1,51 @@
+package com.jdt.fedlearn.core.model.common.tree;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestInstancePartition {
+
+    @Test
+    public void rightOf() {
+        InstancePartition partition = new InstancePartition(200);
+        int[] parent = new int[]{7, 3, 150, 64, 63, 0};
+        int[] left = new int[]{3, 64, 0};
+        Assert.assertEquals(partition.rightOf(parent, left), new int[]{7, 150, 63});
+        // 用完后清空，可重复使用
+        for (int i : parent) {
+            Assert.assertFalse(partition.contains(i));
+        }
+        Assert.assertEquals(partition.rightOf(parent, new int[0]), parent);
+    }
+
+    @Test
+    public void growBeyondSize() {
+        InstancePartition partition = new InstancePartition(10);
+        partition.set(1000);
+        Assert.assertTrue(partition.contains(1000));
+        Assert.assertFalse(partition.contains(999));
+        Assert.assertFalse(partition.contains(5000));
+    }
+
+    @Test
+    public void moveToChildren() {
+        TreeNode root = new TreeNode(1, 1, 2, false);
+        root.instanceSpace = new int[]{0, 1, 2, 3, 4};
+        TreeNode left = new TreeNode(2, 2, 2, false);
+        left.instanceSpace = new int[]{1, 3};
+        TreeNode right = new TreeNode(4, 2, 2, false);
+        right.instanceSpace = new int[]{0, 2, 4};
+        root.leftChild = left;
+        root.rightChild = right;
+        TreeNode leaf = new TreeNode(5, 0.5);
+
+        TreeNode[] corresponding = new TreeNode[]{root, root, root, root, root, leaf};
+        new InstancePartition(corresponding.length).moveToChildren(corresponding);
+        Assert.assertSame(corresponding[0], right);
+        Assert.assertSame(corresponding[1], left);
+        Assert.assertSame(corresponding[2], right);
+        Assert.assertSame(corresponding[3], left);
+        Assert.assertSame(corresponding[4], right);
+        Assert.assertSame(corresponding[5], leaf);
+    }
+}
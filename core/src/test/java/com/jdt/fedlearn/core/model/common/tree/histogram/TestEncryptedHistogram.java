@@ -0,0 +1,52 @@
+package com.jdt.fedlearn.core.model.common.tree.histogram;
+
+import com.jdt.fedlearn.core.encryption.common.Ciphertext;
+import com.jdt.fedlearn.core.encryption.common.EncryptionTool;
+import com.jdt.fedlearn.core.encryption.common.PublicKey;
+import com.jdt.fedlearn.core.encryption.fake.FakeCiphertext;
+import com.jdt.fedlearn.core.encryption.fake.FakeTool;
+import com.jdt.fedlearn.core.type.data.StringTuple2;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestEncryptedHistogram {
+    private final EncryptionTool encryptionTool = new FakeTool();
+    private final PublicKey publicKey = encryptionTool.keyGenerate(1024, 64).generatePublicKey();
+    private final FeatureBins bins = new FeatureBins(new double[]{1.0, 2.0, 1.0, 3.0, 2.0}, 10);
+    private final Ciphertext[] grad = fake(new double[]{1.0, 2.0, 3.0, 4.0, 5.0});
+    private final Ciphertext[] hess = fake(new double[]{0.1, 0.2, 0.3, 0.4, 0.5});
+
+    private static Ciphertext[] fake(double[] values) {
+        Ciphertext[] res = new Ciphertext[values.length];
+        for (int i = 0; i < values.length; i++) {
+            res[i] = new FakeCiphertext(values[i]);
+        }
+        return res;
+    }
+
+    @Test
+    public void build() {
+        EncryptedHistogram histogram = EncryptedHistogram.build(bins, new int[]{0, 1, 2, 4}, grad, hess, publicKey, encryptionTool);
+        int[] occupied = histogram.occupiedBins();
+        Assert.assertEquals(occupied, new int[]{0, 1});
+        StringTuple2[] res = histogram.serialize(occupied);
+        Assert.assertEquals(Double.parseDouble(res[0].getFirst()), 4.0, 1e-9);
+        Assert.assertEquals(Double.parseDouble(res[1].getFirst()), 7.0, 1e-9);
+        Assert.assertEquals(Double.parseDouble(res[1].getSecond()), 0.7, 1e-9);
+    }
+
+    @Test
+    public void subtract() {
+        EncryptedHistogram parent = EncryptedHistogram.build(bins, new int[]{0, 1, 2, 3, 4}, grad, hess, publicKey, encryptionTool);
+        EncryptedHistogram left = EncryptedHistogram.build(bins, new int[]{0, 2, 4}, grad, hess, publicKey, encryptionTool);
+        EncryptedHistogram right = parent.subtract(left, publicKey, encryptionTool);
+        EncryptedHistogram target = EncryptedHistogram.build(bins, new int[]{1, 3}, grad, hess, publicKey, encryptionTool);
+        Assert.assertEquals(right.occupiedBins(), target.occupiedBins());
+        StringTuple2[] res = right.serialize(right.occupiedBins());
+        StringTuple2[] expected = target.serialize(target.occupiedBins());
+        for (int i = 0; i < res.length; i++) {
+            Assert.assertEquals(Double.parseDouble(res[i].getFirst()), Double.parseDouble(expected[i].getFirst()), 1e-9);
+            Assert.assertEquals(Double.parseDouble(res[i].getSecond()), Double.parseDouble(expected[i].getSecond()), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.jdt.fedlearn.core.model.common.tree.histogram;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestFeatureBins {
+
+    @Test
+    public void distinctValuesLessThanNumBin() {
+        double[] column = new double[]{3.0, 1.0, 2.0, 1.0, 3.0};
+        FeatureBins bins = new FeatureBins(column, 10);
+        Assert.assertEquals(bins.getNumBins(), 3);
+        Assert.assertEquals(bins.getSplitValue(0), 1.0);
+        Assert.assertEquals(bins.getSplitValue(1), 2.0);
+        Assert.assertEquals(bins.getSplitValue(2), 3.0);
+        int[] target = new int[]{2, 0, 1, 0, 2};
+        for (int i = 0; i < column.length; i++) {
+            Assert.assertEquals(bins.binOf(i), target[i]);
+        }
+    }
+
+    @Test
+    public void equalFrequency() {
+        double[] column = new double[]{8.0, 7.0, 6.0, 5.0, 4.0, 3.0, 2.0, 1.0};
+        FeatureBins bins = new FeatureBins(column, 4);
+        Assert.assertEquals(bins.getNumBins(), 4);
+        Assert.assertEquals(bins.getSplitValue(0), 2.0);
+        Assert.assertEquals(bins.getSplitValue(3), 8.0);
+        Assert.assertEquals(bins.binOf(0), 3);
+        Assert.assertEquals(bins.binOf(7), 0);
+        Assert.assertEquals(bins.binOf(5), 1);
+    }
+
+    @Test
+    public void sameValueSameBin() {
+        double[] column = new double[]{1.0, 1.0, 1.0, 2.0, 3.0, 4.0};
+        FeatureBins bins = new FeatureBins(column, 3);
+        Assert.assertEquals(bins.binOf(0), bins.binOf(1));
+        Assert.assertEquals(bins.binOf(1), bins.binOf(2));
+        Assert.assertEquals(bins.getSplitValue(bins.binOf(0)), 1.0);
+    }
+
+    @Test
+    public void shortBins() {
+        double[] column = new double[1000];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = i;
+        }
+        FeatureBins bins = new FeatureBins(column, 500);
+        Assert.assertEquals(bins.getNumBins(), 500);
+        Assert.assertEquals(bins.binOf(999), 499);
+        Assert.assertEquals(bins.getSplitValue(bins.binOf(998)), 999.0);
+    }
+
+    @Test
+    public void intBins() {
+        double[] column = new double[70000];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = column.length - i;
+        }
+        FeatureBins bins = new FeatureBins(column, 70000);
+        Assert.assertEquals(bins.getNumBins(), 70000);
+        Assert.assertEquals(bins.binOf(0), 69999);
+        Assert.assertEquals(bins.binOf(69999), 0);
+        Assert.assertEquals(bins.getSplitValue(bins.binOf(1000)), 69000.0);
+    }
+}
@@ -0,0 +1,75 @@
+package com.jdt.fedlearn.core.model.common.tree.histogram;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestHistogramCache {
+
+    @Test
+    public void nodeIndex() {
+        // root 1, children 2 and 4, grandchildren 5,7 and 11,13
+        Assert.assertEquals(HistogramCache.parentIndex(1), 0);
+        Assert.assertEquals(HistogramCache.parentIndex(2), 1);
+        Assert.assertEquals(HistogramCache.parentIndex(4), 1);
+        Assert.assertEquals(HistogramCache.parentIndex(11), 4);
+        Assert.assertEquals(HistogramCache.parentIndex(13), 4);
+        Assert.assertEquals(HistogramCache.siblingIndex(2), 4);
+        Assert.assertEquals(HistogramCache.siblingIndex(13), 11);
+        Assert.assertEquals(HistogramCache.depthOf(1), 1);
+        Assert.assertEquals(HistogramCache.depthOf(4), 2);
+        Assert.assertEquals(HistogramCache.depthOf(13), 3);
+    }
+
+    @Test
+    public void nanChildIndex() {
+        // nan children of 1 and 4 are 3 and 12
+        Assert.assertTrue(HistogramCache.isNanChild(3));
+        Assert.assertTrue(HistogramCache.isNanChild(12));
+        Assert.assertFalse(HistogramCache.isNanChild(1));
+        Assert.assertFalse(HistogramCache.isNanChild(2));
+        Assert.assertEquals(HistogramCache.parentIndex(3), 1);
+        Assert.assertEquals(HistogramCache.parentIndex(12), 4);
+        Assert.assertEquals(HistogramCache.siblingIndex(3), 0);
+        Assert.assertEquals(HistogramCache.siblingIndex(12), 0);
+        Assert.assertEquals(HistogramCache.depthOf(3), 2);
+        Assert.assertEquals(HistogramCache.depthOf(12), 3);
+    }
+
+    @Test
+    public void sameSpace() {
+        HistogramCache cache = new HistogramCache();
+        // parent 1 has left 2, right 4 and nan 3, so parent - left is not the right child's space
+        cache.putSibling(4, new int[]{3, 1, 2}, new EncryptedHistogram[0]);
+        HistogramCache.Entry entry = cache.remove(4);
+        Assert.assertTrue(entry.sameSpace(new int[]{1, 2, 3}));
+        Assert.assertFalse(entry.sameSpace(new int[]{1, 2}));
+        Assert.assertFalse(entry.sameSpace(new int[]{1, 2, 4}));
+    }
+
+    @Test
+    public void evictBefore() {
+        HistogramCache cache = new HistogramCache();
+        cache.put(1, new int[]{0, 1, 2, 3}, new EncryptedHistogram[0]);
+        cache.put(2, new int[]{0, 1}, new EncryptedHistogram[0]);
+        cache.putSibling(4, new int[]{2, 3}, new EncryptedHistogram[0]);
+        // depth 2 still needs its siblings and depth 1 parents
+        cache.evictBefore(4);
+        Assert.assertEquals(cache.size(), 3);
+        // depth 3: sibling 4 was never requested and root is no longer a parent
+        cache.evictBefore(5);
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertNotNull(cache.remove(2));
+    }
+
+    @Test
+    public void putAndRemove() {
+        HistogramCache cache = new HistogramCache();
+        cache.put(2, new int[]{0, 1}, new EncryptedHistogram[0]);
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(cache.remove(2).getInstanceSpace(), new int[]{0, 1});
+        Assert.assertNull(cache.remove(2));
+        cache.put(4, new int[]{2}, new EncryptedHistogram[0]);
+        cache.clear();
+        Assert.assertEquals(cache.size(), 0);
+    }
+}
@@ -0,0 +1,49 @@
+package com.jdt.fedlearn.core.psi;
+
+import com.jdt.fedlearn.core.psi.md5.Md5Match;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TestHashIndex {
+
+    @Test
+    public void indexOf() {
+        String[] elements = new String[]{"b", "a", null, "c", "a"};
+        HashIndex index = new HashIndex(elements);
+        Assert.assertEquals(index.size(), 3);
+        Assert.assertEquals(index.indexOf("a"), 1);
+        Assert.assertEquals(index.indexOf("b"), 0);
+        Assert.assertEquals(index.indexOf("c"), 3);
+        Assert.assertEquals(index.indexOf("d"), -1);
+        Assert.assertEquals(index.indexOf(null), -1);
+        Assert.assertEquals(index.countAt(index.slotOf("a")), 2);
+        Assert.assertEquals(index.countAt(index.slotOf("c")), 1);
+    }
+
+    @Test
+    public void manyElements() {
+        String[] elements = new String[100000];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = String.valueOf(i * 7L);
+        }
+        HashIndex index = new HashIndex(elements);
+        Assert.assertEquals(index.size(), elements.length);
+        for (int i = 0; i < elements.length; i++) {
+            Assert.assertEquals(index.indexOf(String.valueOf(i * 7L)), i);
+        }
+        Assert.assertFalse(index.contains("1"));
+    }
+
+    @Test
+    public void mixKeepsDuplicatesAndInput() {
+        List<String> m = Arrays.asList("4", "3", "3", "1");
+        List<String> u = Arrays.asList("3", "5", "3", "4", "3");
+        List<String> res = Md5Match.mix(m, u);
+        Assert.assertEquals(res, Arrays.asList("3", "3", "4"));
+        // 输入列表不再被排序
+        Assert.assertEquals(m, Arrays.asList("4", "3", "3", "1"));
+    }
+}
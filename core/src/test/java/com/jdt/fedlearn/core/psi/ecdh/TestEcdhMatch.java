@@ -0,0 +1,57 @@
+package com.jdt.fedlearn.core.psi.ecdh;
+
+import com.jdt.fedlearn.common.entity.core.ClientInfo;
+import com.jdt.fedlearn.core.encryption.EcDiffieHellman;
+import com.jdt.fedlearn.core.entity.common.CommonRequest;
+import com.jdt.fedlearn.core.entity.psi.MatchInit;
+import com.jdt.fedlearn.core.example.CommonRun;
+import com.jdt.fedlearn.core.fake.StructureGenerate;
+import com.jdt.fedlearn.core.psi.MatchResult;
+import com.jdt.fedlearn.core.type.MappingType;
+import com.jdt.fedlearn.core.type.data.Tuple2;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+
+public class TestEcdhMatch {
+
+    @Test
+    public void commutative() {
+        String[] uids = new String[]{"a", "b", "c"};
+        BigInteger keyA = EcDiffieHellman.randomScalar();
+        BigInteger keyB = EcDiffieHellman.randomScalar();
+        String[] cipherA = EcDiffieHellman.trans1(uids, keyA);
+        for (String cipher : cipherA) {
+            Assert.assertEquals(Base64.getDecoder().decode(cipher).length, 32);
+        }
+        String[] ab = EcDiffieHellman.trans2(cipherA, keyB);
+        String[] ba = EcDiffieHellman.trans2(EcDiffieHellman.trans1(uids, keyB), keyA);
+        Assert.assertEquals(ab, ba);
+        Assert.assertNotEquals(ab[0], ab[1]);
+    }
+
+    @Test
+    public void noGroupParameters() {
+        List<ClientInfo> clientInfos = StructureGenerate.threeClients();
+        EcdhMatch match = new EcdhMatch();
+        List<CommonRequest> requests = match.masterInit(clientInfos);
+        MatchInit activeInit = (MatchInit) requests.stream()
+                .filter(r -> r.getClient() == match.getActiveClient()).findAny().get().getBody();
+        Assert.assertNotNull(activeInit.getOthers());
+        Assert.assertTrue(activeInit.getOthers().isEmpty());
+    }
+
+    @Test
+    public void match() {
+        List<ClientInfo> clientInfos = StructureGenerate.threeClients();
+        Map<ClientInfo, String[][]> rawDataMap = new HashMap<>();
+        rawDataMap.put(clientInfos.get(0), new String[][]{{"uid"}, {"a"}, {"b"}, {"c"}, {"d"}});
+        rawDataMap.put(clientInfos.get(1), new String[][]{{"uid"}, {"c"}, {"b"}, {"e"}});
+        rawDataMap.put(clientInfos.get(2), new String[][]{{"uid"}, {"f"}, {"b"}, {"c"}, {"a"}});
+        Tuple2<MatchResult, String[]> res = CommonRun.match(MappingType.ECDH, clientInfos, rawDataMap);
+        Assert.assertEquals(res._1().getLength(), 2);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(res._2())), new HashSet<>(Arrays.asList("b", "c")));
+    }
+}
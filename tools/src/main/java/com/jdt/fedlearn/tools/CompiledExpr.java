@@ -0,0 +1,593 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.tools;
+
+import com.jdt.fedlearn.tools.antlrGenerate.ExprBaseVisitor;
+import com.jdt.fedlearn.tools.antlrGenerate.ExprLexer;
+import com.jdt.fedlearn.tools.antlrGenerate.ExprParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/***
+ * 编译后的特征表达式，与 {@link ExprAnalysis} 语法和计算结果一致
+ * 表达式只解析一次，编译为按列计算的节点树：每个节点对一段样本整列计算，结果为 double[]，
+ * 避免逐行遍历语法树和装箱；常量子表达式在编译时计算，
+ * 参数和返回值均为 double 的静态方法通过 MethodHandle 直接调用。
+ * 编译结果不可变，可被多个线程同时使用
+ */
+public class CompiledExpr {
+    private final Node root;
+    private final int numVars;
+    private final int numFeatures;
+
+    private CompiledExpr(Node root, int numVars, int numFeatures) {
+        this.root = root;
+        this.numVars = numVars;
+        this.numFeatures = numFeatures;
+    }
+
+    /***
+     * 解析并编译表达式
+     * @param expr 表达式
+     * @param featuresName 特征名，与样本列顺序一致
+     * @return 编译后的表达式
+     * @throws NoSuchElementException 表达式语法错误
+     * @throws WrongMethodTypeException 特征名或方法不存在
+     */
+    public static CompiledExpr compile(String expr, List<String> featuresName) throws NoSuchElementException {
+        ExprLexer lexer = new ExprLexer(CharStreams.fromString(expr + "\n"));
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        ExprParser parser = new ExprParser(tokens);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(ExprErrorListener.INSTANCE);
+        parser.removeErrorListeners();
+        parser.addErrorListener(ExprErrorListener.INSTANCE);
+        ExprParser.ProgContext prog = parser.prog();
+
+        Compiler compiler = new Compiler(featuresName);
+        Node result = null;
+        for (ExprParser.StatContext stat : prog.stat()) {
+            if (stat instanceof ExprParser.AssignContext) {
+                ExprParser.AssignContext assign = (ExprParser.AssignContext) stat;
+                result = compiler.assign(assign.ID().getText(), compiler.visit(assign.expr()));
+            } else if (stat instanceof ExprParser.PrintExprContext) {
+                result = compiler.visit(((ExprParser.PrintExprContext) stat).expr());
+            }
+        }
+        if (result == null) {
+            throw new NoSuchElementException("empty expression");
+        }
+        //赋值语句按顺序先于最终结果计算
+        if (!result.isConstant() && !compiler.assigns.isEmpty()) {
+            List<Node> statements = new ArrayList<>(compiler.assigns);
+            if (statements.get(statements.size() - 1) != result) {
+                statements.add(result);
+            }
+            result = new Sequence(statements.toArray(new Node[0]));
+        }
+        return new CompiledExpr(result, compiler.numVars, featuresName.size());
+    }
+
+    /***
+     * 对样本 [from, to) 计算表达式
+     * @param rows 按行存储的样本，列顺序与编译时的特征名一致
+     * @param from 起始行
+     * @param to 结束行，不包含
+     * @return 每行的计算结果
+     */
+    public double[] evaluate(double[][] rows, int from, int to) {
+        Frame frame = new Frame(rows, from, to, numFeatures, numVars);
+        double[] res = root.eval(frame);
+        //常量或直接引用的列需要复制，避免调用方修改共享数组
+        return root.owned() ? res : Arrays.copyOf(res, res.length);
+    }
+
+    public double[] evaluate(double[][] rows) {
+        return evaluate(rows, 0, rows.length);
+    }
+
+    public double evaluate(double[] row) {
+        return evaluate(new double[][]{row}, 0, 1)[0];
+    }
+
+    //一次计算的上下文，按需把引用到的特征从行存储中抽取为列
+    private static class Frame {
+        private final double[][] rows;
+        private final int from;
+        private final int size;
+        private final double[][] columns;
+        private final double[][] vars;
+
+        private Frame(double[][] rows, int from, int to, int numFeatures, int numVars) {
+            this.rows = rows;
+            this.from = from;
+            this.size = to - from;
+            this.columns = new double[numFeatures][];
+            this.vars = new double[numVars][];
+        }
+
+        private double[] column(int index) {
+            double[] column = columns[index];
+            if (column == null) {
+                column = new double[size];
+                for (int i = 0; i < size; i++) {
+                    column[i] = rows[from + i][index];
+                }
+                columns[index] = column;
+            }
+            return column;
+        }
+    }
+
+    private abstract static class Node {
+        abstract double[] eval(Frame frame);
+
+        //结果数组是否为本节点新建，新建的数组可以被父节点复用
+        boolean owned() {
+            return true;
+        }
+
+        boolean isConstant() {
+            return false;
+        }
+
+        double constant() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Constant extends Node {
+        private final double value;
+
+        private Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            double[] res = new double[frame.size];
+            Arrays.fill(res, value);
+            return res;
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+
+        @Override
+        double constant() {
+            return value;
+        }
+    }
+
+    private static class Column extends Node {
+        private final int index;
+
+        private Column(int index) {
+            this.index = index;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            return frame.column(index);
+        }
+
+        @Override
+        boolean owned() {
+            return false;
+        }
+    }
+
+    //赋值语句，计算结果保存到变量槽位，后续引用直接读取
+    private static class Assign extends Node {
+        private final int slot;
+        private final Node value;
+
+        private Assign(int slot, Node value) {
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            double[] res = value.eval(frame);
+            frame.vars[slot] = res;
+            return res;
+        }
+
+        @Override
+        boolean owned() {
+            return false;
+        }
+    }
+
+    //引用赋值过的变量，对应的赋值语句已先执行
+    private static class Var extends Node {
+        private final int slot;
+
+        private Var(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            return frame.vars[slot];
+        }
+
+        @Override
+        boolean owned() {
+            return false;
+        }
+    }
+
+    //按语句顺序执行，返回最后一条语句的结果
+    private static class Sequence extends Node {
+        private final Node[] statements;
+
+        private Sequence(Node[] statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            double[] res = null;
+            for (Node statement : statements) {
+                res = statement.eval(frame);
+            }
+            return res;
+        }
+
+        @Override
+        boolean owned() {
+            return false;
+        }
+    }
+
+    private static class Binary extends Node {
+        private final int op;
+        private final Node left;
+        private final Node right;
+
+        private Binary(int op, Node left, Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            if (right.isConstant()) {
+                double[] a = left.eval(frame);
+                double[] res = left.owned() ? a : new double[a.length];
+                applyScalarRight(op, a, right.constant(), res);
+                return res;
+            }
+            if (left.isConstant()) {
+                double[] b = right.eval(frame);
+                double[] res = right.owned() ? b : new double[b.length];
+                applyScalarLeft(op, left.constant(), b, res);
+                return res;
+            }
+            double[] a = left.eval(frame);
+            double[] b = right.eval(frame);
+            double[] res = left.owned() ? a : right.owned() ? b : new double[a.length];
+            apply(op, a, b, res);
+            return res;
+        }
+
+        static double apply(int op, double a, double b) {
+            switch (op) {
+                case ExprParser.MUL:
+                    return a * b;
+                case ExprParser.DIV:
+                    return a / b;
+                case ExprParser.Add:
+                    return a + b;
+                default:
+                    return a - b;
+            }
+        }
+
+        private static void apply(int op, double[] a, double[] b, double[] res) {
+            int n = res.length;
+            switch (op) {
+                case ExprParser.MUL:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a[i] * b[i];
+                    }
+                    break;
+                case ExprParser.DIV:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a[i] / b[i];
+                    }
+                    break;
+                case ExprParser.Add:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a[i] + b[i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a[i] - b[i];
+                    }
+            }
+        }
+
+        private static void applyScalarRight(int op, double[] a, double b, double[] res) {
+            int n = res.length;
+            switch (op) {
+                case ExprParser.MUL:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a[i] * b;
+                    }
+                    break;
+                case ExprParser.DIV:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a[i] / b;
+                    }
+                    break;
+                case ExprParser.Add:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a[i] + b;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a[i] - b;
+                    }
+            }
+        }
+
+        private static void applyScalarLeft(int op, double a, double[] b, double[] res) {
+            int n = res.length;
+            switch (op) {
+                case ExprParser.MUL:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a * b[i];
+                    }
+                    break;
+                case ExprParser.DIV:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a / b[i];
+                    }
+                    break;
+                case ExprParser.Add:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a + b[i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        res[i] = a - b[i];
+                    }
+            }
+        }
+    }
+
+    //参数和返回值均为 double 的一元静态方法，如 Math.abs、Math.log
+    private static class Unary extends Node {
+        private final MethodHandle handle;
+        private final Node arg;
+
+        private Unary(MethodHandle handle, Node arg) {
+            this.handle = handle;
+            this.arg = arg;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            double[] a = arg.eval(frame);
+            double[] res = arg.owned() ? a : new double[a.length];
+            try {
+                for (int i = 0; i < res.length; i++) {
+                    res[i] = (double) handle.invokeExact(a[i]);
+                }
+            } catch (Throwable e) {
+                throw new WrongMethodTypeException(e.getMessage());
+            }
+            return res;
+        }
+    }
+
+    //参数和返回值均为 double 的二元静态方法，如 Math.pow、Math.max
+    private static class BinaryMethod extends Node {
+        private final MethodHandle handle;
+        private final Node left;
+        private final Node right;
+
+        private BinaryMethod(MethodHandle handle, Node left, Node right) {
+            this.handle = handle;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            double[] a = left.eval(frame);
+            double[] b = right.eval(frame);
+            double[] res = left.owned() ? a : right.owned() ? b : new double[a.length];
+            try {
+                for (int i = 0; i < res.length; i++) {
+                    res[i] = (double) handle.invokeExact(a[i], b[i]);
+                }
+            } catch (Throwable e) {
+                throw new WrongMethodTypeException(e.getMessage());
+            }
+            return res;
+        }
+    }
+
+    //其他方法按行反射调用，与 GetMethodUtil 行为一致
+    private static class Reflective extends Node {
+        private final Method method;
+        private final Class<?> owner;
+        private final Node[] args;
+
+        private Reflective(Method method, Class<?> owner, Node[] args) {
+            this.method = method;
+            this.owner = owner;
+            this.args = args;
+        }
+
+        @Override
+        double[] eval(Frame frame) {
+            double[][] values = new double[args.length][];
+            for (int j = 0; j < args.length; j++) {
+                values[j] = args[j].eval(frame);
+            }
+            double[] res = new double[frame.size];
+            try {
+                Object target = Modifier.isStatic(method.getModifiers()) ? null : owner.newInstance();
+                Object[] params = new Object[args.length];
+                for (int i = 0; i < res.length; i++) {
+                    for (int j = 0; j < args.length; j++) {
+                        params[j] = values[j][i];
+                    }
+                    Object result = method.invoke(target, params);
+                    if (result == null) {
+                        throw new WrongMethodTypeException();
+                    }
+                    res[i] = ((Number) result).doubleValue();
+                }
+            } catch (ReflectiveOperationException | IllegalArgumentException | ClassCastException e) {
+                throw new WrongMethodTypeException(e.getMessage());
+            }
+            return res;
+        }
+    }
+
+    private static class Compiler extends ExprBaseVisitor<Node> {
+        private final Map<String, Integer> featureIndex = new HashMap<>();
+        //赋值过的变量，常量直接替换，其他保存槽位
+        private final Map<String, Node> vars = new HashMap<>();
+        private final List<Node> assigns = new ArrayList<>();
+        private int numVars;
+
+        private Compiler(List<String> featuresName) {
+            //与 EvalVisitor 一致，重名时取第一个
+            for (int i = 0; i < featuresName.size(); i++) {
+                featureIndex.putIfAbsent(featuresName.get(i), i);
+            }
+        }
+
+        private Node assign(String id, Node value) {
+            if (value.isConstant()) {
+                vars.put(id, value);
+                return value;
+            }
+            int slot = numVars++;
+            Node statement = new Assign(slot, value);
+            assigns.add(statement);
+            vars.put(id, new Var(slot));
+            return statement;
+        }
+
+        @Override
+        public Node visitDouble(ExprParser.DoubleContext ctx) {
+            return new Constant(Double.parseDouble(ctx.DOUBLE().getText()));
+        }
+
+        @Override
+        public Node visitNegative(ExprParser.NegativeContext ctx) {
+            return new Constant(-Double.parseDouble(ctx.DOUBLE().getText()));
+        }
+
+        @Override
+        public Node visitParen(ExprParser.ParenContext ctx) {
+            return visit(ctx.expr());
+        }
+
+        @Override
+        public Node visitId(ExprParser.IdContext ctx) {
+            String id = ctx.ID().getText();
+            if (vars.containsKey(id)) {
+                return vars.get(id);
+            }
+            Integer index = featureIndex.get(id);
+            if (index == null) {
+                throw new WrongMethodTypeException("feature ID error");
+            }
+            return new Column(index);
+        }
+
+        @Override
+        public Node visitMulDiv(ExprParser.MulDivContext ctx) {
+            return binary(ctx.op.getType(), visit(ctx.expr(0)), visit(ctx.expr(1)));
+        }
+
+        @Override
+        public Node visitAddSub(ExprParser.AddSubContext ctx) {
+            return binary(ctx.op.getType(), visit(ctx.expr(0)), visit(ctx.expr(1)));
+        }
+
+        private Node binary(int op, Node left, Node right) {
+            if (left.isConstant() && right.isConstant()) {
+                return new Constant(Binary.apply(op, left.constant(), right.constant()));
+            }
+            return new Binary(op, left, right);
+        }
+
+        @Override
+        public Node visitMethod(ExprParser.MethodContext ctx) {
+            String id = ctx.ID().getText();
+            int dot = id.lastIndexOf(".");
+            if (dot < 0) {
+                throw new WrongMethodTypeException();
+            }
+            String className = id.substring(0, dot);
+            String methodName = id.substring(dot + 1);
+            Node[] args = ctx.expr().stream().map(this::visit).toArray(Node[]::new);
+            Class<?> owner;
+            try {
+                owner = Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                throw new WrongMethodTypeException();
+            }
+            //与 GetMethodUtil 的查找规则一致：同名且第一个参数为 double 的第一个公有方法
+            Method method = Arrays.stream(owner.getMethods())
+                    .filter(m -> m.getName().equals(methodName) && m.getParameterCount() > 0 && m.getParameterTypes()[0] == double.class)
+                    .findFirst().orElseThrow(WrongMethodTypeException::new);
+            Node node = methodNode(method, owner, args);
+            if (Arrays.stream(args).allMatch(Node::isConstant)) {
+                Frame frame = new Frame(new double[1][0], 0, 1, 0, 0);
+                return new Constant(node.eval(frame)[0]);
+            }
+            return node;
+        }
+
+        private Node methodNode(Method method, Class<?> owner, Node[] args) {
+            boolean primitive = Modifier.isStatic(method.getModifiers())
+                    && method.getReturnType() == double.class
+                    && method.getParameterCount() == args.length
+                    && Arrays.stream(method.getParameterTypes()).allMatch(t -> t == double.class);
+            if (primitive && args.length <= 2) {
+                try {
+                    MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+                    return args.length == 1 ? new Unary(handle, args[0]) : new BinaryMethod(handle, args[0], args[1]);
+                } catch (IllegalAccessException e) {
+                    //回退到反射调用
+                }
+            }
+            return new Reflective(method, owner, args);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.jdt.fedlearn.tools.serializer;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kryo 类注册表。注册后的类序列化时只写一个 varint 编号，不再写完整类名。
+ * 编号由类在列表中的位置决定，协调端与客户端必须使用相同的列表，
+ * 因此新增类只能追加在列表末尾，不能删除或调整顺序；
+ * 不在当前 classpath 上的类跳过注册但保留编号。
+ * 未注册的类仍按类名序列化，兼容旧数据。
+ */
+public class KryoRegistry {
+    private static final int JDK_ID_BASE = 100;
+    private static final int MESSAGE_ID_BASE = 200;
+
+    private static final Class<?>[] JDK_CLASSES = {
+            HashMap.class,
+            ArrayList.class,
+            LinkedHashMap.class,
+            TreeMap.class,
+            HashSet.class,
+            LinkedList.class,
+            ConcurrentHashMap.class,
+            BigInteger.class,
+            double[].class,
+            double[][].class,
+            int[].class,
+            int[][].class,
+            long[].class,
+            boolean[].class,
+            byte[].class,
+            String[].class,
+            String[][].class,
+            Double[].class,
+            Integer[].class,
+            Object[].class
+    };
+
+    //core 与 common 中的消息类，tools 模块不依赖 core，因此按类名注册
+    private static final String[] MESSAGE_CLASSES = {
+            "com.jdt.fedlearn.common.entity.core.ClientInfo",
+            "com.jdt.fedlearn.common.entity.core.feature.Features",
+            "com.jdt.fedlearn.common.entity.core.feature.SingleFeature",
+            "com.jdt.fedlearn.core.entity.base.Double2dArray",
+            "com.jdt.fedlearn.core.entity.base.DoubleArray",
+            "com.jdt.fedlearn.core.entity.base.EmptyMessage",
+            "com.jdt.fedlearn.core.entity.base.Int2dArray",
+            "com.jdt.fedlearn.core.entity.base.IntArray",
+            "com.jdt.fedlearn.core.entity.base.SingleElement",
+            "com.jdt.fedlearn.core.entity.base.StringArray",
+            "com.jdt.fedlearn.core.entity.base.UniversalArray",
+            "com.jdt.fedlearn.core.entity.boost.BoostN1Res",
+            "com.jdt.fedlearn.core.entity.boost.BoostP1Req",
+            "com.jdt.fedlearn.core.entity.boost.BoostP2Res",
+            "com.jdt.fedlearn.core.entity.boost.BoostP3Req",
+            "com.jdt.fedlearn.core.entity.boost.BoostP3Res",
+            "com.jdt.fedlearn.core.entity.boost.BoostP4Req",
+            "com.jdt.fedlearn.core.entity.boost.BoostP5Res",
+            "com.jdt.fedlearn.core.entity.boost.Bucket",
+            "com.jdt.fedlearn.core.entity.boost.EncryptedGradHess",
+            "com.jdt.fedlearn.core.entity.boost.FeatureLeftGH",
+            "com.jdt.fedlearn.core.entity.boost.GainOutput",
+            "com.jdt.fedlearn.core.entity.boost.LeftTreeInfo",
+            "com.jdt.fedlearn.core.entity.boost.QueryEntry",
+            "com.jdt.fedlearn.core.entity.boost.SubModel",
+            "com.jdt.fedlearn.core.entity.common.CommonRequest",
+            "com.jdt.fedlearn.core.entity.common.CommonResponse",
+            "com.jdt.fedlearn.core.entity.common.InferenceInit",
+            "com.jdt.fedlearn.core.entity.common.InferenceInitRes",
+            "com.jdt.fedlearn.core.entity.common.MetricValue",
+            "com.jdt.fedlearn.core.entity.common.PredictRes",
+            "com.jdt.fedlearn.core.entity.common.TrainInit",
+            "com.jdt.fedlearn.core.entity.delphiInference.DelphiMsg",
+            "com.jdt.fedlearn.core.entity.distributed.InitResult",
+            "com.jdt.fedlearn.core.entity.distributed.SplitResult",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.EmptyKeyGeneMsg",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.KeyGeneClientInitInfo",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.KeyGeneMsg",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.LongTypeMsg",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.PiQiAndLongTypeMsg",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.PiQiSharesFromParty",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.SbArrayListMsg",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.SbArrayMsg",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.SelectedIdxMsg",
+            "com.jdt.fedlearn.core.entity.distributedKeyGeneMsg.Shares4AllOtherParties",
+            "com.jdt.fedlearn.core.entity.horizontalZoo.HorizontalZooDataUtils",
+            "com.jdt.fedlearn.core.entity.horizontalZoo.HorizontalZooMsgStream",
+            "com.jdt.fedlearn.core.entity.kernelLinearRegression.DataUtils",
+            "com.jdt.fedlearn.core.entity.kernelLinearRegression.InferenceReqAndRes",
+            "com.jdt.fedlearn.core.entity.kernelLinearRegression.TrainReq",
+            "com.jdt.fedlearn.core.entity.kernelLinearRegression.TrainRes",
+            "com.jdt.fedlearn.core.entity.localModel.LocalLinearModel",
+            "com.jdt.fedlearn.core.entity.localModel.LocalNullModel",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostBodyReq",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostBodyRes",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostInferDecRes",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostInferEncRes",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostInferQueryReq",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostInferQueryReqBody",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostInferQueryRes",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostInferQueryResBody",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostInferScoreReq",
+            "com.jdt.fedlearn.core.entity.mixGBoost.BoostInferScoreRes",
+            "com.jdt.fedlearn.core.entity.mixedLinearRegression.CypherMessage",
+            "com.jdt.fedlearn.core.entity.mixedLinearRegression.CypherMessage2D",
+            "com.jdt.fedlearn.core.entity.mixedLinearRegression.CypherMessage2DList",
+            "com.jdt.fedlearn.core.entity.mixedLinearRegression.CypherMessageList",
+            "com.jdt.fedlearn.core.entity.mixedLinearRegression.LinearRegressionInferInitOthers",
+            "com.jdt.fedlearn.core.entity.mixedLinearRegression.LinearRegressionTrainInitOthers",
+            "com.jdt.fedlearn.core.entity.mixedLinearRegression.PartialDecMessage",
+            "com.jdt.fedlearn.core.entity.mixedLinearRegression.TwoCypherMessage",
+            "com.jdt.fedlearn.core.entity.mpc.PartyA",
+            "com.jdt.fedlearn.core.entity.mpc.PartyB",
+            "com.jdt.fedlearn.core.entity.psi.DhMatchReq1",
+            "com.jdt.fedlearn.core.entity.psi.DhMatchReq2",
+            "com.jdt.fedlearn.core.entity.psi.DhMatchRes1",
+            "com.jdt.fedlearn.core.entity.psi.DhMatchRes2",
+            "com.jdt.fedlearn.core.entity.psi.FreedmanEncryption",
+            "com.jdt.fedlearn.core.entity.psi.FreedmanPassiveIdx",
+            "com.jdt.fedlearn.core.entity.psi.FreedmanPassiveIdxMap",
+            "com.jdt.fedlearn.core.entity.psi.FreedmanPassiveResult",
+            "com.jdt.fedlearn.core.entity.psi.FreedmanPassiveUidMap",
+            "com.jdt.fedlearn.core.entity.psi.MatchInit",
+            "com.jdt.fedlearn.core.entity.psi.MatchInitRes",
+            "com.jdt.fedlearn.core.entity.psi.MatchRSA1",
+            "com.jdt.fedlearn.core.entity.psi.MatchRSA2",
+            "com.jdt.fedlearn.core.entity.psi.MatchRSA3",
+            "com.jdt.fedlearn.core.entity.psi.MatchResRSA4",
+            "com.jdt.fedlearn.core.entity.psi.MatchResourceLinReg",
+            "com.jdt.fedlearn.core.entity.psi.MatchTransit",
+            "com.jdt.fedlearn.core.entity.randomForest.DataUtils",
+            "com.jdt.fedlearn.core.entity.randomForest.RandomForestInferMessage",
+            "com.jdt.fedlearn.core.entity.randomForest.RandomForestLoss",
+            "com.jdt.fedlearn.core.entity.randomForest.RandomForestTrainReq",
+            "com.jdt.fedlearn.core.entity.randomForest.RandomForestTrainRes",
+            "com.jdt.fedlearn.core.entity.randomForest.SubModel",
+            "com.jdt.fedlearn.core.entity.randomForest.TreeNodeRF",
+            "com.jdt.fedlearn.core.entity.randomForest.TypeRandomForest",
+            "com.jdt.fedlearn.core.entity.secureInference.SecureInferenceInitReq",
+            "com.jdt.fedlearn.core.entity.secureInference.SecureInferenceInitRes",
+            "com.jdt.fedlearn.core.entity.secureInference.SecureInferenceReq1",
+            "com.jdt.fedlearn.core.entity.secureInference.SecureInferenceReq2",
+            "com.jdt.fedlearn.core.entity.secureInference.SecureInferenceRes1",
+            "com.jdt.fedlearn.core.entity.secureInference.SecureInferenceRes2",
+            "com.jdt.fedlearn.core.entity.serialize.BinarySerializer",
+            "com.jdt.fedlearn.core.entity.serialize.HyperParameterAdapter",
+            "com.jdt.fedlearn.core.entity.serialize.JsonSerializer",
+            "com.jdt.fedlearn.core.entity.serialize.MessageAdapter",
+            "com.jdt.fedlearn.core.entity.verticalFDNN.VFDNNInferenceData",
+            "com.jdt.fedlearn.core.entity.verticalFDNN.VFDNNMessage",
+            "com.jdt.fedlearn.core.entity.verticalFDNN.VerticalFDNNUtils",
+            "com.jdt.fedlearn.core.entity.verticalLinearRegression.GradientsMetric",
+            "com.jdt.fedlearn.core.entity.verticalLinearRegression.LinearP1Request",
+            "com.jdt.fedlearn.core.entity.verticalLinearRegression.LinearP1Response",
+            "com.jdt.fedlearn.core.entity.verticalLinearRegression.LinearP2Request",
+            "com.jdt.fedlearn.core.entity.verticalLinearRegression.LossGradients",
+            "com.jdt.fedlearn.core.type.data.DoubleTuple2",
+            "com.jdt.fedlearn.core.type.data.IntDoubleTuple3",
+            "com.jdt.fedlearn.core.type.data.IntTuple3",
+            "com.jdt.fedlearn.core.type.data.KeyPair",
+            "com.jdt.fedlearn.core.type.data.Pair",
+            "com.jdt.fedlearn.core.type.data.StringTuple2",
+            "com.jdt.fedlearn.core.type.data.Tuple2",
+            "com.jdt.fedlearn.core.type.data.Tuple3",
+            "com.jdt.fedlearn.core.psi.MatchResult",
+            "com.jdt.fedlearn.common.entity.SingleParameter",
+            "com.jdt.fedlearn.common.entity.core.type.AlgorithmType",
+            "com.jdt.fedlearn.common.entity.core.type.ReduceType",
+            "[Lcom.jdt.fedlearn.core.type.data.StringTuple2;",
+            "[Lcom.jdt.fedlearn.common.entity.core.ClientInfo;",
+            "[Lcom.jdt.fedlearn.common.entity.core.feature.SingleFeature;",
+            "com.jdt.fedlearn.core.entity.boost.BoostN2Req",
+            "com.jdt.fedlearn.core.entity.boost.BoostN2Res"
+    };
+
+    private static final Class<?>[] RESOLVED = resolve();
+
+    private static Class<?>[] resolve() {
+        Class<?>[] resolved = new Class<?>[MESSAGE_CLASSES.length];
+        ClassLoader classLoader = KryoRegistry.class.getClassLoader();
+        for (int i = 0; i < MESSAGE_CLASSES.length; i++) {
+            try {
+                resolved[i] = Class.forName(MESSAGE_CLASSES[i], false, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                resolved[i] = null;
+            }
+        }
+        return resolved;
+    }
+
+    private KryoRegistry() {
+    }
+
+    public static void registerAll(Kryo kryo) {
+        for (int i = 0; i < JDK_CLASSES.length; i++) {
+            kryo.register(JDK_CLASSES[i], JDK_ID_BASE + i);
+        }
+        for (int i = 0; i < RESOLVED.length; i++) {
+            if (RESOLVED[i] != null) {
+                kryo.register(RESOLVED[i], MESSAGE_ID_BASE + i);
+            }
+        }
+    }
+}
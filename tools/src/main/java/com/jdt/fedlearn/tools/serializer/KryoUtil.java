@@ -15,14 +15,12 @@ package com.jdt.fedlearn.tools.serializer;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import org.apache.commons.codec.binary.Base64;
 import org.objenesis.strategy.StdInstantiatorStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sun.misc.BASE64Decoder;
-import sun.misc.BASE64Encoder;
 
-import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 /**
  * @className: KryoUtil
@@ -32,20 +30,27 @@ import java.io.*;
  */
 public class KryoUtil {
 
-    private static final String DEFAULT_ENCODING = "UTF-8";
+    private static final int BUFFER_SIZE = 4096;
+    //超过该大小的缓冲区用完后不再保留，避免大消息长期占用线程内存
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024 * 1024;
+    private static final byte[] EMPTY = new byte[0];
     private static Logger logger = LoggerFactory.getLogger(KryoUtil.class);
     //每个线程的 Kryo 实例
     private static final ThreadLocal<Kryo> kryoLocal = ThreadLocal.withInitial(() -> {
         Kryo kryo = new Kryo();
         //支持对象循环引用（否则会栈溢出）
         kryo.setReferences(true); //默认值就是 true，添加此行的目的是为了提醒维护者，不要改变这个配置
-        //不强制要求注册类（注册行为无法保证多个 JVM 内同一个类的注册编号相同；而且业务系统中大量的 Class 也难以一一注册）
+        //不强制要求注册类，未注册的类按类名序列化；消息类通过 KryoRegistry 以固定编号注册，省去每个对象的类名
         kryo.setRegistrationRequired(false); //默认值就是 false，添加此行的目的是为了提醒维护者，不要改变这个配置
+        KryoRegistry.registerAll(kryo);
         ((Kryo.DefaultInstantiatorStrategy) kryo.getInstantiatorStrategy())
                 .setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
 
         return kryo;
     });
+    //每个线程复用的输出、输入缓冲
+    private static final ThreadLocal<Output> outputLocal = ThreadLocal.withInitial(() -> new Output(BUFFER_SIZE, -1));
+    private static final ThreadLocal<Input> inputLocal = ThreadLocal.withInitial(Input::new);
 
     /**
      * 获得当前线程的 Kryo 实例
@@ -64,19 +69,25 @@ public class KryoUtil {
      * @return 序列化后的字节数组
      */
     public static <T> byte[] writeToByteArray(T obj) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        Output output = new Output(byteArrayOutputStream);
-
-        Kryo kryo = getInstance();
-        kryo.writeClassAndObject(output, obj);
-        output.flush();
+        Output output = outputLocal.get();
+        output.clear();
+        try {
+            getInstance().writeClassAndObject(output, obj);
+            return output.toBytes();
+        } finally {
+            releaseOutput(output);
+        }
+    }
 
-        return byteArrayOutputStream.toByteArray();
+    private static void releaseOutput(Output output) {
+        if (output.getBuffer().length > MAX_RETAINED_BUFFER) {
+            outputLocal.remove();
+        }
     }
 
     /**
      * 将对象【及类型】序列化为 String
-     * 利用了 Base64 编码
+     * 利用了 Base64 编码，不插入换行
      *
      * @param obj 任意对象
      * @param <T> 对象的类型
@@ -84,7 +95,7 @@ public class KryoUtil {
      */
     public static <T> String writeToString(T obj)  {
         byte[] bytes = writeToByteArray(obj);
-        return new BASE64Encoder().encode(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
     }
 
     /**
@@ -96,16 +107,18 @@ public class KryoUtil {
      */
     @SuppressWarnings("unchecked")
     public static <T> T readFromByteArray(byte[] byteArray) {
-        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArray);
-        Input input = new Input(byteArrayInputStream);
-
-        Kryo kryo = getInstance();
-        return (T) kryo.readClassAndObject(input);
+        Input input = inputLocal.get();
+        input.setBuffer(byteArray);
+        try {
+            return (T) getInstance().readClassAndObject(input);
+        } finally {
+            input.setBuffer(EMPTY);
+        }
     }
 
     /**
      * 将 String 反序列化为原对象
-     * 利用了 Base64 编码
+     * 利用了 Base64 编码，兼容带换行的旧格式
      *
      * @param str writeToString 方法序列化后的字符串
      * @param <T> 原对象的类型
@@ -113,9 +126,9 @@ public class KryoUtil {
      */
     public static <T> T readFromString(String str){
         try {
-            byte[] bytes2= new BASE64Decoder().decodeBuffer(str);
+            byte[] bytes2 = Base64.getMimeDecoder().decode(str);
             return readFromByteArray(bytes2);
-        } catch (IOException e) {
+        } catch (IllegalArgumentException e) {
             logger.error("readFromString error :{}",e.getMessage());
         }
         return null;
@@ -129,14 +142,14 @@ public class KryoUtil {
      * @return 序列化后的字节数组
      */
     public static <T> byte[] writeObjectToByteArray(T obj) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        Output output = new Output(byteArrayOutputStream);
-
-        Kryo kryo = getInstance();
-        kryo.writeObject(output, obj);
-        output.flush();
-
-        return byteArrayOutputStream.toByteArray();
+        Output output = outputLocal.get();
+        output.clear();
+        try {
+            getInstance().writeObject(output, obj);
+            return output.toBytes();
+        } finally {
+            releaseOutput(output);
+        }
     }
 
     /**
@@ -148,11 +161,7 @@ public class KryoUtil {
      * @return 序列化后的字符串
      */
     public static <T> String writeObjectToString(T obj) {
-        try {
-            return new String(Base64.encodeBase64(writeObjectToByteArray(obj)), DEFAULT_ENCODING);
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalStateException(e);
-        }
+        return Base64.getEncoder().encodeToString(writeObjectToByteArray(obj));
     }
 
     /**
@@ -165,11 +174,13 @@ public class KryoUtil {
      */
     @SuppressWarnings("unchecked")
     public static <T> T readObjectFromByteArray(byte[] byteArray, Class<T> clazz) {
-        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArray);
-        Input input = new Input(byteArrayInputStream);
-
-        Kryo kryo = getInstance();
-        return kryo.readObject(input, clazz);
+        Input input = inputLocal.get();
+        input.setBuffer(byteArray);
+        try {
+            return getInstance().readObject(input, clazz);
+        } finally {
+            input.setBuffer(EMPTY);
+        }
     }
 
     /**
@@ -182,10 +193,6 @@ public class KryoUtil {
      * @return 原对象
      */
     public static <T> T readObjectFromString(String str, Class<T> clazz) {
-        try {
-            return readObjectFromByteArray(Base64.decodeBase64(str.getBytes(DEFAULT_ENCODING)), clazz);
-        } catch (UnsupportedEncodingException e) {
-            throw new IllegalStateException(e);
-        }
+        return readObjectFromByteArray(Base64.getMimeDecoder().decode(str.getBytes(StandardCharsets.US_ASCII)), clazz);
     }
 }
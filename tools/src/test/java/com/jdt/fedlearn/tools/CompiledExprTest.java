@@ -0,0 +1,91 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.jdt.fedlearn.tools;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.invoke.WrongMethodTypeException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+public class CompiledExprTest {
+    private final List<String> featuresName = Arrays.asList("a", "b", "part1.c");
+
+    private double[][] randomRows(int n) {
+        Random random = new Random(7);
+        double[][] rows = new double[n][3];
+        for (double[] row : rows) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextDouble() * 10 - 5;
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void sameAsInterpreter() {
+        String[] exprs = new String[]{
+                "a + b * 2",
+                "(a - b) / part1.c",
+                "java.lang.Math.abs(a) + java.lang.Math.pow(b, 2)",
+                "java.lang.Math.abs(2) + 1 + 3 + part1.c",
+                "x = a * b; x + x / 2",
+                "-1 * a - b",
+                "java.lang.Math.max(a, 0.5) * java.lang.Math.log(java.lang.Math.abs(b) + 1)"
+        };
+        double[][] rows = randomRows(100);
+        ExprAnalysis exprAnalysis = new ExprAnalysis();
+        for (String expr : exprs) {
+            String token = exprAnalysis.init(expr, featuresName);
+            CompiledExpr compiled = CompiledExpr.compile(expr, featuresName);
+            double[] values = compiled.evaluate(rows);
+            for (int i = 0; i < rows.length; i++) {
+                Assert.assertEquals(values[i], exprAnalysis.expression(token, rows[i], featuresName), 1e-12, expr);
+            }
+            exprAnalysis.close(token);
+        }
+    }
+
+    @Test
+    public void evaluateRange() {
+        double[][] rows = randomRows(10);
+        CompiledExpr compiled = CompiledExpr.compile("a + part1.c", featuresName);
+        double[] part = compiled.evaluate(rows, 3, 7);
+        Assert.assertEquals(part.length, 4);
+        for (int i = 0; i < part.length; i++) {
+            Assert.assertEquals(part[i], rows[3 + i][0] + rows[3 + i][2]);
+        }
+    }
+
+    @Test
+    public void columnNotShared() {
+        double[][] rows = randomRows(5);
+        double[] values = CompiledExpr.compile("b", featuresName).evaluate(rows);
+        values[0] = 100;
+        Assert.assertNotEquals(rows[0][1], 100.0);
+        Assert.assertEquals(CompiledExpr.compile("2 * 3", featuresName).evaluate(new double[]{0, 0, 0}), 6.0);
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void syntaxError() {
+        CompiledExpr.compile("a + * b", featuresName);
+    }
+
+    @Test(expectedExceptions = WrongMethodTypeException.class)
+    public void unknownFeature() {
+        CompiledExpr.compile("a + d", featuresName);
+    }
+}
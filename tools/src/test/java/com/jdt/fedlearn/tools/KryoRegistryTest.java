@@ -0,0 +1,70 @@
+/* Copyright 2020 The FedLearn Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+http://www.apache.org/licenses/LICENSE-2.0
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.jdt.fedlearn.tools;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.jdt.fedlearn.common.entity.core.ClientInfo;
+import com.jdt.fedlearn.tools.serializer.KryoUtil;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+public class KryoRegistryTest {
+
+    @Test
+    public void roundTrip() {
+        List<ClientInfo> clients = new ArrayList<>();
+        clients.add(new ClientInfo("127.0.0.1", 8080, "http"));
+        clients.add(new ClientInfo("127.0.0.2", 8081, "http"));
+        String s = KryoUtil.writeToString(clients);
+        Assert.assertFalse(s.contains("\n"));
+        List<ClientInfo> restore = KryoUtil.readFromString(s);
+        Assert.assertEquals(restore, clients);
+
+        double[][] matrix = new double[][]{{1.0, 2.0}, {3.0, 4.0}};
+        double[][] restoreMatrix = KryoUtil.readFromByteArray(KryoUtil.writeToByteArray(matrix));
+        Assert.assertEquals(restoreMatrix, matrix);
+    }
+
+    @Test
+    public void registeredSmallerThanClassName() {
+        ClientInfo client = new ClientInfo("127.0.0.1", 8080, "http");
+        Kryo plain = new Kryo();
+        ((Kryo.DefaultInstantiatorStrategy) plain.getInstantiatorStrategy())
+                .setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+        Output output = new Output(4096, -1);
+        plain.writeClassAndObject(output, client);
+        byte[] unregistered = output.toBytes();
+        byte[] registered = KryoUtil.writeToByteArray(client);
+        Assert.assertTrue(registered.length < unregistered.length);
+        // 未注册的旧格式仍能读取
+        Assert.assertEquals(KryoUtil.readFromByteArray(unregistered), client);
+    }
+
+    @Test
+    public void readLineWrappedBase64() {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add("value" + i);
+        }
+        String wrapped = Base64.getMimeEncoder().encodeToString(KryoUtil.writeToByteArray(values));
+        Assert.assertTrue(wrapped.contains("\n"));
+        List<String> restore = KryoUtil.readFromString(wrapped);
+        Assert.assertEquals(restore, values);
+    }
+}
@@ -20,6 +20,8 @@ import java.io.IOException;
 
 public class QueryProgress {
     private String stamp;
+    //长轮询等待时间（毫秒），结果未完成时最多等待这么久再返回
+    private long wait;
 
     public QueryProgress(String jsonStr) {
         parseJson(jsonStr);
@@ -36,6 +38,14 @@ public class QueryProgress {
         this.stamp = stamp;
     }
 
+    public long getWait() {
+        return wait;
+    }
+
+    public void setWait(long wait) {
+        this.wait = wait;
+    }
+
 
     public void parseJson(String jsonStr) {
         ObjectMapper mapper = new ObjectMapper();
@@ -43,6 +53,7 @@ public class QueryProgress {
         try {
             p1r = mapper.readValue(jsonStr, QueryProgress.class);
             this.stamp = p1r.stamp;
+            this.wait = p1r.wait;
         } catch (IOException e) {
             System.out.println(ExceptionUtil.getExInfo(e));
             throw new DeserializeException(this.getClass().getName());